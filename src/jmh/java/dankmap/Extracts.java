@@ -0,0 +1,51 @@
+package dankmap;
+
+import dankmap.drawing.DrawType;
+import dankmap.model.DataModel;
+import dankmap.osm.MapGenerator;
+import dankmap.osm.OSMParser;
+
+import java.io.*;
+import java.net.URL;
+
+/**
+ * The map extracts benchmarks load, by default a generated map of scale 1.
+ * <code>synthetic:&lt;scale&gt;</code> is a map generated by MapGenerator of the scale.
+ */
+public class Extracts {
+    // A generated map large enough to measure routing and loading on
+    public static final String SYNTHETIC_1 = "synthetic:1";
+    // The small extract of the parser tests, a quick check of the parser
+    public static final String BUNDLED = "bundled";
+    private static final String BUNDLED_RESOURCE = "dankmap/osm/osmparsertest/B1.osm";
+    private static final String SYNTHETIC = "synthetic:";
+
+    public static File get(String path) throws IOException {
+        if (path.startsWith(SYNTHETIC)) {
+            File file = File.createTempFile("synthetic", ".osm");
+            file.deleteOnExit();
+            new MapGenerator(0, Double.parseDouble(path.substring(SYNTHETIC.length()))).write(file);
+            return file;
+        }
+        if (!path.equals(BUNDLED)) return new File(path);
+        URL resource = Extracts.class.getClassLoader().getResource(BUNDLED_RESOURCE);
+        if (resource == null) throw new FileNotFoundException(BUNDLED_RESOURCE);
+        return new File(resource.getFile());
+    }
+
+    public static DataModel parse(File file) throws Exception {
+        DrawType.loadDrawTypeMap();
+        return new OSMParser(file).load();
+    }
+
+    /**
+     * @return the model serialized as when saved to a binary
+     */
+    public static byte[] serialize(DataModel model) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(bytes))) {
+            out.writeObject(model);
+        }
+        return bytes.toByteArray();
+    }
+}
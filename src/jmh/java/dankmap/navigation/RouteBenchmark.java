@@ -0,0 +1,65 @@
+package dankmap.navigation;
+
+import dankmap.Extracts;
+import dankmap.model.Bounds;
+import dankmap.model.DataModel;
+import dankmap.model.Location;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Routes between a fixed set of pairs of points of a map, per vehicle.
+ * The map is generated of scale 1 unless given by <code>-p map=&lt;map.osm&gt;</code>
+ * or <code>-p map=synthetic:&lt;scale&gt;</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RouteBenchmark {
+    private static final int QUERIES = 64;
+
+    @Param({Extracts.SYNTHETIC_1})
+    public String map;
+
+    @Param({"MOTOR", "BIKE", "PEDESTRIAN"})
+    public Vehicle vehicle;
+
+    @Param({"true", "false"})
+    public boolean fastest;
+
+    private DataModel model;
+    private Location[] from, to;
+    private int next;
+
+    @Setup
+    public void setup() throws Exception {
+        model = Extracts.parse(Extracts.get(map));
+
+        // The same pairs for every vehicle
+        Random random = new Random(42);
+        Bounds bounds = model.getBounds();
+        from = new Location[QUERIES];
+        to = new Location[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            from[i] = point(random, bounds);
+            to[i] = point(random, bounds);
+        }
+    }
+
+    @Benchmark
+    public Route getRoute() {
+        int i = next++ & (QUERIES - 1);
+        return model.getRoute(vehicle, from[i], to[i], fastest);
+    }
+
+    private static Location point(Random random, Bounds bounds) {
+        return new Location(
+                bounds.getMinX() + random.nextFloat() * bounds.getWidth(),
+                bounds.getMinY() + random.nextFloat() * bounds.getHeight());
+    }
+}
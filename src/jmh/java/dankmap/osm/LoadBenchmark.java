@@ -0,0 +1,52 @@
+package dankmap.osm;
+
+import dankmap.Extracts;
+import dankmap.drawing.DrawType;
+import dankmap.model.DataModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.ObjectInputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a map, by parsing the OSM file and by reading the binary it is saved as.
+ * The maps are generated of scale 1 and the bundled extract, as a quick check of the parser,
+ * unless given by <code>-p map=&lt;map.osm&gt;</code> or <code>-p map=synthetic:&lt;scale&gt;</code>.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class LoadBenchmark {
+
+    @Param({Extracts.SYNTHETIC_1, Extracts.BUNDLED})
+    public String map;
+
+    private File file;
+    private byte[] binary;
+
+    @Setup
+    public void setup() throws Exception {
+        file = Extracts.get(map);
+        binary = Extracts.serialize(Extracts.parse(file));
+    }
+
+    @Benchmark
+    public DataModel parse() throws Exception {
+        DrawType.loadDrawTypeMap();
+        return new OSMParser(file).load();
+    }
+
+    @Benchmark
+    public DataModel readBinary() throws Exception {
+        DrawType.loadDrawTypeMap();
+        try (ObjectInputStream in = new ObjectInputStream(new BufferedInputStream(new ByteArrayInputStream(binary)))) {
+            return (DataModel) in.readObject();
+        }
+    }
+}
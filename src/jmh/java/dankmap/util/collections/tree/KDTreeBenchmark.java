@@ -0,0 +1,63 @@
+package dankmap.util.collections.tree;
+
+import dankmap.drawing.DrawType;
+import dankmap.model.Bounds;
+import dankmap.model.elements.MapElement;
+import dankmap.model.elements.PolygonElement;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Range searches of a KDTree of small polygons spread over a 1000 x 1000 map,
+ * by views of a fixed set of windows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KDTreeBenchmark {
+    private static final int QUERIES = 256;
+
+    @Param({"100000", "1000000"})
+    public int elements;
+
+    // Side length of the query windows
+    @Param({"10", "100"})
+    public float window;
+
+    private KDTree tree;
+    private Bounds[] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        tree = new KDTree();
+        for (int i = 0; i < elements; i++) {
+            float x = random.nextFloat() * 1000;
+            float y = random.nextFloat() * 1000;
+            float size = random.nextFloat() * 2;
+            tree.addElement(new PolygonElement(new float[]{x, y, x + size, y, x + size, y + size, x, y}, DrawType.NONE));
+        }
+        tree.buildTree();
+
+        queries = new Bounds[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            float x = random.nextFloat() * (1000 - window);
+            float y = random.nextFloat() * (1000 - window);
+            queries[i] = new Bounds(x, y, x + window, y + window);
+        }
+    }
+
+    @Benchmark
+    public List<MapElement> rangeSearch() {
+        Bounds query = queries[next++ & (QUERIES - 1)];
+        return tree.rangeSearch(new ArrayList<>(), query);
+    }
+}
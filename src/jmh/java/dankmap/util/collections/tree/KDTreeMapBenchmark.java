@@ -0,0 +1,54 @@
+package dankmap.util.collections.tree;
+
+import dankmap.model.Location;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Nearest neighbour searches of a KDTreeMap of random points, by a fixed set of query points.
+ * The graph searches the 150 vertices nearest to each end of a route.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KDTreeMapBenchmark {
+    private static final int QUERIES = 256;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"1", "150"})
+    public int k;
+
+    private KDTreeMap<Location, Integer> map;
+    private Location[] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        Map<Location, Integer> entries = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            entries.put(new Location(random.nextFloat() * 1000, random.nextFloat() * 1000), i);
+        }
+        map = new KDTreeMap<>(entries);
+
+        queries = new Location[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = new Location(random.nextFloat() * 1000, random.nextFloat() * 1000);
+        }
+    }
+
+    @Benchmark
+    public Collection<Location> nearestKeys() {
+        return map.nearestKeys(queries[next++ & (QUERIES - 1)], k);
+    }
+}
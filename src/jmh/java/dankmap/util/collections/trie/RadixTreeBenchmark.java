@@ -0,0 +1,59 @@
+package dankmap.util.collections.trie;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Prefix searches of a RadixTree of addresses, as typed into the search field.
+ * Short prefixes match many addresses, long prefixes few.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RadixTreeBenchmark {
+    private static final String[] STREETS = {
+            "algade", "bredgade", "rådhusvej", "kirkevej", "skovvej", "strandvejen",
+            "søndergade", "nørregade", "vestergade", "østergade", "møllevej", "stationsvej"};
+    private static final String[] CITIES = {"københavn k", "aarhus c", "odense c", "aalborg", "roskilde", "køge"};
+    private static final int QUERIES = 256;
+
+    @Param({"100000"})
+    public int addresses;
+
+    // Length of the searched prefixes
+    @Param({"2", "8", "16"})
+    public int prefix;
+
+    private RadixTree<Integer> tree;
+    private String[] queries;
+    private int next;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        tree = new RadixTree<>();
+        String[] keys = new String[addresses];
+        for (int i = 0; i < addresses; i++) {
+            keys[i] = STREETS[random.nextInt(STREETS.length)] + random.nextInt(100) + " " + (1 + random.nextInt(200))
+                    + ", " + (1000 + random.nextInt(9000)) + " " + CITIES[random.nextInt(CITIES.length)];
+            tree.put(keys[i], i);
+        }
+
+        queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            String key = keys[random.nextInt(addresses)];
+            queries[i] = key.substring(0, Math.min(prefix, key.length()));
+        }
+    }
+
+    @Benchmark
+    public Collection<String> searchPrefix() {
+        return tree.searchPrefix(queries[next++ & (QUERIES - 1)]);
+    }
+}
@@ -0,0 +1,67 @@
+package dankmap;
+
+import dankmap.model.Address;
+import dankmap.model.BatchGeocoder;
+import dankmap.model.BatchGeocoder.Batch;
+import dankmap.model.BatchGeocoder.Result;
+import dankmap.model.DataModel;
+import dankmap.model.Location;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Headless batch geocoding, resolves a file of addresses, one per line,
+ * against a map and writes the results as csv.
+ * <p>
+ * Usage: Geocode &lt;map.bin|map.osm|map.zip&gt; &lt;addresses.txt|-&gt; [results.csv]
+ */
+public class Geocode {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: Geocode <map.bin|map.osm|map.zip> <addresses.txt|-> [results.csv]");
+            System.exit(1);
+        }
+
+        // Keep load messages out of results written to stdout
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+        DataModel model = Launcher.loadFile(new File(args[0]));
+        System.setOut(stdout);
+        if (model == null) throw new IOException("unsupported map file: " + args[0]);
+
+        InputStream input = args[1].equals("-") ? System.in : new FileInputStream(args[1]);
+        OutputStream output = args.length > 2 ? new FileOutputStream(args[2]) : System.out;
+
+        Batch batch;
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            batch = new BatchGeocoder(model).geocode(in.lines());
+        }
+
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8)))) {
+            out.println("query,quality,address,lon,lat");
+            for (Result result : batch.getResults()) {
+                out.print(csv(result.getQuery()) + "," + result.getQuality());
+                Address address = result.getAddress();
+                if (address != null) {
+                    Location geo = address.toGeo();
+                    out.print(String.format(Locale.ROOT, ",%s,%.7f,%.7f", csv(address.getAddress()), geo.getX(), geo.getY()));
+                } else {
+                    out.print(",,,");
+                }
+                out.println();
+            }
+        }
+
+        System.err.println(String.format(Locale.ROOT, "Geocoded %d addresses in %.3f s (%.0f addresses/s)",
+                batch.getResults().size(), batch.getSeconds(), batch.getThroughput()));
+        batch.getCounts().forEach((quality, count) -> System.err.println(String.format("  %-12s %d", quality, count)));
+    }
+
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0) return value;
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -4,6 +4,8 @@ import dankmap.controller.Controller;
 import dankmap.drawing.DrawType;
 import dankmap.model.DataModel;
 import dankmap.osm.OSMParser;
+import dankmap.util.metrics.FrameMetrics;
+import dankmap.view.CameraPath;
 import dankmap.view.ViewModel;
 import javafx.animation.Animation;
 import javafx.animation.Interpolator;
@@ -59,6 +61,12 @@ public class Launcher extends Application {
         ACCEPTED_EXTENSIONS.add("*.zip");
     }
 
+    // Rendering metrics are written to this file on exit when set, as JSON for *.json and CSV otherwise
+    public static final String METRICS_PATH = System.getProperty("dankmap.metrics");
+    // The camera path of the session is written to this file on exit when set, to be replayed by the RenderHarness
+    public static final String CAMERA_PATH = System.getProperty("dankmap.camera");
+    private static CameraPath camera;
+
     // HOME FOLDER PATH NAMES
     public static final String BIN_PATH = System.getProperty("user.home");
     public static final String OSM_PATH = System.getProperty("user.home");
@@ -76,6 +84,16 @@ public class Launcher extends Application {
         initialize(stage);
     }
 
+    @Override
+    public void stop() {
+        try {
+            if (METRICS_PATH != null) FrameMetrics.get().export(new File(METRICS_PATH));
+            if (CAMERA_PATH != null && camera != null) camera.save(new File(CAMERA_PATH));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
     /**
      * Default stage initialization, this will open a map of the <code>DEFAULT_FILE</code>
      *
@@ -124,7 +142,7 @@ public class Launcher extends Application {
         if (file != null) initialize(stage, file);
     }
 
-    private static DataModel loadFile(File file) throws IOException, XMLStreamException, InterruptedException, ClassNotFoundException {
+    public static DataModel loadFile(File file) throws IOException, XMLStreamException, InterruptedException, ClassNotFoundException {
         if (!file.getName().contains(".")) throw new IOException();
         String fileExt = file.getName().substring(file.getName().lastIndexOf('.'));
         switch (fileExt) {
@@ -207,6 +225,10 @@ public class Launcher extends Application {
             parent = loader.<Parent>load();
             Scene mapScene = new Scene(parent, stage.getWidth(), stage.getHeight(), false, SceneAntialiasing.DISABLED);
             ViewModel viewModel = new ViewModel(dataModel, mapScene.getWidth(), mapScene.getHeight());
+            if (CAMERA_PATH != null) {
+                camera = new CameraPath();
+                camera.record(viewModel);
+            }
             Controller controller = loader.getController();
             controller.initialize(dataModel, viewModel);
             stage.setScene(mapScene);
@@ -8,7 +8,9 @@ import dankmap.model.Location;
 import dankmap.model.PointOfInterest;
 import dankmap.navigation.Vehicle;
 import dankmap.util.StringUtil;
+import dankmap.util.metrics.FrameMetrics;
 import dankmap.view.HighlightCanvas;
+import dankmap.view.LabelCanvas;
 import dankmap.view.MapCanvas;
 import dankmap.view.OverlayCanvas;
 import dankmap.view.ViewModel;
@@ -72,6 +74,8 @@ public class Controller {
     @FXML
     private MapCanvas mapCanvas;
     @FXML
+    private LabelCanvas labelCanvas;
+    @FXML
     private HighlightCanvas highlightCanvas;
     @FXML
     private OverlayCanvas overlayCanvas;
@@ -130,6 +134,7 @@ public class Controller {
         this.viewModel = viewModel;
         stackPane.getScene().setOnKeyPressed(this::handleKeyPressed);
         mapCanvas.initialize(viewModel);
+        labelCanvas.initialize(viewModel);
         highlightCanvas.initialize(viewModel);
         overlayCanvas.initialize(viewModel);
         bindViewModelSize();
@@ -291,18 +296,26 @@ public class Controller {
 
     ////////////// UpdateEvents /////////////
     private void onMapUpdate() {
-        double startTime = System.nanoTime();
+        FrameMetrics metrics = FrameMetrics.get();
+        long frameStart = System.nanoTime();
         mapCanvas.update();
-        overlayCanvas.setUpdateTime((System.nanoTime() - startTime));
+        labelCanvas.update();
         highlightCanvas.update();
         overlayCanvas.update();
 
-
-        startTime = System.nanoTime();
         mapCanvas.repaint();
-        overlayCanvas.setRepaintTime((System.nanoTime() - startTime) / 1e6);
+        labelCanvas.repaint();
+        long start = System.nanoTime();
         highlightCanvas.repaint();
+        metrics.time(FrameMetrics.Series.HIGHLIGHT, start);
+        start = System.nanoTime();
         overlayCanvas.repaint();
+        metrics.time(FrameMetrics.Series.OVERLAY, start);
+
+        metrics.record(FrameMetrics.Series.ELEMENT_COUNT, viewModel.getMapElements().size());
+        metrics.record(FrameMetrics.Series.ROAD_COUNT, viewModel.getRoads().size());
+        metrics.time(FrameMetrics.Series.FRAME, frameStart);
+        metrics.endFrame();
     }
 
     private void onHighlightUpdate() {
@@ -338,6 +351,7 @@ public class Controller {
 
     private void loadDrawType(DrawType.Style style) {
         DrawType.loadDrawTypeMap(style);
+        mapCanvas.clearTiles();
         viewModel.updateElements();
         onMapUpdate();
     }
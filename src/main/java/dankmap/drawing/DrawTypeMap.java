@@ -6,54 +6,103 @@ import java.io.Serializable;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.TreeSet;
 
 /**
  * This class functions as a data structure to map OSM key-value pairs to
  * a corresponding DrawType. Since mulitple DrawTypes can have the
  * same osm key, a simple HashMap wont do the job.
+ * <p>
+ * Lookups go through an index compiled from the pairs on first use,
+ * mapping key to value to DrawType, where pairs with a null value act as
+ * a wildcard for any value of their key. Exact values take precedence
+ * over the wildcard. Lookups allocate nothing.
  */
 public class DrawTypeMap extends HashMap<Pair<String, String>, DrawType> implements Serializable {
 
     private static final long serialVersionUID = -1948536883832151073L;
 
+    // Compiled lookup index, dropped whenever the pairs change
+    private transient volatile Map<String, KeyIndex> index;
+
+    private static class KeyIndex {
+        final Map<String, DrawType> values = new HashMap<>();
+        DrawType wildcard;
+    }
+
     public DrawType put(String key, String value, DrawType drawType) {
-        return super.put(new Pair<>(key, value), drawType);
+        return put(new Pair<>(key, value), drawType);
+    }
+
+    @Override
+    public DrawType put(Pair<String, String> tag, DrawType drawType) {
+        index = null;
+        return super.put(tag, drawType);
+    }
+
+    @Override
+    public void putAll(Map<? extends Pair<String, String>, ? extends DrawType> m) {
+        index = null;
+        super.putAll(m);
+    }
+
+    @Override
+    public DrawType remove(Object tag) {
+        index = null;
+        return super.remove(tag);
+    }
+
+    @Override
+    public void clear() {
+        index = null;
+        super.clear();
     }
 
     public DrawType get(String key, String value) {
-        for (var p : keySet()) {
-            var k = p.getKey();
-            var v = p.getValue();
-            if (k != null) {
-                if (v != null) {
-                    if (key.equals(k) && value.equals(v)) return get(p);
-                } else {
-                    if (key.equals(k)) return get(p);
-                }
-            }
-        }
-        return null;
+        KeyIndex entry = index().get(key);
+        if (entry == null) return null;
+        DrawType type = entry.values.get(value);
+        return type != null ? type : entry.wildcard;
     }
 
+    /**
+     * @return the DrawType of highest order matching any of the tags [ k0, v0, k1, v1, ... ],
+     * or null if none match
+     */
     public DrawType get(String[] tags) {
-        TreeSet<DrawType> types = new TreeSet<>();
+        DrawType first = null;
         for (int i = 0; i < tags.length; i += 2) {
-            var type = get(tags[i], tags[i + 1]);
-            if (type != null) types.add(type);
+            first = first(first, get(tags[i], tags[i + 1]));
         }
-        if (types.isEmpty()) return null;
-        return types.first();
+        return first;
     }
 
+    /**
+     * @return the DrawType of highest order matching any of the tags [ k0, v0, k1, v1, ... ],
+     * or null if none match
+     */
     public DrawType get(List<String> tags) {
-        TreeSet<DrawType> types = new TreeSet<>();
+        DrawType first = null;
         for (int i = 0; i < tags.size(); i += 2) {
-            var type = get(tags.get(i), tags.get(i + 1));
-            if (type != null) types.add(type);
+            first = first(first, get(tags.get(i), tags.get(i + 1)));
         }
-        if (types.isEmpty()) return null;
-        return types.first();
+        return first;
+    }
+
+    /**
+     * Adds the DrawType matching each tag of [ k0, v0, k1, v1, ... ] to the result,
+     * one for every matching tag
+     *
+     * @return the number of DrawTypes added
+     */
+    public int collect(List<String> tags, List<DrawType> result) {
+        int count = 0;
+        for (int i = 0; i < tags.size(); i += 2) {
+            DrawType type = get(tags.get(i), tags.get(i + 1));
+            if (type == null) continue;
+            result.add(type);
+            count++;
+        }
+        return count;
     }
 
     public DrawTypeMap getRange(String[] tags) {
@@ -88,4 +137,38 @@ public class DrawTypeMap extends HashMap<Pair<String, String>, DrawType> impleme
         }
         return sub;
     }
+
+
+    /////////// Utility //////////
+
+    private Map<String, KeyIndex> index() {
+        Map<String, KeyIndex> compiled = index;
+        if (compiled == null) {
+            compiled = compile();
+            index = compiled;
+        }
+        return compiled;
+    }
+
+    // Tag strings are interned, as the same keys and values are shared by many draw types
+    private Map<String, KeyIndex> compile() {
+        Map<String, KeyIndex> compiled = new HashMap<>();
+        for (var entry : entrySet()) {
+            String key = entry.getKey().getKey();
+            String value = entry.getKey().getValue();
+            if (key == null) continue;
+
+            KeyIndex keyIndex = compiled.computeIfAbsent(key.intern(), k -> new KeyIndex());
+            if (value == null) keyIndex.wildcard = first(keyIndex.wildcard, entry.getValue());
+            else keyIndex.values.merge(value.intern(), entry.getValue(), DrawTypeMap::first);
+        }
+        return compiled;
+    }
+
+    // The first of two DrawTypes by their natural ordering, either may be null
+    private static DrawType first(DrawType a, DrawType b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        return a.compareTo(b) <= 0 ? a : b;
+    }
 }
@@ -0,0 +1,196 @@
+package dankmap.drawing;
+
+import dankmap.util.VectorMath;
+import javafx.scene.canvas.GraphicsContext;
+
+import java.util.Arrays;
+
+/**
+ * Simplified geometries of paths, precomputed by Douglas-Peucker once
+ * when elements are created, such that zoomed out frames do not trace
+ * every vertex of detailed paths.
+ * <p>
+ * The ZoomLevels are grouped in bands of two levels, where the vertices of
+ * a path are simplified to within half a pixel at the most zoomed in level
+ * of the band. Levels beyond the last band use the full path.
+ * <p>
+ * The points kept by a band are also kept by every finer band, so a simplified
+ * path is stored as one byte per point, the coarsest band which keeps the point,
+ * ie. the vertex (path[2i], path[2i + 1]) is drawn at band b if bands[i] &lt;= b.
+ */
+public class LevelOfDetail {
+    public static final int BANDS = 4;
+
+    // Paths of fewer points are always drawn in full
+    private static final int MIN_POINTS = 8;
+
+    // A band is dropped when it keeps more than this fraction of the points
+    private static final double MAX_KEPT = 0.75;
+
+    // Squared tolerance of each band in map units
+    private static final double[] SQ_TOLERANCES = new double[BANDS];
+
+    static {
+        for (int band = 0; band < BANDS; band++) {
+            double tolerance = 0.5 / ZoomLevel.values()[band * 2 + 1].getScale();
+            SQ_TOLERANCES[band] = tolerance * tolerance;
+        }
+    }
+
+    private LevelOfDetail() {
+    }
+
+    /**
+     * @param path the points of the path [ x0, y0, x1, y1, ... ]
+     * @return the coarsest band keeping each point, where the points of a band keeping most
+     * of the path are all kept, or null if the path is not simplified by any band
+     */
+    public static byte[] simplify(float[] path) {
+        return simplify(path, 0, path.length);
+    }
+
+    /**
+     * As {@link #simplify(float[])}, of the path at [offset, offset + length) of the coordinates
+     */
+    public static byte[] simplify(float[] coords, int offset, int length) {
+        int points = length / 2;
+        if (points < MIN_POINTS) return null;
+
+        double[] significance = significance(coords, offset, points, SQ_TOLERANCES[BANDS - 1]);
+        byte[] bands = new byte[points];
+        int[] kept = new int[BANDS + 1];
+        for (int i = 0; i < points; i++) {
+            int band = 0;
+            while (band < BANDS && significance[i] <= SQ_TOLERANCES[band]) band++;
+            bands[i] = (byte) band;
+            kept[band]++;
+        }
+
+        // The first band keeping most of the path draws it in full, as do the finer bands
+        int full = 0, count = 0;
+        while (full < BANDS && (count += kept[full]) <= points * MAX_KEPT) full++;
+        if (full == 0) return null;
+        for (int i = 0; i < points; i++) {
+            if (bands[i] > full) bands[i] = (byte) full;
+        }
+        return bands;
+    }
+
+    /**
+     * @return the band of the ZoomLevel, or BANDS if the level uses the full paths
+     */
+    public static int bandOf(ZoomLevel zoomLevel) {
+        return Math.min(zoomLevel.getId() / 2, BANDS);
+    }
+
+    /**
+     * @return the indices of the points to draw at the ZoomLevel, or null if all points are drawn
+     */
+    public static int[] indicesOf(byte[] bands, ZoomLevel zoomLevel) {
+        int band = bandOf(zoomLevel);
+        if (bands == null || band == BANDS) return null;
+        int[] indices = new int[bands.length];
+        int kept = 0;
+        for (int i = 0; i < bands.length; i++) {
+            if (bands[i] <= band) indices[kept++] = i;
+        }
+        return kept == bands.length ? null : Arrays.copyOf(indices, kept);
+    }
+
+    /**
+     * Adds the path to the current path of the GraphicsContext,
+     * with the detail of the ZoomLevel
+     *
+     * @return the number of path commands issued
+     */
+    public static int trace(GraphicsContext gfx, float[] path, byte[] bands, ZoomLevel zoomLevel) {
+        return trace(gfx, path, 0, path.length, bands, zoomLevel);
+    }
+
+    /**
+     * As {@link #trace(GraphicsContext, float[], byte[], ZoomLevel)}, of the path at
+     * [offset, offset + length) of the coordinates, where the bands are those of every
+     * point of the coordinates, ie. the band of the point at coordinate j is bands[j / 2]
+     */
+    public static int trace(GraphicsContext gfx, float[] coords, int offset, int length, byte[] bands, ZoomLevel zoomLevel) {
+        int band = bandOf(zoomLevel);
+        gfx.moveTo(coords[offset], coords[offset + 1]);
+        if (bands == null || band == BANDS) {
+            for (int j = offset + 2; j < offset + length; j += 2) {
+                gfx.lineTo(coords[j], coords[j + 1]);
+            }
+            return length / 2;
+        }
+        // The first and last points are always drawn
+        int last = offset + length - 2;
+        int commands = 1;
+        for (int j = offset + 2; j < last; j += 2) {
+            if (bands[j / 2] > band) continue;
+            gfx.lineTo(coords[j], coords[j + 1]);
+            commands++;
+        }
+        if (last > offset) {
+            gfx.lineTo(coords[last], coords[last + 1]);
+            commands++;
+        }
+        return commands;
+    }
+
+
+    /////////// Utility //////////
+
+    /**
+     * Douglas-Peucker, recording for each point the squared distance at which it is kept.
+     * A point is never more significant than the point splitting its parent segment,
+     * such that the points kept by a coarser band are also kept by finer bands.
+     * Segments are only split further while the distance exceeds the minimum tolerance.
+     */
+    private static double[] significance(float[] coords, int offset, int points, double sqMinTolerance) {
+        double[] significance = new double[points];
+        significance[0] = Double.POSITIVE_INFINITY;
+        significance[points - 1] = Double.POSITIVE_INFINITY;
+
+        // Explicit stack of segments [ first, last ], coastlines may be too long to recurse
+        int[] stack = new int[64];
+        double[] parents = new double[32];
+        int top = 0;
+        stack[top * 2] = 0;
+        stack[top * 2 + 1] = points - 1;
+        parents[top++] = Double.POSITIVE_INFINITY;
+
+        while (top > 0) {
+            top--;
+            int first = stack[top * 2];
+            int last = stack[top * 2 + 1];
+            double parent = parents[top];
+
+            int farthest = -1;
+            double max = sqMinTolerance;
+            for (int i = first + 1; i < last; i++) {
+                double sqDist = VectorMath.sqDistPointToSegment(
+                        coords[offset + i * 2], coords[offset + i * 2 + 1],
+                        coords[offset + first * 2], coords[offset + first * 2 + 1],
+                        coords[offset + last * 2], coords[offset + last * 2 + 1]);
+                if (sqDist > max) {
+                    max = sqDist;
+                    farthest = i;
+                }
+            }
+            if (farthest < 0) continue;
+
+            double kept = Math.min(max, parent);
+            significance[farthest] = kept;
+            if (top + 2 > parents.length) {
+                stack = Arrays.copyOf(stack, stack.length * 2);
+                parents = Arrays.copyOf(parents, parents.length * 2);
+            }
+            stack[top * 2] = first;
+            stack[top * 2 + 1] = farthest;
+            parents[top++] = kept;
+            stack[top * 2] = farthest;
+            stack[top * 2 + 1] = last;
+            parents[top++] = kept;
+        }
+        return significance;
+    }
+}
@@ -0,0 +1,510 @@
+package dankmap.model;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * Stores addresses as interned street, postcode and city names along with
+ * house numbers in sorted primitive arrays. Addresses are grouped by street
+ * and postcode, and each group is sorted by house number, such that single
+ * addresses are found in O(log n) and all numbers of a street in a postcode
+ * can be listed as a range query.
+ * <p>
+ * Streets are sorted by name, such that a street is found by binary search and
+ * the streets starting with a prefix are consecutive, which autocompletion uses.
+ * <p>
+ * House numbers are encoded as ints: the numeric part shifted left by
+ * {@link #SUFFIX_BITS} bits, with the index of an optional letter suffix
+ * in the lower bits, ie. 12b becomes (12 << 5) | 2. House numbers which
+ * cannot be encoded, such as "12-14", are stored in a side table and
+ * given negative codes.
+ */
+public class AddressStore implements Serializable {
+    private static final long serialVersionUID = 4470641741043253964L;
+
+    static final int SUFFIX_BITS = 5;
+    private static final String SUFFIXES = "abcdefghijklmnopqrstuvwxyzæøå";
+    private static final int MAX_NUMBER = (1 << (31 - SUFFIX_BITS)) - 1;
+
+    // Interpolation between two numbers spanning more than this is assumed to be erroneous
+    private static final int MAX_INTERPOLATION_SPAN = 2000;
+
+    // Interned names, streets and postcodes sorted
+    private final String[] streets;
+    private final String[] postcodes;
+    private final String[] cities;
+    private final String[] otherNumbers;
+
+    // Groups of street and postcode, groups of street s are [streetGroups[s], streetGroups[s+1])
+    private final int[] streetGroups;
+    private final int[] groupStreet;
+    private final int[] groupPostcode;
+    private final int[] groupCity;
+
+    // Addresses of group g are [groupStart[g], groupStart[g+1]), sorted by number
+    private final int[] groupStart;
+    private final int[] numbers;
+    private final float[] xs, ys;
+    private final BitSet interpolated;
+
+    private AddressStore(Builder builder) {
+        int n = builder.size;
+
+        cities = builder.cities.toArray(new String[0]);
+        otherNumbers = builder.otherNumbers.toArray(new String[0]);
+
+        // Rank streets and postcodes alphabetically
+        streets = builder.streets.toArray(new String[0]);
+        Arrays.sort(streets);
+        int[] streetRank = rank(streets, builder.streetIds);
+        postcodes = builder.postcodes.toArray(new String[0]);
+        Arrays.sort(postcodes);
+        int[] postcodeRank = rank(postcodes, builder.postcodeIds);
+
+        // Find the distinct groups, ordered by street then postcode
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = groupKey(streetRank[builder.street[i]], postcodeRank[builder.postcode[i]]);
+        }
+        long[] groups = Arrays.stream(keys).sorted().distinct().toArray();
+
+        int groupCount = groups.length;
+        groupStreet = new int[groupCount];
+        groupPostcode = new int[groupCount];
+        groupCity = new int[groupCount];
+        streetGroups = new int[streets.length + 1];
+        for (int g = 0; g < groupCount; g++) {
+            groupStreet[g] = (int) (groups[g] >>> 32);
+            groupPostcode[g] = (int) groups[g];
+        }
+        for (int s = 0, g = 0; s <= streets.length; s++) {
+            while (g < groupCount && groupStreet[g] < s) g++;
+            streetGroups[s] = g;
+        }
+
+        // Bucket addresses by group, each sorted by number, interpolated numbers last
+        long[][] members = new long[groupCount][];
+        int[] count = new int[groupCount];
+        int[] groupOf = new int[n];
+        for (int i = 0; i < n; i++) {
+            groupOf[i] = Arrays.binarySearch(groups, keys[i]);
+            count[groupOf[i]]++;
+        }
+        for (int g = 0; g < groupCount; g++) members[g] = new long[count[g]];
+        Arrays.fill(count, 0);
+        for (int i = 0; i < n; i++) {
+            int g = groupOf[i];
+            long order = builder.interpolated.get(i) ? 1L << 31 : 0;
+            members[g][count[g]++] = ((long) builder.number[i] << 32) | order | i;
+        }
+
+        // Copy into the final arrays, dropping duplicate numbers
+        int[] numbers = new int[n];
+        float[] xs = new float[n], ys = new float[n];
+        BitSet interpolated = new BitSet();
+        groupStart = new int[groupCount + 1];
+        int size = 0;
+        for (int g = 0; g < groupCount; g++) {
+            long[] group = members[g];
+            Arrays.sort(group);
+            groupStart[g] = size;
+            groupCity[g] = builder.city[(int) (group[0] & Integer.MAX_VALUE)];
+            for (int j = 0; j < group.length; j++) {
+                int number = (int) (group[j] >> 32);
+                if (j > 0 && number == numbers[size - 1]) continue;
+                int i = (int) (group[j] & Integer.MAX_VALUE);
+                numbers[size] = number;
+                xs[size] = builder.x[i];
+                ys[size] = builder.y[i];
+                if (builder.interpolated.get(i)) interpolated.set(size);
+                size++;
+            }
+        }
+        groupStart[groupCount] = size;
+
+        this.numbers = Arrays.copyOf(numbers, size);
+        this.xs = Arrays.copyOf(xs, size);
+        this.ys = Arrays.copyOf(ys, size);
+        this.interpolated = interpolated;
+    }
+
+    /////////// Lookups //////////
+
+    /**
+     * @param postcode the postcode of the address, or the empty string to match any postcode
+     * @return the index of the specified address or -1 if no such address exists
+     */
+    public int find(String street, String postcode, String houseNumber) {
+        int s = Arrays.binarySearch(streets, street.strip().toLowerCase());
+        if (s < 0) return -1;
+
+        String house = houseNumber.strip().toLowerCase();
+        int code = encodeNumber(house);
+        if (code < 0) code = -1 - indexOf(otherNumbers, house);
+
+        postcode = postcode.strip().toLowerCase();
+        for (int g = streetGroups[s]; g < streetGroups[s + 1]; g++) {
+            if (!postcode.isEmpty() && !postcodes[groupPostcode[g]].equals(postcode)) continue;
+            int found = Arrays.binarySearch(numbers, groupStart[g], groupStart[g + 1], code);
+            if (found >= 0) return found;
+        }
+        return -1;
+    }
+
+    /**
+     * Finds an address written as "street housenumber[, postcode [city]]",
+     * the format produced by {@link #format(int)}
+     *
+     * @return the index of the address or -1 if no such address exists
+     */
+    public int find(String address) {
+        String query = address.strip().toLowerCase();
+        String postcode = "";
+
+        int comma = query.lastIndexOf(',');
+        if (comma >= 0) {
+            postcode = query.substring(comma + 1).strip();
+            query = query.substring(0, comma).strip();
+            int space = postcode.indexOf(' ');
+            if (space >= 0) postcode = postcode.substring(0, space);
+        }
+
+        int split = query.lastIndexOf(' ');
+        if (split < 0) return -1;
+        String street = query.substring(0, split);
+        String house = query.substring(split + 1);
+
+        // Suffix written apart from the number, ie. "12 b"
+        if (house.length() == 1 && !Character.isDigit(house.charAt(0))) {
+            int previous = street.lastIndexOf(' ');
+            if (previous >= 0) {
+                house = street.substring(previous + 1) + house;
+                street = street.substring(0, previous);
+            }
+        }
+
+        return find(street, postcode, house);
+    }
+
+    /**
+     * @param postcode the postcode of the addresses, or the empty string to match any postcode
+     * @return the indices of all addresses of the street with house numbers in [from, to],
+     * ordered by postcode then house number
+     */
+    public int[] range(String street, String postcode, int from, int to) {
+        int s = Arrays.binarySearch(streets, street.strip().toLowerCase());
+        if (s < 0 || from > to) return new int[0];
+
+        int lowest = Math.max(0, from) << SUFFIX_BITS;
+        int highest = (Math.min(to, MAX_NUMBER) << SUFFIX_BITS) | ((1 << SUFFIX_BITS) - 1);
+
+        postcode = postcode.strip().toLowerCase();
+        int[] results = new int[0];
+        for (int g = streetGroups[s]; g < streetGroups[s + 1]; g++) {
+            if (!postcode.isEmpty() && !postcodes[groupPostcode[g]].equals(postcode)) continue;
+            int lo = lowerBound(groupStart[g], groupStart[g + 1], lowest);
+            int hi = lowerBound(lo, groupStart[g + 1], highest + 1);
+            int size = results.length;
+            results = Arrays.copyOf(results, size + hi - lo);
+            for (int i = lo; i < hi; i++) results[size++] = i;
+        }
+        return results;
+    }
+
+    /**
+     * Completes the beginning of an address, written as by {@link #format(int)}, ie. "vest"
+     * is completed by the addresses of the streets starting with "vest", and "vestergade 1"
+     * by the addresses of Vestergade with numbers starting with 1.
+     *
+     * @return the addresses starting with the prefix formatted as by {@link #format(int)},
+     * ordered by street, postcode and house number
+     */
+    public List<String> complete(String prefix) {
+        String query = prefix.strip().toLowerCase();
+        List<String> matches = new ArrayList<>();
+        if (query.isEmpty()) return matches;
+
+        // Streets written in full and followed by the house number, shorter than the query
+        for (int space = query.indexOf(' '); space >= 0; space = query.indexOf(' ', space + 1)) {
+            int s = Arrays.binarySearch(streets, query.substring(0, space));
+            if (s >= 0) complete(s, query, matches);
+        }
+        // Streets starting with the query are consecutive
+        int first = Arrays.binarySearch(streets, query);
+        for (int s = first < 0 ? -first - 1 : first; s < streets.length && streets[s].startsWith(query); s++) {
+            complete(s, query, matches);
+        }
+        return matches;
+    }
+
+    /////////// Getters //////////
+
+    public Address getAddress(int index) {
+        return new Address(xs[index], ys[index], format(index));
+    }
+
+    /**
+     * @return the address at the specified index as "street housenumber[, postcode]"
+     */
+    public String format(int index) {
+        int g = groupOf(index);
+        String postcode = postcodes[groupPostcode[g]];
+        String address = streets[groupStreet[g]] + " " + getHouseNumber(index);
+        if (postcode.isEmpty()) return address;
+        return address + ", " + postcode;
+    }
+
+    public String getStreet(int index) {
+        return streets[groupStreet[groupOf(index)]];
+    }
+
+    public String getPostcode(int index) {
+        return postcodes[groupPostcode[groupOf(index)]];
+    }
+
+    public String getCity(int index) {
+        return cities[groupCity[groupOf(index)]];
+    }
+
+    public String getHouseNumber(int index) {
+        int code = numbers[index];
+        if (code < 0) return otherNumbers[-1 - code];
+        return decodeNumber(code);
+    }
+
+    public float getX(int index) {
+        return xs[index];
+    }
+
+    public float getY(int index) {
+        return ys[index];
+    }
+
+    /**
+     * @return true if the address is interpolated along an addr:interpolation way
+     */
+    public boolean isInterpolated(int index) {
+        return interpolated.get(index);
+    }
+
+    public int size() {
+        return numbers.length;
+    }
+
+    public int streetCount() {
+        return streets.length;
+    }
+
+
+    /////////// House numbers //////////
+
+    /**
+     * @return the code of a house number such as "12" or "12b", or -1 if it cannot be encoded
+     */
+    static int encodeNumber(String houseNumber) {
+        int length = houseNumber.length();
+        int i = 0;
+        long number = 0;
+        while (i < length && Character.isDigit(houseNumber.charAt(i))) {
+            number = number * 10 + Character.digit(houseNumber.charAt(i), 10);
+            if (number > MAX_NUMBER) return -1;
+            i++;
+        }
+        if (i == 0) return -1;
+
+        if (i < length && houseNumber.charAt(i) == ' ') i++;
+        if (i == length) return (int) number << SUFFIX_BITS;
+        if (i != length - 1) return -1;
+
+        int suffix = SUFFIXES.indexOf(Character.toLowerCase(houseNumber.charAt(i)));
+        if (suffix < 0) return -1;
+        return ((int) number << SUFFIX_BITS) | (suffix + 1);
+    }
+
+    static String decodeNumber(int code) {
+        int suffix = code & ((1 << SUFFIX_BITS) - 1);
+        String number = Integer.toString(code >>> SUFFIX_BITS);
+        if (suffix == 0) return number;
+        return number + SUFFIXES.charAt(suffix - 1);
+    }
+
+
+    /////////// Utility //////////
+
+    // Adds the addresses of the street starting with the query
+    private void complete(int street, String query, List<String> matches) {
+        for (int i = groupStart[streetGroups[street]]; i < groupStart[streetGroups[street + 1]]; i++) {
+            String address = format(i);
+            if (address.startsWith(query)) matches.add(address);
+        }
+    }
+
+    private int groupOf(int index) {
+        // Groups are never empty, so group starts are distinct
+        int g = Arrays.binarySearch(groupStart, index);
+        return g < 0 ? -g - 2 : g;
+    }
+
+    // First index in [lo, hi) holding a number >= code
+    private int lowerBound(int lo, int hi, int code) {
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (numbers[mid] < code) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static int indexOf(String[] array, String value) {
+        for (int i = 0; i < array.length; i++) {
+            if (array[i].equals(value)) return i;
+        }
+        return array.length;
+    }
+
+    // The rank of each id of the builder, by the position of its name in the sorted names
+    private static int[] rank(String[] sorted, Map<String, Integer> ids) {
+        int[] rank = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) rank[ids.get(sorted[i])] = i;
+        return rank;
+    }
+
+    private static long groupKey(int street, int postcode) {
+        return ((long) street << 32) | postcode;
+    }
+
+    public static class Builder {
+        private final Map<String, Integer> streetIds = new HashMap<>();
+        private final Map<String, Integer> postcodeIds = new HashMap<>();
+        private final Map<String, Integer> cityIds = new HashMap<>();
+        private final Map<String, Integer> otherNumberIds = new HashMap<>();
+        private final List<String> streets = new ArrayList<>();
+        private final List<String> postcodes = new ArrayList<>();
+        private final List<String> cities = new ArrayList<>();
+        private final List<String> otherNumbers = new ArrayList<>();
+
+        private int[] street = new int[16], postcode = new int[16], city = new int[16], number = new int[16];
+        private float[] x = new float[16], y = new float[16];
+        private final BitSet interpolated = new BitSet();
+        private int size;
+
+        /**
+         * @return the index of the added address, to be used for interpolation,
+         * or -1 if the address has no street or house number
+         */
+        public int add(String street, String houseNumber, String postcode, String city, float x, float y) {
+            street = street.strip().toLowerCase();
+            String house = houseNumber.strip().toLowerCase();
+            if (street.isEmpty() || house.isEmpty()) return -1;
+
+            int code = encodeNumber(house);
+            if (code < 0) code = -1 - intern(house, otherNumberIds, otherNumbers);
+
+            return add(
+                    intern(street, streetIds, streets),
+                    code,
+                    intern(postcode.strip().toLowerCase(), postcodeIds, postcodes),
+                    intern(city.strip().toLowerCase(), cityIds, cities),
+                    x, y, false
+            );
+        }
+
+        /**
+         * Adds the addresses between two added addresses of the same street,
+         * spaced evenly along the path of an addr:interpolation way
+         *
+         * @param path          the part of the way from the first to the second address
+         * @param interpolation the value of the addr:interpolation tag
+         */
+        public void interpolate(int from, int to, float[] path, String interpolation) {
+            if (from < 0 || to < 0 || street[from] != street[to]) return;
+            if (number[from] < 0 || number[to] < 0) return;
+
+            int step;
+            switch (interpolation) {
+                case "odd":
+                case "even":
+                    step = 2;
+                    break;
+                case "all":
+                    step = 1;
+                    break;
+                default:
+                    try {
+                        step = Integer.parseInt(interpolation);
+                    } catch (NumberFormatException e) {
+                        return;
+                    }
+            }
+
+            int a = number[from] >>> SUFFIX_BITS;
+            int b = number[to] >>> SUFFIX_BITS;
+            if (step <= 0 || a == b || Math.abs(b - a) > MAX_INTERPOLATION_SPAN) return;
+
+            // Cumulative length along the path
+            int points = path.length / 2;
+            double[] length = new double[points];
+            for (int i = 1; i < points; i++) {
+                double dx = path[i * 2] - path[i * 2 - 2];
+                double dy = path[i * 2 + 1] - path[i * 2 - 1];
+                length[i] = length[i - 1] + Math.sqrt(dx * dx + dy * dy);
+            }
+            double total = length[points - 1];
+
+            int direction = a < b ? step : -step;
+            int segment = 1;
+            for (int n = a + direction; direction > 0 ? n < b : n > b; n += direction) {
+                double target = total * (n - a) / (double) (b - a);
+                while (segment < points - 1 && length[segment] < target) segment++;
+
+                float px, py;
+                if (points == 1 || total == 0) {
+                    px = path[0];
+                    py = path[1];
+                } else {
+                    double piece = length[segment] - length[segment - 1];
+                    double t = piece == 0 ? 0 : (target - length[segment - 1]) / piece;
+                    px = (float) (path[segment * 2 - 2] + t * (path[segment * 2] - path[segment * 2 - 2]));
+                    py = (float) (path[segment * 2 - 1] + t * (path[segment * 2 + 1] - path[segment * 2 - 1]));
+                }
+                add(street[from], n << SUFFIX_BITS, postcode[from], city[from], px, py, true);
+            }
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public AddressStore build() {
+            return new AddressStore(this);
+        }
+
+        private int add(int street, int number, int postcode, int city, float x, float y, boolean isInterpolated) {
+            if (size == this.street.length) {
+                int capacity = size * 2;
+                this.street = Arrays.copyOf(this.street, capacity);
+                this.number = Arrays.copyOf(this.number, capacity);
+                this.postcode = Arrays.copyOf(this.postcode, capacity);
+                this.city = Arrays.copyOf(this.city, capacity);
+                this.x = Arrays.copyOf(this.x, capacity);
+                this.y = Arrays.copyOf(this.y, capacity);
+            }
+            this.street[size] = street;
+            this.number[size] = number;
+            this.postcode[size] = postcode;
+            this.city[size] = city;
+            this.x[size] = x;
+            this.y[size] = y;
+            if (isInterpolated) interpolated.set(size);
+            return size++;
+        }
+
+        private static int intern(String value, Map<String, Integer> ids, List<String> values) {
+            Integer id = ids.get(value);
+            if (id != null) return id;
+            ids.put(value, values.size());
+            values.add(value);
+            return values.size() - 1;
+        }
+    }
+}
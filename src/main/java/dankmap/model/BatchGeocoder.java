@@ -0,0 +1,163 @@
+package dankmap.model;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Resolves many address strings against the address index of a
+ * <code>DataModel</code> at once. Queries are normalized, then resolved in
+ * parallel, and every result reports how well the query matched.
+ * Reading the address index is side effect free, so no locking is needed.
+ */
+public class BatchGeocoder {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern COMMA = Pattern.compile("\\s*,\\s*");
+
+    private final DataModel model;
+
+    public enum MatchQuality {
+        // The normalized query is a known address
+        EXACT,
+        // The query matches a known address written differently, ie. with a city
+        STRUCTURED,
+        // The query matches an address interpolated along a street
+        INTERPOLATED,
+        // The query is the prefix of a known address
+        PREFIX,
+        NONE
+    }
+
+    public static class Result {
+        private final String query;
+        private final Address address;
+        private final MatchQuality quality;
+
+        Result(String query, Address address, MatchQuality quality) {
+            this.query = query;
+            this.address = address;
+            this.quality = quality;
+        }
+
+        public String getQuery() {
+            return query;
+        }
+
+        /**
+         * @return the matched address, or null if the query did not match
+         */
+        public Address getAddress() {
+            return address;
+        }
+
+        public MatchQuality getQuality() {
+            return quality;
+        }
+
+        public boolean isMatch() {
+            return quality != MatchQuality.NONE;
+        }
+    }
+
+    public static class Batch {
+        private final List<Result> results;
+        private final long nanos;
+
+        Batch(List<Result> results, long nanos) {
+            this.results = results;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return the results in the order of the queries
+         */
+        public List<Result> getResults() {
+            return results;
+        }
+
+        public Map<MatchQuality, Long> getCounts() {
+            Map<MatchQuality, Long> counts = new EnumMap<>(MatchQuality.class);
+            for (MatchQuality quality : MatchQuality.values()) counts.put(quality, 0L);
+            for (Result result : results) counts.merge(result.getQuality(), 1L, Long::sum);
+            return counts;
+        }
+
+        public double getSeconds() {
+            return nanos / 1e9;
+        }
+
+        /**
+         * @return the number of addresses resolved per second
+         */
+        public double getThroughput() {
+            if (nanos == 0) return 0;
+            return results.size() / getSeconds();
+        }
+    }
+
+    public BatchGeocoder(DataModel model) {
+        this.model = model;
+    }
+
+    /**
+     * Resolves all queries in parallel, blank queries are skipped
+     */
+    public Batch geocode(Stream<String> queries) {
+        List<String> input = queries.filter(q -> !q.isBlank()).collect(Collectors.toList());
+        long startTime = System.nanoTime();
+        List<Result> results = input.parallelStream().map(this::geocode).collect(Collectors.toList());
+        return new Batch(results, System.nanoTime() - startTime);
+    }
+
+    public Result geocode(String query) {
+        String normalized = normalize(query);
+
+        AddressStore store = model.getAddressStore();
+        int index = store.find(normalized);
+        if (index >= 0) {
+            MatchQuality quality = store.isInterpolated(index) ? MatchQuality.INTERPOLATED
+                    : store.format(index).equals(normalized) ? MatchQuality.EXACT : MatchQuality.STRUCTURED;
+            return new Result(query, store.getAddress(index), quality);
+        }
+
+        // A longer address starting with the query may be another house, ie. "vej 11" for "vej 1"
+        String house = houseNumber(normalized);
+        for (String candidate : model.getAddressMatches(normalized)) {
+            if (!houseNumber(candidate).equals(house)) continue;
+            Address match = model.getAddress(candidate);
+            if (match != null) return new Result(query, match, MatchQuality.PREFIX);
+        }
+
+        return new Result(query, null, MatchQuality.NONE);
+    }
+
+    /**
+     * @return the house number of a normalized address "street housenumber[, postcode [city]]",
+     * with a suffix written apart joined to the number, ie. "12b" for "street 12 b"
+     */
+    static String houseNumber(String address) {
+        int comma = address.indexOf(',');
+        String street = comma < 0 ? address : address.substring(0, comma).strip();
+        int split = street.lastIndexOf(' ');
+        String house = street.substring(split + 1);
+        if (house.length() == 1 && !Character.isDigit(house.charAt(0)) && split > 0) {
+            int previous = street.lastIndexOf(' ', split - 1);
+            house = street.substring(previous + 1, split) + house;
+        }
+        return house;
+    }
+
+    /**
+     * Lowercases the query, collapses whitespace and writes commas
+     * as ", " to match the addresses formatted by the address store
+     */
+    public static String normalize(String query) {
+        String normalized = WHITESPACE.matcher(query.strip().toLowerCase()).replaceAll(" ");
+        normalized = COMMA.matcher(normalized).replaceAll(", ");
+        if (normalized.endsWith(".")) normalized = normalized.substring(0, normalized.length() - 1);
+        return normalized.strip();
+    }
+}
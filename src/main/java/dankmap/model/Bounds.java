@@ -21,17 +21,24 @@ public class Bounds implements Serializable {
     }
 
     public Bounds(float[] path) {
-        if (path.length < 1) throw new IllegalArgumentException();
-        float minX = path[0];
-        float minY = path[1];
-        float maxX = path[0];
-        float maxY = path[1];
-
-        for (int j = 2; j < path.length; j += 2) {
-            minX = min(path[j], minX);
-            minY = min(path[j + 1], minY);
-            maxX = max(path[j], maxX);
-            maxY = max(path[j + 1], maxY);
+        this(path, 0, path.length);
+    }
+
+    /**
+     * The bounds of the path at [offset, offset + length) of the coordinates
+     */
+    public Bounds(float[] coords, int offset, int length) {
+        if (length < 1) throw new IllegalArgumentException();
+        float minX = coords[offset];
+        float minY = coords[offset + 1];
+        float maxX = minX;
+        float maxY = minY;
+
+        for (int j = offset + 2; j < offset + length; j += 2) {
+            minX = min(coords[j], minX);
+            minY = min(coords[j + 1], minY);
+            maxX = max(coords[j], maxX);
+            maxY = max(coords[j + 1], maxY);
         }
 
         this.minX = minX;
@@ -2,42 +2,46 @@ package dankmap.model;
 
 import dankmap.drawing.ZoomLevel;
 import dankmap.model.elements.IslandElement;
-import dankmap.model.elements.MapElement;
 import dankmap.navigation.Graph;
 import dankmap.navigation.Road;
 import dankmap.navigation.Route;
 import dankmap.navigation.Vehicle;
-import dankmap.util.VectorMath;
-import dankmap.util.cartography.MapConstants;
+import dankmap.util.collections.DrawOrderBuckets;
 import dankmap.util.collections.tree.LayeredKDTree;
-import dankmap.util.collections.trie.RadixTree;
-import javafx.geometry.Point2D;
+import dankmap.util.collections.tree.PointKDTree;
+import dankmap.util.collections.tree.SegmentKDTree;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
 
 public class DataModel implements Serializable {
-    private static final long serialVersionUID = -7162776117678391033L;
+    private static final long serialVersionUID = 6055723633402730757L;
 
     private final Bounds bounds;
     private final Graph graph;
     private final LayeredKDTree mapElements;
     private final LayeredKDTree roadElements;
+    private final SegmentKDTree<Road> roadSegments;
     private final Collection<IslandElement> islands;
     private final List<PointOfInterest> pointOfInterests;
-    private final RadixTree<Location> addressRegistry;
+    private final AddressStore addresses;
+    private final PointKDTree<Void> addressPoints;
+    private final PointKDTree<Place> places;
 
     private transient List<Runnable> onDataUpdateListeners;
 
 
-    public DataModel(Bounds bounds, Graph graph, LayeredKDTree mapElements, LayeredKDTree roadElements, Collection<IslandElement> islands, RadixTree<Location> addressRegistry) {
+    public DataModel(Bounds bounds, Graph graph, LayeredKDTree mapElements, LayeredKDTree roadElements, SegmentKDTree<Road> roadSegments, Collection<IslandElement> islands, AddressStore addresses, PointKDTree<Void> addressPoints, PointKDTree<Place> places) {
         this.bounds = bounds;
         this.graph = graph;
         this.mapElements = mapElements;
         this.roadElements = roadElements;
+        this.roadSegments = roadSegments;
         this.islands = islands;
-        this.addressRegistry = addressRegistry;
+        this.addresses = addresses;
+        this.addressPoints = addressPoints;
+        this.places = places;
         this.pointOfInterests = new ArrayList<>();
         onDataUpdateListeners = new ArrayList<>();
     }
@@ -88,23 +92,66 @@ public class DataModel implements Serializable {
         return islands;
     }
 
-    public Collection<MapElement> getRoads(Bounds outerBounds) {
-        double c = ZoomLevel.getCurrent().getPanBuffer();
-        Bounds preventLoss = new Bounds(outerBounds.getMinX() - c, outerBounds.getMinY() - c, outerBounds.getMaxX() + c, outerBounds.getMaxY() + c);
-        return roadElements.rangeSearch(ZoomLevel.getCurrent(), preventLoss);
+    public DrawOrderBuckets getRoads(Bounds outerBounds) {
+        return getRoads(ZoomLevel.getCurrent(), outerBounds);
     }
 
+    public DrawOrderBuckets getRoads(ZoomLevel zoomLevel, Bounds outerBounds) {
+        return roadElements.rangeSearch(zoomLevel, preventLoss(zoomLevel, outerBounds));
+    }
+
+    /**
+     * @return the roads of the bounds which are not among the roads of the excluded bounds,
+     * such that a moving view only queries the roads entering it
+     */
+    public DrawOrderBuckets getRoads(ZoomLevel zoomLevel, Bounds outerBounds, Bounds excludedBounds) {
+        return roadElements.deltaSearch(zoomLevel, preventLoss(zoomLevel, outerBounds), preventLoss(zoomLevel, excludedBounds));
+    }
+
+
+    public DrawOrderBuckets getMapElements(Bounds outerBounds) {
+        return getMapElements(ZoomLevel.getCurrent(), outerBounds);
+    }
+
+    public DrawOrderBuckets getMapElements(ZoomLevel zoomLevel, Bounds outerBounds) {
+        return mapElements.rangeSearch(zoomLevel, outerBounds);
+    }
 
-    public Collection<MapElement> getMapElements(Bounds outerBounds) {
-        return mapElements.rangeSearch(ZoomLevel.getCurrent(), outerBounds);
+    /**
+     * @return the map elements of the bounds which are not among the map elements of the excluded bounds,
+     * such that a moving view only queries the elements entering it
+     */
+    public DrawOrderBuckets getMapElements(ZoomLevel zoomLevel, Bounds outerBounds, Bounds excludedBounds) {
+        return mapElements.deltaSearch(zoomLevel, outerBounds, excludedBounds);
     }
 
-    public Collection<String> getAddressMatches(String prefix) {
-        return addressRegistry.searchPrefix(prefix);
+    /**
+     * @return the places within the bounds which are labeled at the ZoomLevel
+     */
+    public List<Place> getPlaces(ZoomLevel zoomLevel, Bounds bounds) {
+        List<Place> result = new ArrayList<>();
+        places.range(bounds.getMinX(), bounds.getMinY(), bounds.getMaxX(), bounds.getMaxY(), index -> {
+            Place place = places.get(index);
+            if (place.getZoomLevel() <= zoomLevel.getId()) result.add(place);
+        });
+        return result;
+    }
+
+    // Roads are found by their centers, the buffer includes roads reaching into the bounds
+    private static Bounds preventLoss(ZoomLevel zoomLevel, Bounds outerBounds) {
+        double c = zoomLevel.getPanBuffer();
+        return new Bounds(outerBounds.getMinX() - c, outerBounds.getMinY() - c, outerBounds.getMaxX() + c, outerBounds.getMaxY() + c);
+    }
+
+    /**
+     * @return the addresses starting with the prefix, written "street housenumber[, postcode]"
+     */
+    public List<String> getAddressMatches(String prefix) {
+        return addresses.complete(prefix);
     }
 
     public Address getAddressMatch(String prefix) {
-        var matches = ((List<String>) addressRegistry.searchPrefix(prefix.strip().toLowerCase()));
+        List<String> matches = addresses.complete(prefix);
         if (matches.isEmpty()) return null;
         return getAddress(matches.get(0));
     }
@@ -114,50 +161,70 @@ public class DataModel implements Serializable {
     }
 
 
+    /**
+     * @return the named road with the segment nearest to the specified point,
+     * or null if there are no named roads
+     */
     public Road getNearestRoad(XYSupplier point) {
-        ArrayList<MapElement> possible = new ArrayList<>();
-        roadElements.nearest(possible, point);
-        possible.removeIf(e -> ((Road) e).getStreetName().isEmpty());
-        Road nearest = (Road) possible.get(0);
-        double bestDist = Double.POSITIVE_INFINITY;
-        for (MapElement element : possible) {
-            Road road = (Road) element;
-            float[] path = road.getPath();
-                for (int i = 0; i < path.length - 2; i += 2) {
-                        Point2D centerPoint = new Point2D((path[i] + path[i + 2]) / 2, (path[i + 1] + path[i + 3]) / 2);
-                        if (VectorMath.sqDist(centerPoint.getX(), centerPoint.getY(), point.getX(), point.getY()) < bestDist) {
-                            bestDist = VectorMath.sqDist(centerPoint.getX(), centerPoint.getY(), point.getX(), point.getY());
-                            nearest = road;
-                        }
-
-                    if (VectorMath.sqDist(path[i], path[i + 1], point.getX(), point.getY()) < bestDist) {
-                        bestDist = VectorMath.sqDist(path[i], path[i + 1], point.getX(), point.getY());
-                        nearest = road;
-                    }
-
-                }
-
-
-        }
-        return nearest;
+        int nearest = roadSegments.nearest(point.getX(), point.getY());
+        if (nearest < 0) return null;
+        return roadSegments.get(nearest);
     }
 
+    /**
+     * @return the address, which may be interpolated along a street, or null if no such address exists
+     */
     public Address getAddress(String address) {
-        Location loc = addressRegistry.get(address.strip().toLowerCase());
-        if (loc == null) return null;
-        return new Address(loc, address);
+        int index = addresses.find(address);
+        if (index < 0) return null;
+        return addresses.getAddress(index);
+    }
+
+    /**
+     * @param postcode the postcode of the addresses, or the empty string to match any postcode
+     * @return all addresses of the street with house numbers in [from, to]
+     */
+    public List<Address> getAddresses(String street, String postcode, int from, int to) {
+        List<Address> result = new ArrayList<>();
+        for (int index : addresses.range(street, postcode, from, to)) {
+            result.add(addresses.getAddress(index));
+        }
+        return result;
     }
 
     public Address getNearestAddress(Location location) {
-        PriorityQueue<String> pq = new PriorityQueue<>(Comparator.comparingDouble(address ->
-                MapConstants.sphericalDistance(addressRegistry.get(address), location)
-        ));
+        int nearest = addressPoints.nearest(location.getX(), location.getY());
+        if (nearest < 0) return null;
+        return addresses.getAddress(addressPoints.getIndex(nearest));
+    }
+
+
+    Graph getGraph() {
+        return graph;
+    }
+
+    LayeredKDTree getMapElementTree() {
+        return mapElements;
+    }
 
-        var possible = addressRegistry.searchPrefix((getNearestRoad(location)).getStreetName().toLowerCase());
-        pq.addAll(possible);
+    LayeredKDTree getRoadElementTree() {
+        return roadElements;
+    }
+
+    SegmentKDTree<Road> getRoadSegments() {
+        return roadSegments;
+    }
+
+    PointKDTree<Void> getAddressPoints() {
+        return addressPoints;
+    }
+
+    PointKDTree<Place> getPlaceTree() {
+        return places;
+    }
 
-        if (pq.isEmpty()) return null;
-        return getAddress(pq.remove());
+    AddressStore getAddressStore() {
+        return addresses;
     }
 
 
@@ -0,0 +1,142 @@
+package dankmap.model;
+
+import dankmap.Launcher;
+import dankmap.drawing.DrawType;
+import dankmap.model.elements.GeometryStore;
+import dankmap.model.elements.MapElement;
+import dankmap.navigation.Graph;
+import dankmap.util.metrics.HeapFootprint;
+import dankmap.util.metrics.HeapFootprint.Usage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * The heap retained by each structure of a <code>DataModel</code>, split by the kind of element
+ * it holds, ie. the map elements by their class and the graph by its vertices and edges, such
+ * that the structures to compact and the heap needed for larger maps can be found.
+ * <p>
+ * Structures are measured in the order listed, an element shared by several, eg. a road of
+ * the road elements and the graph, is attributed to the first. The draw types are shared by
+ * all maps but listed as they are loaded with one.
+ * <p>
+ * Usage: MemoryReport &lt;map.bin|map.osm|map.zip&gt; [report.csv]
+ */
+public class MemoryReport {
+    private final Map<String, Usage> parts = new LinkedHashMap<>();
+    private final HeapFootprint footprint;
+
+    public MemoryReport(DataModel model) {
+        this(model, new HeapFootprint());
+    }
+
+    public MemoryReport(DataModel model, HeapFootprint footprint) {
+        this.footprint = footprint;
+        measure("mapElements", model.getMapElementTree(), MemoryReport::byElementClass);
+        measure("roadElements", model.getRoadElementTree(), MemoryReport::byElementClass);
+        measure("roadSegments", model.getRoadSegments(), MemoryReport::byElementClass);
+        measure("graph", model.getGraph(), o -> o instanceof Location ? "vertices" : isEdge(o) ? "edges" : null);
+        measure("islands", model.getIslands(), MemoryReport::byElementClass);
+        measure("addressStore", model.getAddressStore(), o -> null);
+        measure("addressPoints", model.getAddressPoints(), o -> null);
+        measure("places", model.getPlaceTree(), o -> o instanceof Place ? "Place" : null);
+        measure("drawTypes", DrawType.getDrawTypeMap(), o -> o instanceof DrawType ? "DrawType" : null);
+        // Whatever the model holds besides the structures above
+        measure("other", model, o -> null);
+    }
+
+    /**
+     * @return the usage of each part of each structure by name, ie. <code>graph/edges</code>,
+     * the structure itself, excluding its elements, by the name of the structure
+     */
+    public Map<String, Usage> getParts() {
+        return parts;
+    }
+
+    public Usage getTotal() {
+        return HeapFootprint.total(parts.values());
+    }
+
+    public void write(Writer out) throws IOException {
+        out.write(String.format(Locale.ROOT, "%-32s %12s %14s %12s %14s %7s%n",
+                "structure", "objects", "bytes", "elements", "bytes/element", "share"));
+        long total = getTotal().getBytes();
+        for (Map.Entry<String, Usage> part : parts.entrySet()) {
+            write(out, part.getKey(), part.getValue(), total);
+        }
+        write(out, "total", getTotal(), total);
+    }
+
+    public void writeCsv(Writer out) throws IOException {
+        out.write("structure,objects,bytes,elements,bytes_per_element\n");
+        for (Map.Entry<String, Usage> part : parts.entrySet()) {
+            Usage usage = part.getValue();
+            out.write(String.format(Locale.ROOT, "%s,%d,%d,%d,%s%n", part.getKey(), usage.getObjects(),
+                    usage.getBytes(), usage.getElements(), usage.getElements() == 0 ? "" :
+                            String.format(Locale.ROOT, "%.1f", usage.getBytesPerElement())));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: MemoryReport <map.bin|map.osm|map.zip> [report.csv]");
+            System.exit(1);
+        }
+
+        // Keep load messages out of the report written to stdout
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+        DataModel model = Launcher.loadFile(new File(args[0]));
+        System.setOut(stdout);
+        if (model == null) throw new IOException("unsupported map file: " + args[0]);
+
+        // The heap in use to hold the estimate against, before the report allocates its own
+        System.gc();
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+
+        MemoryReport report = new MemoryReport(model);
+        Writer out = new OutputStreamWriter(stdout, StandardCharsets.UTF_8);
+        report.write(out);
+        out.write(String.format(Locale.ROOT, "heap in use after loading: %.1f MB of %.1f MB max%n",
+                used / 1e6, runtime.maxMemory() / 1e6));
+        out.flush();
+
+        if (args.length > 1) {
+            try (Writer csv = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args[1]), StandardCharsets.UTF_8))) {
+                report.writeCsv(csv);
+            }
+        }
+    }
+
+
+    /////////// Utility //////////
+
+    private void measure(String structure, Object root, Function<Object, String> classifier) {
+        for (Map.Entry<String, Usage> part : footprint.measure(root, classifier).entrySet()) {
+            String name = part.getKey().isEmpty() ? structure : structure + "/" + part.getKey();
+            parts.put(name, part.getValue());
+        }
+    }
+
+    // The coordinates shared by the elements are a part of their own
+    private static String byElementClass(Object o) {
+        return o instanceof MapElement || o instanceof GeometryStore ? o.getClass().getSimpleName() : null;
+    }
+
+    // The edges of the graph are private to it
+    private static boolean isEdge(Object o) {
+        return o.getClass().getSimpleName().equals("Edge") && o.getClass().getEnclosingClass() == Graph.class;
+    }
+
+    private static void write(Writer out, String name, Usage usage, long total) throws IOException {
+        out.write(String.format(Locale.ROOT, "%-32s %12d %14d %12s %14s %6.1f%%%n", name, usage.getObjects(),
+                usage.getBytes(), usage.getElements() == 0 ? "" : Long.toString(usage.getElements()),
+                usage.getElements() == 0 ? "" : String.format(Locale.ROOT, "%.1f", usage.getBytesPerElement()),
+                total == 0 ? 0 : 100.0 * usage.getBytes() / total));
+    }
+}
@@ -0,0 +1,78 @@
+package dankmap.model;
+
+import java.io.Serializable;
+
+/**
+ * A named place of the map, ie. a city, town or suburb, labeled
+ * from the ZoomLevel given by the kind of place.
+ */
+public class Place implements Serializable {
+    private static final long serialVersionUID = 3320795142877154160L;
+
+    private final String name;
+    private final float x, y;
+    private final byte zoomLevel;
+
+    public Place(String name, float x, float y, int zoomLevel) {
+        this.name = name;
+        this.x = x;
+        this.y = y;
+        this.zoomLevel = (byte) zoomLevel;
+    }
+
+    /**
+     * @param place the value of an OSM place tag
+     * @return the id of the first ZoomLevel labeling the kind of place, or -1 if it is never labeled
+     */
+    public static int zoomLevelOf(String place) {
+        switch (place) {
+            case "city":
+                return 0;
+            case "town":
+                return 4;
+            case "island":
+                return 5;
+            case "village":
+            case "suburb":
+                return 7;
+            case "quarter":
+            case "hamlet":
+                return 9;
+            case "neighbourhood":
+            case "islet":
+            case "square":
+                return 10;
+            default:
+                return -1;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public float getX() {
+        return x;
+    }
+
+    public float getY() {
+        return y;
+    }
+
+    /**
+     * @return the id of the first ZoomLevel labeling the place
+     */
+    public int getZoomLevel() {
+        return zoomLevel;
+    }
+
+    @Override
+    public String toString() {
+        return "Place{" +
+                "name='" + name + '\'' +
+                ", x=" + x +
+                ", y=" + y +
+                ", zoomLevel=" + zoomLevel +
+                '}';
+    }
+}
@@ -0,0 +1,144 @@
+package dankmap.model.elements;
+
+import dankmap.drawing.LevelOfDetail;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * The coordinates of the paths of many elements in a single array, such that an element is an
+ * offset and length into the store rather than an array of its own. A path is the points
+ * [ x0, y0, x1, y1, ... ] at [offset, offset + length) of the coordinates.
+ * <p>
+ * Paths are appended while the map is parsed, and the store is trimmed when serialized, such
+ * that the coordinates of a map are written as one array. Appending is thread safe, and the
+ * coordinates of a path never change once appended.
+ * <p>
+ * The level of detail of the paths is kept alongside, one byte per point, the band of
+ * {@link LevelOfDetail} of the point at coordinate j is bands[j / 2].
+ */
+public class GeometryStore implements Serializable {
+    private static final long serialVersionUID = -2871606711387468035L;
+
+    private volatile float[] coords;
+    private volatile byte[] bands;
+    private int size;
+
+    public GeometryStore() {
+        this(1 << 16);
+    }
+
+    public GeometryStore(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity must be non-negative, was " + capacity);
+        coords = new float[capacity];
+        bands = new byte[capacity / 2];
+    }
+
+    /**
+     * @return a store of the path alone, for elements created on their own
+     */
+    public static GeometryStore of(float[] path) {
+        GeometryStore store = new GeometryStore(0);
+        store.coords = path;
+        store.bands = new byte[path.length / 2];
+        store.simplify(0, path.length);
+        store.size = path.length;
+        return store;
+    }
+
+    /**
+     * @return the offset of the path in the store
+     */
+    public synchronized int add(float[] path) {
+        int offset = size;
+        ensureCapacity(size + path.length);
+        System.arraycopy(path, 0, coords, offset, path.length);
+        simplify(offset, path.length);
+        size += path.length;
+        return offset;
+    }
+
+    /**
+     * Appends the paths one after the other
+     *
+     * @return the offset of the first path in the store
+     */
+    public synchronized int add(float[][] paths) {
+        int offset = size;
+        for (float[] path : paths) add(path);
+        return offset;
+    }
+
+    /**
+     * @return the coordinates of the store, which may be longer than the store, and
+     * are replaced as the store grows, ie. must not be kept while adding paths
+     */
+    public float[] getCoords() {
+        return coords;
+    }
+
+    /**
+     * @return the band of each point of the store, which may be longer than the store,
+     * and is replaced as the store grows, ie. must not be kept while adding paths
+     */
+    public byte[] getBands() {
+        return bands;
+    }
+
+    /**
+     * @return a copy of the path at [offset, offset + length)
+     */
+    public float[] copy(int offset, int length) {
+        return Arrays.copyOfRange(coords, offset, offset + length);
+    }
+
+    /**
+     * @return the number of coordinates in the store
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Frees the capacity not used by the paths added so far
+     */
+    public synchronized void trim() {
+        if (coords.length != size) coords = Arrays.copyOf(coords, size);
+        if (bands.length != size / 2) bands = Arrays.copyOf(bands, size / 2);
+    }
+
+    /**
+     * @return the hash code of the path at [offset, offset + length) of the coordinates,
+     * as {@link Arrays#hashCode(float[])} of the path
+     */
+    static int hashCode(float[] coords, int offset, int length) {
+        int result = 1;
+        for (int i = offset; i < offset + length; i++) {
+            result = 31 * result + Float.floatToIntBits(coords[i]);
+        }
+        return result;
+    }
+
+
+    /////////// Utility //////////
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= coords.length) return;
+        coords = Arrays.copyOf(coords, Math.max(capacity, coords.length + (coords.length >> 1)));
+        bands = Arrays.copyOf(bands, coords.length / 2);
+    }
+
+    // Records the bands of the path, the points of a path not simplified are kept by every band
+    private void simplify(int offset, int length) {
+        byte[] simplified = LevelOfDetail.simplify(coords, offset, length);
+        if (simplified != null) System.arraycopy(simplified, 0, bands, offset / 2, simplified.length);
+        else Arrays.fill(bands, offset / 2, (offset + length) / 2, (byte) 0);
+    }
+
+    private synchronized void writeObject(ObjectOutputStream out) throws IOException {
+        trim();
+        out.defaultWriteObject();
+    }
+}
@@ -1,6 +1,7 @@
 package dankmap.model.elements;
 
 import dankmap.drawing.DrawType;
+import dankmap.drawing.LevelOfDetail;
 import dankmap.drawing.ZoomLevel;
 import dankmap.model.Bounded;
 import dankmap.model.Bounds;
@@ -9,30 +10,41 @@ import javafx.scene.canvas.GraphicsContext;
 import java.io.Serializable;
 
 public class IslandElement implements Serializable, MapElement {
-    private static final long serialVersionUID = -8622778479750783406L;
+    private static final long serialVersionUID = -7917849903404418263L;
 
     public static final byte drawType = (byte) 1;
     private float[] path;
+    private byte[] detail;
     private Bounds bounds;
 
     public IslandElement(float[] path) {
         this.path = path;
+        this.detail = LevelOfDetail.simplify(path);
         bounds = new Bounds(path);
     }
 
+    /**
+     * IslandElements consists of a very detailed coastline,
+     * which is drawn with the simplified coastline of the ZoomLevel
+     */
     @Override
-    public void draw(GraphicsContext gfx) {
-        var zoomLevel = ZoomLevel.getCurrent();
+    public void draw(GraphicsContext gfx, ZoomLevel zoomLevel) {
         if (zoomLevel.getMinArea() >= getArea()) return;
         gfx.beginPath();
-        gfx.moveTo(path[0], path[1]);
-        int inc = getPathIncrement();
-        for (int j = inc; j < path.length; j += inc) {
-            gfx.lineTo(path[j], path[j + 1]);
-        }
+        trace(gfx, zoomLevel);
         gfx.fill();
     }
 
+    @Override
+    public int trace(GraphicsContext gfx, ZoomLevel zoomLevel) {
+        return LevelOfDetail.trace(gfx, path, detail, zoomLevel);
+    }
+
+    @Override
+    public boolean isFilled() {
+        return true;
+    }
+
     public float getCenterX(){
         return getBounds().getCenterX();
     }
@@ -40,33 +52,6 @@ public class IslandElement implements Serializable, MapElement {
         return getBounds().getCenterY();
     }
 
-    /**
-     * IslandElements consists of a very detailed coastline.
-     * In order to draw varying amount of detail, we determine,
-     * from the current ZoomLevel, how many points we skip in the coastlines.
-     */
-    private int getPathIncrement() {
-        switch (ZoomLevel.getCurrent().getId()) {
-            case 0:
-            case 1:
-                return 128;
-            case 2:
-            case 3:
-                return 64;
-            case 4:
-                return 32;
-            case 5:
-                return 16;
-            case 6:
-                return 8;
-            case 7:
-                return 4;
-            case 8:
-            default:
-                return 2;
-        }
-    }
-
     public float getArea() {
         return bounds.getArea();
     }
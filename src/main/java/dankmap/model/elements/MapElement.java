@@ -1,6 +1,7 @@
 package dankmap.model.elements;
 
 import dankmap.drawing.DrawType;
+import dankmap.drawing.ZoomLevel;
 import dankmap.model.Bounded;
 import dankmap.model.XYSupplier;
 import javafx.scene.canvas.GraphicsContext;
@@ -9,7 +10,33 @@ import java.io.Serializable;
 
 public interface MapElement extends Bounded, Serializable, XYSupplier, Comparable<MapElement> {
 
-    void draw(GraphicsContext gfx);
+    /**
+     * Draws the element with the detail of the current ZoomLevel
+     */
+    default void draw(GraphicsContext gfx) {
+        draw(gfx, ZoomLevel.getCurrent());
+    }
+
+    /**
+     * Draws the element with the detail of the specified ZoomLevel
+     */
+    void draw(GraphicsContext gfx, ZoomLevel zoomLevel);
+
+    /**
+     * Adds the geometry of the element to the current path of the GraphicsContext,
+     * such that elements sharing a DrawType can be drawn in one path
+     *
+     * @return the number of path commands issued
+     */
+    int trace(GraphicsContext gfx, ZoomLevel zoomLevel);
+
+    /**
+     * @return true if the element is filled, filled elements are drawn one at a time
+     * as overlapping subpaths of one path would cancel out by the even-odd rule
+     */
+    default boolean isFilled() {
+        return false;
+    }
 
     byte getDrawOrder();
 
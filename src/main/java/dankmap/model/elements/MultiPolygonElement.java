@@ -1,6 +1,8 @@
 package dankmap.model.elements;
 
 import dankmap.drawing.DrawType;
+import dankmap.drawing.LevelOfDetail;
+import dankmap.drawing.ZoomLevel;
 import dankmap.model.Bounded;
 import dankmap.model.Bounds;
 import javafx.scene.canvas.GraphicsContext;
@@ -9,33 +11,69 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Objects;
 
+/**
+ * Polygons of the map filled as one, their paths are kept in a GeometryStore,
+ * the path of ring i is the coordinates at [offsets[i], offsets[i] + lengths[i])
+ */
 public class MultiPolygonElement implements MapElement, Serializable {
-    private static final long serialVersionUID = 6954394668948598973L;
+    private static final long serialVersionUID = 78936154011671243L;
 
-    protected final float[][] paths;
+    protected final GeometryStore geometry;
+    private final int[] offsets;
+    private final int[] lengths;
     private final byte drawType;
 
     public MultiPolygonElement(float[][] paths, DrawType drawType) {
-        if (paths.length == 0 || (paths[0].length == 0 && paths.length == 1))
+        this(new GeometryStore(0), paths, drawType);
+    }
+
+    /**
+     * Adds the paths to the store, each path a ring of the element
+     */
+    public MultiPolygonElement(GeometryStore geometry, float[][] paths, DrawType drawType) {
+        this(geometry, add(geometry, paths), lengths(paths), drawType);
+    }
+
+    /**
+     * The rings are the paths already in the store, ring i at [offsets[i], offsets[i] + lengths[i])
+     */
+    public MultiPolygonElement(GeometryStore geometry, int[] offsets, int[] lengths, DrawType drawType) {
+        if (offsets.length != lengths.length)
+            throw new IllegalArgumentException("Expected a length of each ring, was " + lengths.length + " for " + offsets.length);
+        if (offsets.length == 0 || (lengths[0] == 0 && lengths.length == 1))
             throw new IllegalArgumentException("Empty path");
-        this.paths = paths;
+        this.geometry = geometry;
+        this.offsets = offsets;
+        this.lengths = lengths;
         this.drawType = drawType.getId();
     }
 
     @Override
-    public void draw(GraphicsContext gfx) {
+    public void draw(GraphicsContext gfx, ZoomLevel zoomLevel) {
         DrawType.set(gfx, DrawType.getDrawTypes().get(drawType));
         gfx.beginPath();
-        for (float[] path : paths) {
-            gfx.moveTo(path[0], path[1]);
-            for (int j = 2; j < path.length; j += 2) {
-                gfx.lineTo(path[j], path[j + 1]);
-            }
-        }
+        trace(gfx, zoomLevel);
         gfx.fill();
         gfx.stroke();
     }
 
+    @Override
+    public int trace(GraphicsContext gfx, ZoomLevel zoomLevel) {
+        float[] coords = geometry.getCoords();
+        byte[] bands = geometry.getBands();
+        int commands = 0;
+        for (int i = 0; i < offsets.length; i++) {
+            if (lengths[i] == 0) continue;
+            commands += LevelOfDetail.trace(gfx, coords, offsets[i], lengths[i], bands, zoomLevel);
+        }
+        return commands;
+    }
+
+    @Override
+    public boolean isFilled() {
+        return true;
+    }
+
     public float getCenterX(){
         return getBounds().getCenterX();
     }
@@ -44,14 +82,25 @@ public class MultiPolygonElement implements MapElement, Serializable {
     }
     @Override
     public float getX() {
-        int mid = paths[0].length / 2;
-        return paths[0][((mid) % 2) + (mid)];
+        int mid = lengths[0] / 2;
+        return geometry.getCoords()[offsets[0] + ((mid) % 2) + (mid)];
     }
 
     @Override
     public float getY() {
-        int mid = paths[0].length / 2;
-        return paths[0][((mid) % 2) + (mid) + 1];
+        int mid = lengths[0] / 2;
+        return geometry.getCoords()[offsets[0] + ((mid) % 2) + (mid) + 1];
+    }
+
+    /**
+     * @return copies of the paths of the rings
+     */
+    public float[][] getPaths() {
+        float[][] paths = new float[offsets.length][];
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = geometry.copy(offsets[i], lengths[i]);
+        }
+        return paths;
     }
 
     @Override
@@ -71,13 +120,21 @@ public class MultiPolygonElement implements MapElement, Serializable {
 
     @Override
     public Bounds getBounds() {
-        return new Bounds(paths);
+        float[] coords = geometry.getCoords();
+        Bounds bounds = null;
+        for (int i = 0; i < offsets.length; i++) {
+            if (lengths[i] == 0) continue;
+            Bounds ring = new Bounds(coords, offsets[i], lengths[i]);
+            if (bounds == null) bounds = ring;
+            else bounds.expandToFit(ring);
+        }
+        return bounds;
     }
 
     @Override
     public String toString() {
         return "MultiPolygonElement{" +
-                "paths=" + Arrays.toString(paths) +
+                "paths=" + Arrays.deepToString(getPaths()) +
                 ", drawType=" + drawType +
                 '}';
     }
@@ -87,14 +144,39 @@ public class MultiPolygonElement implements MapElement, Serializable {
         if (this == o) return true;
         if (!(o instanceof MultiPolygonElement)) return false;
         MultiPolygonElement that = (MultiPolygonElement) o;
-        return drawType == that.drawType &&
-                Arrays.equals(paths, that.paths);
+        if (drawType != that.drawType || !Arrays.equals(lengths, that.lengths)) return false;
+        // The rings are compared in place in the stores
+        float[] coords = geometry.getCoords();
+        float[] thatCoords = that.geometry.getCoords();
+        for (int i = 0; i < offsets.length; i++) {
+            if (!Arrays.equals(coords, offsets[i], offsets[i] + lengths[i],
+                    thatCoords, that.offsets[i], that.offsets[i] + lengths[i])) return false;
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
         int result = Objects.hash(drawType);
-        result = 31 * result + Arrays.hashCode(paths);
+        float[] coords = geometry.getCoords();
+        for (int i = 0; i < offsets.length; i++) {
+            result = 31 * result + GeometryStore.hashCode(coords, offsets[i], lengths[i]);
+        }
         return result;
     }
+
+
+    /////////// Utility //////////
+
+    private static int[] add(GeometryStore geometry, float[][] paths) {
+        int[] offsets = new int[paths.length];
+        for (int i = 0; i < paths.length; i++) offsets[i] = geometry.add(paths[i]);
+        return offsets;
+    }
+
+    private static int[] lengths(float[][] paths) {
+        int[] lengths = new int[paths.length];
+        for (int i = 0; i < paths.length; i++) lengths[i] = paths[i].length;
+        return lengths;
+    }
 }
\ No newline at end of file
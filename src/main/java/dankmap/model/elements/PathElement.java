@@ -1,6 +1,8 @@
 package dankmap.model.elements;
 
 import dankmap.drawing.DrawType;
+import dankmap.drawing.LevelOfDetail;
+import dankmap.drawing.ZoomLevel;
 import dankmap.model.Bounded;
 import dankmap.model.Bounds;
 import dankmap.util.VectorMath;
@@ -9,47 +11,38 @@ import javafx.scene.canvas.GraphicsContext;
 import java.io.Serializable;
 import java.util.Arrays;
 
+/**
+ * A path of the map, its points are the coordinates at [offset, offset + length) of a GeometryStore
+ */
 public class PathElement implements MapElement, Serializable {
-    private static final long serialVersionUID = 5043162928750707189L;
-    protected final float[] path;
+    private static final long serialVersionUID = -7184919488319573629L;
+    protected final GeometryStore geometry;
+    protected final int offset, length;
     private final byte drawType;
 
     public PathElement(float[] path, DrawType drawType) {
-        if (path.length < 2) throw new IllegalArgumentException("Empty path");
-        this.path = path;
+        this(GeometryStore.of(path), 0, path.length, drawType);
+    }
+
+    public PathElement(GeometryStore geometry, int offset, int length, DrawType drawType) {
+        if (length < 2) throw new IllegalArgumentException("Empty path");
+        this.geometry = geometry;
+        this.offset = offset;
+        this.length = length;
         this.drawType = drawType.getId();
     }
+
     @Override
-    public void draw(GraphicsContext gfx) {
+    public void draw(GraphicsContext gfx, ZoomLevel zoomLevel) {
         DrawType.set(gfx, DrawType.getDrawTypes().get(drawType));
         gfx.beginPath();
-        gfx.moveTo(path[0], path[1]);
-        for (int j = 2; j < path.length; j += 2) {
-            gfx.lineTo(path[j], path[j + 1]);
-        }
+        trace(gfx, zoomLevel);
         gfx.stroke();
     }
 
-    /**
-     * When drawing roads, we wanna be able to outline each road's stroke. Since
-     * no such method exists in javafx, the solution is to draw all roads
-     * twice with different lineWidths. This also creates the illusion of the
-     * roads 'sticking' together.
-     */
-    protected void outline(GraphicsContext gfx) {
-        var dt = DrawType.getDrawTypes().get(drawType);
-        if (dt.isOutline()) {
-            DrawType.set(gfx, dt);
-            gfx.setStroke(dt.getStrokeColor().darker());
-
-            gfx.setLineWidth(gfx.getLineWidth() / 4 * 5);
-            gfx.beginPath();
-            gfx.moveTo(path[0], path[1]);
-            for (int j = 2; j < path.length; j += 2) {
-                gfx.lineTo(path[j], path[j + 1]);
-            }
-            gfx.stroke();
-        }
+    @Override
+    public int trace(GraphicsContext gfx, ZoomLevel zoomLevel) {
+        return LevelOfDetail.trace(gfx, geometry.getCoords(), offset, length, geometry.getBands(), zoomLevel);
     }
 
     public float getCenterX(){
@@ -61,14 +54,39 @@ public class PathElement implements MapElement, Serializable {
 
     @Override
     public float getX() {
-        int mid = path.length / 2;
-        return path[((mid) % 2) + (mid)];
+        int mid = length / 2;
+        return geometry.getCoords()[offset + ((mid) % 2) + (mid)];
     }
 
     @Override
     public float getY() {
-        int mid = path.length / 2;
-        return path[((mid) % 2) + (mid) + 1];
+        int mid = length / 2;
+        return geometry.getCoords()[offset + ((mid) % 2) + (mid) + 1];
+    }
+
+    public int getPointCount() {
+        return length / 2;
+    }
+
+    /**
+     * @return the x coordinate of the point at the index of the path
+     */
+    public float getX(int point) {
+        return geometry.getCoords()[offset + point * 2];
+    }
+
+    /**
+     * @return the y coordinate of the point at the index of the path
+     */
+    public float getY(int point) {
+        return geometry.getCoords()[offset + point * 2 + 1];
+    }
+
+    /**
+     * @return a copy of the points of the path [ x0, y0, x1, y1, ... ]
+     */
+    public float[] getPath() {
+        return geometry.copy(offset, length);
     }
 
     @Override
@@ -103,13 +121,13 @@ public class PathElement implements MapElement, Serializable {
 
     @Override
     public Bounds getBounds() {
-        return new Bounds(path);
+        return new Bounds(geometry.getCoords(), offset, length);
     }
 
     @Override
     public String toString() {
         return "PathElement{" +
-                "path=" + Arrays.toString(path) +
+                "path=" + Arrays.toString(getPath()) +
                 ", drawType=" + drawType +
                 '}';
     }
@@ -119,11 +137,13 @@ public class PathElement implements MapElement, Serializable {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         PathElement other = (PathElement) o;
-        return drawType == other.drawType && Arrays.equals(path, other.path);
+        return drawType == other.drawType && Arrays.equals(
+                geometry.getCoords(), offset, offset + length,
+                other.geometry.getCoords(), other.offset, other.offset + other.length);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(path) + drawType;
+        return GeometryStore.hashCode(geometry.getCoords(), offset, length) + drawType;
     }
 }
\ No newline at end of file
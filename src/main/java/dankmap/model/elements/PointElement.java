@@ -1,6 +1,7 @@
 package dankmap.model.elements;
 
 import dankmap.drawing.DrawType;
+import dankmap.drawing.ZoomLevel;
 import dankmap.model.Bounds;
 import javafx.scene.canvas.GraphicsContext;
 
@@ -27,12 +28,18 @@ public class PointElement implements MapElement, Serializable {
         return y;
     }
     @Override
-    public void draw(GraphicsContext gfx) {
+    public void draw(GraphicsContext gfx, ZoomLevel zoomLevel) {
         DrawType.set(gfx, DrawType.getDrawTypes().get(drawType));
         gfx.beginPath();
+        trace(gfx, zoomLevel);
+        gfx.stroke();
+    }
+
+    @Override
+    public int trace(GraphicsContext gfx, ZoomLevel zoomLevel) {
         gfx.moveTo(x, y);
         gfx.lineTo(x, y);
-        gfx.stroke();
+        return 2;
     }
 
     @Override
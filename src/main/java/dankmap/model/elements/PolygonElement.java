@@ -1,6 +1,8 @@
 package dankmap.model.elements;
 
 import dankmap.drawing.DrawType;
+import dankmap.drawing.LevelOfDetail;
+import dankmap.drawing.ZoomLevel;
 import dankmap.model.Bounded;
 import dankmap.model.Bounds;
 import javafx.scene.canvas.GraphicsContext;
@@ -9,37 +11,52 @@ import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Objects;
 
+/**
+ * A polygon of the map, its points are the coordinates at [offset, offset + length) of a GeometryStore
+ */
 public class PolygonElement implements MapElement, Bounded, Serializable {
-    private static final long serialVersionUID = 4001373648980993442L;
+    private static final long serialVersionUID = -6376121787177816254L;
 
     private final boolean filled;
-    protected final float[] path;
+    protected final GeometryStore geometry;
+    protected final int offset, length;
     private final byte drawType;
 
     public PolygonElement(float[] path, DrawType drawType) {
-        this.path = path;
-        this.filled = false;
-        this.drawType = drawType.getId();
+        this(path, false, drawType);
     }
 
     public PolygonElement(float[] path, boolean filled, DrawType drawType) {
-        this.path = path;
+        this(GeometryStore.of(path), 0, path.length, filled, drawType);
+    }
+
+    public PolygonElement(GeometryStore geometry, int offset, int length, boolean filled, DrawType drawType) {
+        this.geometry = geometry;
+        this.offset = offset;
+        this.length = length;
         this.filled = filled;
         this.drawType = drawType.getId();
     }
 
     @Override
-    public void draw(GraphicsContext gfx) {
+    public void draw(GraphicsContext gfx, ZoomLevel zoomLevel) {
         DrawType.set(gfx, DrawType.getDrawTypes().get(drawType));
         gfx.beginPath();
-        gfx.moveTo(path[0], path[1]);
-        for (int j = 2; j < path.length; j += 2) {
-            gfx.lineTo(path[j], path[j + 1]);
-        }
+        trace(gfx, zoomLevel);
         if (filled) gfx.fill();
         gfx.stroke();
     }
 
+    @Override
+    public int trace(GraphicsContext gfx, ZoomLevel zoomLevel) {
+        return LevelOfDetail.trace(gfx, geometry.getCoords(), offset, length, geometry.getBands(), zoomLevel);
+    }
+
+    @Override
+    public boolean isFilled() {
+        return filled;
+    }
+
     @Override
     public DrawType getDrawType() {
         return DrawType.getDrawTypes().get(drawType);
@@ -54,14 +71,21 @@ public class PolygonElement implements MapElement, Bounded, Serializable {
 
     @Override
     public float getX() {
-        int mid = path.length / 2;
-        return path[((mid) % 2) + (mid)];
+        int mid = length / 2;
+        return geometry.getCoords()[offset + ((mid) % 2) + (mid)];
     }
 
     @Override
     public float getY() {
-        int mid = path.length / 2;
-        return path[((mid) % 2) + (mid) + 1];
+        int mid = length / 2;
+        return geometry.getCoords()[offset + ((mid) % 2) + (mid) + 1];
+    }
+
+    /**
+     * @return a copy of the points of the polygon [ x0, y0, x1, y1, ... ]
+     */
+    public float[] getPath() {
+        return geometry.copy(offset, length);
     }
 
     @Override
@@ -76,14 +100,14 @@ public class PolygonElement implements MapElement, Bounded, Serializable {
 
     @Override
     public Bounds getBounds() {
-        return new Bounds(path);
+        return new Bounds(geometry.getCoords(), offset, length);
     }
 
     @Override
     public String toString() {
         return "PolygonElement{" +
                 "filled=" + filled +
-                ", path=" + Arrays.toString(path) +
+                ", path=" + Arrays.toString(getPath()) +
                 ", drawType=" + drawType +
                 '}';
     }
@@ -95,13 +119,14 @@ public class PolygonElement implements MapElement, Bounded, Serializable {
         PolygonElement that = (PolygonElement) o;
         return filled == that.filled &&
                 drawType == that.drawType &&
-                Arrays.equals(path, that.path);
+                Arrays.equals(geometry.getCoords(), offset, offset + length,
+                        that.geometry.getCoords(), that.offset, that.offset + that.length);
     }
 
     @Override
     public int hashCode() {
         int result = Objects.hash(filled, drawType);
-        result = 31 * result + Arrays.hashCode(path);
+        result = 31 * result + GeometryStore.hashCode(geometry.getCoords(), offset, length);
         return result;
     }
 
@@ -320,7 +320,7 @@ public class Graph implements Serializable {
                     for (var edge : r) {
                         if (edge.road.isVehicleBackward(vehicle)) {
                             roundaboutCounter++;
-                        } else if (Math.abs(edge.road.getPath()[0] - current.to.getX()) <= 0.00001 && Math.abs(edge.road.getPath()[1] - current.to.getY()) <= 0.00001) {
+                        } else if (Math.abs(edge.road.getX(0) - current.to.getX()) <= 0.00001 && Math.abs(edge.road.getY(0) - current.to.getY()) <= 0.00001) {
                             roundaboutCounter++;
                         }
                     }
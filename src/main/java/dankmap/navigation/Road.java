@@ -2,11 +2,10 @@ package dankmap.navigation;
 
 import dankmap.drawing.DrawType;
 import dankmap.model.Location;
+import dankmap.model.elements.GeometryStore;
 import dankmap.model.elements.PathElement;
-import javafx.scene.canvas.GraphicsContext;
 
 import java.io.Serializable;
-import java.util.Arrays;
 import java.util.NoSuchElementException;
 
 public class Road extends PathElement implements Serializable {
@@ -28,7 +27,11 @@ public class Road extends PathElement implements Serializable {
     private byte vehicleBackward;
 
     public Road(float[] path, DrawType drawType, String streetName, short speedLimit, int vehicleForward, int vehicleBackward) {
-        super(path, drawType);
+        this(GeometryStore.of(path), 0, path.length, drawType, streetName, speedLimit, vehicleForward, vehicleBackward);
+    }
+
+    public Road(GeometryStore geometry, int offset, int length, DrawType drawType, String streetName, short speedLimit, int vehicleForward, int vehicleBackward) {
+        super(geometry, offset, length, drawType);
         this.streetName = streetName;
         this.speedLimit = speedLimit;
         this.vehicleForward = (byte) vehicleForward;
@@ -38,10 +41,6 @@ public class Road extends PathElement implements Serializable {
         System.out.println(Integer.toBinaryString(vehicleBackward) +" "+ Integer.toBinaryString(this.vehicleBackward));*/
     }
 
-    public void outline(GraphicsContext gfx) {
-        super.outline(gfx);
-    }
-
     @Override
     public boolean equals(Object o) {
         return super.equals(o);
@@ -60,10 +59,6 @@ public class Road extends PathElement implements Serializable {
         return speedLimit;
     }
 
-    public float[] getPath() {
-        return path;
-    }
-
     public boolean isOneway() {
         return ((vehicleBackward | 0b110) & 0b111) == 0b000;
     }
@@ -96,7 +91,7 @@ public class Road extends PathElement implements Serializable {
         if (start > end)
             return reverse(subPath(end, start));
 
-        return Arrays.copyOfRange(path, start, end + 2);
+        return geometry.copy(offset + start, end + 2 - start);
     }
 
     float[] subPath(Location start, Location end) {
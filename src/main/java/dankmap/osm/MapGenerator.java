@@ -0,0 +1,488 @@
+package dankmap.osm;
+
+import dankmap.drawing.DrawType;
+import dankmap.model.DataModel;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates synthetic maps as OSM XML, such that the parser, the indices, the graph and the
+ * address search can be tested at any size. A map is an island, bounded by coastlines, of a
+ * grid of named streets with addresses along them, buildings, landuse polygons, lakes with
+ * islets as multipolygon relations and places. The same seed and sizes generate the same file.
+ * <p>
+ * The sizes are those of scale 1 multiplied by the scale, and the area of the map grows with
+ * them, such that the density of the map is the same at any scale. The file is written as it
+ * is generated, nodes of ways are addressed by their ids rather than kept.
+ * <p>
+ * Usage: MapGenerator &lt;map.osm&gt; [scale] [seed] [map.bin]
+ */
+public class MapGenerator {
+    // Sizes of scale 1
+    private static final int GRID = 100;
+    private static final int BUILDINGS = 20000;
+    private static final int ADDRESSES = 20000;
+    private static final int POLYGONS = 2000;
+    private static final int RELATIONS = 200;
+    private static final int COASTLINE_NODES = 2000;
+    private static final int PLACES = 60;
+    // Degrees of longitude spanned by the grid of scale 1
+    private static final double GRID_WIDTH = 0.4;
+
+    private static final double CENTER_LON = 14.9, CENTER_LAT = 55.1;
+    // Degrees of latitude per degree of longitude, about the same distance at the center
+    private static final double ASPECT = Math.cos(Math.toRadians(CENTER_LAT));
+
+    // Vertices of the rings of polygons and relations
+    private static final int RING = 8;
+    // Ways the coastline is split into, which the parser joins
+    private static final int COASTLINE_WAYS = 16;
+
+    private static final String[][] LANDUSE = {
+            {"landuse", "forest"}, {"landuse", "farmland"}, {"landuse", "residential"},
+            {"landuse", "industrial"}, {"landuse", "meadow"}, {"leisure", "park"}, {"natural", "heath"}};
+    private static final String[] PREFIXES = {
+            "ny", "skov", "strand", "kirke", "mølle", "bøge", "ege", "sø", "bakke", "eng",
+            "lunde", "rosen", "tofte", "vester", "øster", "nørre", "sønder", "gammel", "hav", "kongens"};
+    private static final String[] SUFFIXES = {"vej", "gade", "allé", "stræde", "stien"};
+    private static final String[] PLACE_SUFFIXES = {"by", "borg", "havn", "løse", "sted", "rup"};
+
+    private final long seed;
+    private int grid;
+    private int buildings;
+    private int addresses;
+    private int polygons;
+    private int relations;
+    private int coastlineNodes;
+    private int places;
+
+    /**
+     * A generator of maps of the sizes of scale 1 multiplied by the scale
+     */
+    public MapGenerator(long seed, double scale) {
+        if (scale <= 0) throw new IllegalArgumentException("scale must be positive, was " + scale);
+        this.seed = seed;
+        grid = Math.max(2, (int) Math.round(GRID * Math.sqrt(scale)));
+        buildings = (int) Math.round(BUILDINGS * scale);
+        addresses = (int) Math.round(ADDRESSES * scale);
+        polygons = (int) Math.round(POLYGONS * scale);
+        relations = (int) Math.round(RELATIONS * scale);
+        coastlineNodes = Math.max(COASTLINE_WAYS, (int) Math.round(COASTLINE_NODES * Math.sqrt(scale)));
+        places = Math.max(1, (int) Math.round(PLACES * scale));
+    }
+
+    /**
+     * @param grid the number of streets in each direction, the grid has grid^2 junctions
+     */
+    public MapGenerator setGrid(int grid) {
+        if (grid < 2) throw new IllegalArgumentException("grid must be at least 2, was " + grid);
+        this.grid = grid;
+        return this;
+    }
+
+    public MapGenerator setBuildings(int buildings) {
+        this.buildings = requireNonNegative(buildings, "buildings");
+        return this;
+    }
+
+    public MapGenerator setAddresses(int addresses) {
+        this.addresses = requireNonNegative(addresses, "addresses");
+        return this;
+    }
+
+    public MapGenerator setPolygons(int polygons) {
+        this.polygons = requireNonNegative(polygons, "polygons");
+        return this;
+    }
+
+    public MapGenerator setRelations(int relations) {
+        this.relations = requireNonNegative(relations, "relations");
+        return this;
+    }
+
+    public MapGenerator setCoastlineNodes(int coastlineNodes) {
+        if (coastlineNodes < COASTLINE_WAYS)
+            throw new IllegalArgumentException("coastline must have at least " + COASTLINE_WAYS + " nodes, was " + coastlineNodes);
+        this.coastlineNodes = coastlineNodes;
+        return this;
+    }
+
+    public MapGenerator setPlaces(int places) {
+        this.places = requireNonNegative(places, "places");
+        return this;
+    }
+
+    /**
+     * @return the number of nodes of the generated map
+     */
+    public long getNodeCount() {
+        return (long) grid * grid + coastlineNodes + 4L * buildings + addresses
+                + (long) RING * polygons + 2L * RING * relations + places;
+    }
+
+    /**
+     * @return the name of the street, the streets along rows are numbered before those along columns
+     */
+    public String getStreetName(int street) {
+        int combinations = PREFIXES.length * SUFFIXES.length;
+        String name = PREFIXES[street % PREFIXES.length] + SUFFIXES[street / PREFIXES.length % SUFFIXES.length];
+        name = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+        return street < combinations ? name : name + " " + (street / combinations + 1);
+    }
+
+    public int getStreetCount() {
+        return 2 * grid;
+    }
+
+    /**
+     * Writes the map to the file as OSM XML
+     */
+    public void write(File file) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), 1 << 16)) {
+            write(out);
+        }
+    }
+
+    /**
+     * Writes the map as OSM XML
+     */
+    public void write(Writer writer) throws IOException {
+        new Generation(writer).write();
+    }
+
+    /**
+     * Parses the map written to the OSM file and saves the model as a binary, as saved by the application
+     */
+    public static DataModel writeBinary(File osm, File bin) throws IOException, XMLStreamException, InterruptedException {
+        DrawType.loadDrawTypeMap();
+        DataModel model = new OSMParser(osm).load();
+        try (ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(bin)))) {
+            out.writeObject(model);
+        }
+        return model;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: MapGenerator <map.osm> [scale] [seed] [map.bin]");
+            System.exit(1);
+        }
+        double scale = args.length > 1 ? Double.parseDouble(args[1]) : 1;
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 0;
+
+        MapGenerator generator = new MapGenerator(seed, scale);
+        long start = System.nanoTime();
+        generator.write(new File(args[0]));
+        System.err.println(String.format(Locale.ROOT, "Generated %d nodes in %.3f s",
+                generator.getNodeCount(), (System.nanoTime() - start) / 1e9));
+
+        if (args.length > 3) {
+            start = System.nanoTime();
+            writeBinary(new File(args[0]), new File(args[3]));
+            System.err.println(String.format(Locale.ROOT, "Saved binary in %.3f s", (System.nanoTime() - start) / 1e9));
+        }
+    }
+
+
+    /**
+     * A single generation of the map. The sections are written in the order of an OSM file,
+     * the ids of each section follow those of the section before it.
+     */
+    private class Generation {
+        private final Writer out;
+        private final Random random = new Random(seed);
+
+        // Extent of the grid, the coastline surrounds it
+        private final double width = GRID_WIDTH * grid / GRID;
+        private final double height = width * ASPECT;
+        private final double minLon = CENTER_LON - width / 2, minLat = CENTER_LAT - height / 2;
+        private final double spacingLon = width / (grid - 1), spacingLat = height / (grid - 1);
+        // Radii of the coastline, which passes outside the corners of the grid
+        private final double radiusLon = width * 0.8, radiusLat = height * 0.8;
+
+        // First ids of each section of nodes
+        private final long gridBase = 1;
+        private final long coastBase = gridBase + (long) grid * grid;
+        private final long buildingBase = coastBase + coastlineNodes;
+        private final long addressBase = buildingBase + 4L * buildings;
+        private final long polygonBase = addressBase + addresses;
+        private final long relationNodeBase = polygonBase + (long) RING * polygons;
+        private final long placeBase = relationNodeBase + 2L * RING * relations;
+
+        private long wayId = 1;
+
+        Generation(Writer out) {
+            this.out = out;
+        }
+
+        void write() throws IOException {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<osm version=\"0.6\" generator=\"dankmap MapGenerator\">\n");
+            out.write(String.format(Locale.ROOT, " <bounds minlat=\"%.7f\" minlon=\"%.7f\" maxlat=\"%.7f\" maxlon=\"%.7f\"/>\n",
+                    CENTER_LAT - radiusLat * 1.2, CENTER_LON - radiusLon * 1.2,
+                    CENTER_LAT + radiusLat * 1.2, CENTER_LON + radiusLon * 1.2));
+
+            writeGridNodes();
+            writeCoastlineNodes();
+            writeBuildingNodes();
+            writeAddressNodes();
+            writePolygonNodes();
+            writeRelationNodes();
+            writePlaceNodes();
+
+            writeStreets();
+            writeCoastline();
+            writeBuildings();
+            writePolygons();
+            writeRelations();
+
+            out.write("</osm>\n");
+        }
+
+        /////////// Nodes //////////
+
+        private void writeGridNodes() throws IOException {
+            // Junctions are moved off the grid by at most a tenth of the spacing
+            long id = gridBase;
+            for (int row = 0; row < grid; row++) {
+                for (int column = 0; column < grid; column++) {
+                    double lon = minLon + column * spacingLon + jitter(spacingLon * 0.1);
+                    double lat = minLat + row * spacingLat + jitter(spacingLat * 0.1);
+                    node(id++, lon, lat);
+                    out.write("/>\n");
+                }
+            }
+        }
+
+        private void writeCoastlineNodes() throws IOException {
+            for (int i = 0; i < coastlineNodes; i++) {
+                double angle = 2 * Math.PI * i / coastlineNodes;
+                double radius = 1 + jitter(0.05);
+                node(coastBase + i, CENTER_LON + Math.cos(angle) * radiusLon * radius, CENTER_LAT + Math.sin(angle) * radiusLat * radius);
+                out.write("/>\n");
+            }
+        }
+
+        private void writeBuildingNodes() throws IOException {
+            long id = buildingBase;
+            for (int i = 0; i < buildings; i++) {
+                double lon = minLon + random.nextDouble() * width;
+                double lat = minLat + random.nextDouble() * height;
+                double size = spacingLon * (0.02 + random.nextDouble() * 0.05);
+                double[] corners = {lon, lat, lon + size, lat, lon + size, lat + size * ASPECT, lon, lat + size * ASPECT};
+                for (int c = 0; c < 8; c += 2) {
+                    node(id++, corners[c], corners[c + 1]);
+                    out.write("/>\n");
+                }
+            }
+        }
+
+        // Addresses are spread over the streets, numbered along each street in the order they are generated
+        private void writeAddressNodes() throws IOException {
+            int streets = getStreetCount();
+            for (int i = 0; i < addresses; i++) {
+                int street = i % streets;
+                int number = i / streets + 1;
+                int line = street % grid;
+                double along = random.nextDouble();
+                double lon, lat;
+                if (street < grid) {
+                    lon = minLon + along * width;
+                    lat = minLat + line * spacingLat + spacingLat * 0.15;
+                } else {
+                    lon = minLon + line * spacingLon + spacingLon * 0.15;
+                    lat = minLat + along * height;
+                }
+                int district = (int) (along * 10) + 10 * (line / 10);
+                node(addressBase + i, lon, lat);
+                out.write(">\n");
+                tag("addr:street", getStreetName(street));
+                tag("addr:housenumber", Integer.toString(number));
+                tag("addr:postcode", Integer.toString(1000 + district % 9000));
+                tag("addr:city", placeName(district));
+                out.write(" </node>\n");
+            }
+        }
+
+        // Polygons are rings about random centers, of up to two grid spacings
+        private void writePolygonNodes() throws IOException {
+            long id = polygonBase;
+            for (int i = 0; i < polygons; i++) {
+                double lon = minLon + random.nextDouble() * width;
+                double lat = minLat + random.nextDouble() * height;
+                double radius = spacingLon * (0.2 + random.nextDouble() * 2);
+                id = ring(id, lon, lat, radius);
+            }
+        }
+
+        // Lakes and their islets share the center, the islet a third of the size
+        private void writeRelationNodes() throws IOException {
+            long id = relationNodeBase;
+            for (int i = 0; i < relations; i++) {
+                double lon = minLon + random.nextDouble() * width;
+                double lat = minLat + random.nextDouble() * height;
+                double radius = spacingLon * (0.5 + random.nextDouble() * 2);
+                id = ring(id, lon, lat, radius);
+                id = ring(id, lon, lat, radius / 3);
+            }
+        }
+
+        private void writePlaceNodes() throws IOException {
+            for (int i = 0; i < places; i++) {
+                String place = i % 30 == 0 ? "city" : i % 6 == 0 ? "town" : "village";
+                node(placeBase + i, minLon + random.nextDouble() * width, minLat + random.nextDouble() * height);
+                out.write(">\n");
+                tag("place", place);
+                tag("name", placeName(i));
+                out.write(" </node>\n");
+            }
+        }
+
+        private long ring(long id, double lon, double lat, double radius) throws IOException {
+            for (int v = 0; v < RING; v++) {
+                double angle = 2 * Math.PI * v / RING;
+                double r = radius * (0.7 + random.nextDouble() * 0.3);
+                node(id++, lon + Math.cos(angle) * r, lat + Math.sin(angle) * r * ASPECT);
+                out.write("/>\n");
+            }
+            return id;
+        }
+
+        /////////// Ways //////////
+
+        // A way along each row and each column of the grid, every tenth a primary road, every fifth a tertiary road
+        private void writeStreets() throws IOException {
+            for (int street = 0; street < getStreetCount(); street++) {
+                int line = street % grid;
+                way();
+                for (int i = 0; i < grid; i++) {
+                    int row = street < grid ? line : i;
+                    int column = street < grid ? i : line;
+                    nd(gridBase + (long) row * grid + column);
+                }
+                tag("highway", line % 10 == 0 ? "primary" : line % 5 == 0 ? "tertiary" : "residential");
+                tag("name", getStreetName(street));
+                out.write(" </way>\n");
+            }
+        }
+
+        // Consecutive ways share their end nodes, the last ends at the first node of the first
+        private void writeCoastline() throws IOException {
+            int perWay = coastlineNodes / COASTLINE_WAYS;
+            for (int w = 0; w < COASTLINE_WAYS; w++) {
+                int from = w * perWay;
+                int to = w == COASTLINE_WAYS - 1 ? coastlineNodes : from + perWay;
+                way();
+                for (int i = from; i <= to; i++) {
+                    nd(coastBase + i % coastlineNodes);
+                }
+                tag("natural", "coastline");
+                out.write(" </way>\n");
+            }
+        }
+
+        private void writeBuildings() throws IOException {
+            for (int i = 0; i < buildings; i++) {
+                closedWay(buildingBase + 4L * i, 4);
+                tag("building", "yes");
+                out.write(" </way>\n");
+            }
+        }
+
+        private void writePolygons() throws IOException {
+            for (int i = 0; i < polygons; i++) {
+                String[] tag = LANDUSE[random.nextInt(LANDUSE.length)];
+                closedWay(polygonBase + (long) RING * i, RING);
+                tag(tag[0], tag[1]);
+                out.write(" </way>\n");
+            }
+        }
+
+        // The untagged rings of the lakes, then the relations of them
+        private void writeRelations() throws IOException {
+            long firstWay = wayId;
+            for (int i = 0; i < 2 * relations; i++) {
+                closedWay(relationNodeBase + (long) RING * i, RING);
+                out.write(" </way>\n");
+            }
+            for (int i = 0; i < relations; i++) {
+                out.write(" <relation id=\"" + (i + 1) + "\">\n");
+                member(firstWay + 2L * i, "outer");
+                member(firstWay + 2L * i + 1, "inner");
+                tag("type", "multipolygon");
+                tag("natural", "water");
+                out.write(" </relation>\n");
+            }
+        }
+
+        /////////// Utility //////////
+
+        private double jitter(double max) {
+            return (random.nextDouble() * 2 - 1) * max;
+        }
+
+        private String placeName(int index) {
+            String name = PREFIXES[index % PREFIXES.length] + PLACE_SUFFIXES[index / PREFIXES.length % PLACE_SUFFIXES.length];
+            name = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+            int combinations = PREFIXES.length * PLACE_SUFFIXES.length;
+            return index < combinations ? name : name + " " + (index / combinations + 1);
+        }
+
+        // Leaves the element open for tags
+        private void node(long id, double lon, double lat) throws IOException {
+            out.write(" <node id=\"");
+            out.write(Long.toString(id));
+            out.write("\" lat=\"");
+            coordinate(lat);
+            out.write("\" lon=\"");
+            coordinate(lon);
+            out.write('"');
+        }
+
+        // Seven decimals as OSM, formatted by hand as formatting strings dominates writing large maps
+        private void coordinate(double degrees) throws IOException {
+            long fixed = Math.round(degrees * 1e7);
+            if (fixed < 0) {
+                out.write('-');
+                fixed = -fixed;
+            }
+            out.write(Long.toString(fixed / 10_000_000));
+            out.write('.');
+            String decimals = Long.toString(fixed % 10_000_000);
+            for (int i = decimals.length(); i < 7; i++) out.write('0');
+            out.write(decimals);
+        }
+
+        private void way() throws IOException {
+            out.write(" <way id=\"" + wayId++ + "\">\n");
+        }
+
+        private void closedWay(long first, int nodes) throws IOException {
+            way();
+            for (int i = 0; i < nodes; i++) nd(first + i);
+            nd(first);
+        }
+
+        private void nd(long ref) throws IOException {
+            out.write("  <nd ref=\"" + ref + "\"/>\n");
+        }
+
+        private void member(long ref, String role) throws IOException {
+            out.write("  <member type=\"way\" ref=\"" + ref + "\" role=\"" + role + "\"/>\n");
+        }
+
+        // Values are generated from names without characters to escape
+        private void tag(String k, String v) throws IOException {
+            out.write("  <tag k=\"" + k + "\" v=\"" + v + "\"/>\n");
+        }
+    }
+
+    private static int requireNonNegative(int value, String name) {
+        if (value < 0) throw new IllegalArgumentException(name + " must not be negative, was " + value);
+        return value;
+    }
+}
@@ -2,9 +2,11 @@ package dankmap.osm;
 
 import dankmap.drawing.DrawType;
 import dankmap.drawing.DrawTypeMap;
+import dankmap.model.AddressStore;
 import dankmap.model.Bounds;
 import dankmap.model.DataModel;
 import dankmap.model.Location;
+import dankmap.model.Place;
 import dankmap.model.XYSupplier;
 import dankmap.model.elements.*;
 import dankmap.navigation.Graph;
@@ -13,14 +15,15 @@ import dankmap.navigation.Road;
 import dankmap.util.cartography.MapConstants;
 import dankmap.util.collections.IDSortedArrayList;
 import dankmap.util.collections.tree.LayeredKDTree;
-import dankmap.util.collections.trie.RadixTree;
-import javafx.util.Pair;
+import dankmap.util.collections.tree.PointKDTree;
+import dankmap.util.collections.tree.SegmentKDTree;
 
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamReader;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinTask;
 import java.util.stream.Collectors;
 import java.util.zip.ZipFile;
 
@@ -39,11 +42,14 @@ public class OSMParser implements AutoCloseable {
     // Universe of input
     private Bounds bounds;
 
-    // Map elements
+    // Map elements, the coordinates of their paths are kept in the geometry
+    private GeometryStore geometry = new GeometryStore();
     private LayeredKDTree mapElements = new LayeredKDTree();
     private LayeredKDTree roads = new LayeredKDTree();
+    private SegmentKDTree.Builder<Road> roadSegments = new SegmentKDTree.Builder<>();
     private Collection<IslandElement> islands = new ArrayList<>();
-    private RadixTree<Location> addressLookup = new RadixTree<>();
+    private AddressStore.Builder addresses = new AddressStore.Builder();
+    private PointKDTree.Builder<Place> places = new PointKDTree.Builder<>();
     private Graph graph;
 
     // Temporary elements for construction of map elements
@@ -53,6 +59,12 @@ public class OSMParser implements AutoCloseable {
     private Map<OSMNode, OSMWay> nodeToCoast = new HashMap<>();
     private Map<Road, OSMWay> roadToWay = new HashMap<>();
     private Map<OSMNode, Integer> degreeOfNode = new HashMap<>();
+    private Map<OSMNode, Integer> nodeToAddress = new HashMap<>();
+
+    // Road classification, reused between ways
+    private RoadRules roadRules = RoadRules.getDefault();
+    private TagTable tagTable = new TagTable();
+    private RoadRules.Match roadMatch = new RoadRules.Match();
 
     /**
      * @param file a .osm or .osm.zip file containing the data
@@ -69,14 +81,20 @@ public class OSMParser implements AutoCloseable {
         parseNodes();
         parseWays();
         parseRelations();
+        geometry.trim();
 
-        if (mapElements.size() > 0)
-            mapElements.build();
+        // The indices are independent, they are built at the same time
+        ForkJoinTask.invokeAll(
+                ForkJoinTask.adapt(mapElements::build),
+                ForkJoinTask.adapt(roads::build));
 
-        if (roads.size() > 0)
-            roads.build();
+        AddressStore addressStore = addresses.build();
+        // The points are looked up by the index they are added at, the position in the store
+        PointKDTree.Builder<Void> addressPoints = new PointKDTree.Builder<>();
+        for (int i = 0; i < addressStore.size(); i++)
+            addressPoints.add(addressStore.getX(i), addressStore.getY(i));
 
-        return new DataModel(bounds, graph, mapElements, roads, islands, addressLookup);
+        return new DataModel(bounds, graph, mapElements, roads, roadSegments.build(), islands, addressStore, addressPoints.build(), places.build());
     }
 
     private void initializeAndValidate() throws EOFException, XMLStreamException {
@@ -115,7 +133,7 @@ public class OSMParser implements AutoCloseable {
 
     private void parseNodes() throws XMLStreamException, EOFException {
         List<String> tags = new ArrayList<>();
-        String k, v, address, element;
+        String k, v, element;
 
         element = nextElement();
         while (element.equals("node")) {
@@ -141,13 +159,25 @@ public class OSMParser implements AutoCloseable {
                 element = nextElement();
             }
 
-            address = getAddress(tags);
-            if (!address.isEmpty()) {
-                Location loc = new Location(lon, lat);
-                addressLookup.put(address, loc);
+            OSMNode node = new OSMNode(id, lon, lat);
+
+            if (!getValue("addr:street", tags).isEmpty()) {
+                int record = addresses.add(
+                        getValue("addr:street", tags),
+                        getValue("addr:housenumber", tags),
+                        getValue("addr:postcode", tags),
+                        getValue("addr:city", tags),
+                        lon, lat
+                );
+                if (record >= 0) nodeToAddress.put(node, record);
             }
 
-            nodes.add(new OSMNode(id, lon, lat));
+            int placeLevel = Place.zoomLevelOf(getValue("place", tags));
+            String name = getValue("name", tags);
+            if (placeLevel >= 0 && !name.isEmpty())
+                places.add(lon, lat, new Place(name, lon, lat, placeLevel));
+
+            nodes.add(node);
         }
 
     }
@@ -155,12 +185,11 @@ public class OSMParser implements AutoCloseable {
     private void parseWays() throws XMLStreamException, EOFException {
         List<OSMNode> wayNodes = new ArrayList<>();
         List<String> tags = new ArrayList<>();
+        List<DrawType> matchingTypes = new ArrayList<>();
         String k, v, element = element();
-        DrawType type;
         long id;
         OSMNode nd;
         OSMWay way;
-        float[] path;
 
         while (element.equals("way")) {
 
@@ -192,25 +221,30 @@ public class OSMParser implements AutoCloseable {
 
             way = new OSMWay(wayNodes, id);
 
+            String interpolation = getValue("addr:interpolation", tags);
+            if (!interpolation.isEmpty()) interpolateAddresses(wayNodes, interpolation);
+
+            tagTable.load(tags);
+            roadRules.classify(tagTable, roadMatch);
+
             if (isCoastline(tags)) {
                 addCoastline(way);
-            } else if (isRoad(tags)) {
-                String highwayTag = getValue("highway", tags);
+            } else if (roadMatch.isRoad()) {
                 addRoad(way, tags);
             } else {
                 // Extract map elements from way
-                var matching_types = types.getRange(tags).keySet();
-                if (!matching_types.isEmpty()) {
-                    path = way.getPath();
-                    for (Pair<String, String> tag : matching_types) {
-                        type = types.get(tag.getKey(), tag.getValue());
-                        if (type == null) continue;
+                matchingTypes.clear();
+                if (types.collect(tags, matchingTypes) > 0) {
+                    // The elements of each matching type share the path
+                    int offset = store(way);
+                    int length = way.size() * 2;
+                    for (DrawType matching : matchingTypes) {
                         if (isPath(tags, wayNodes)) {
-                            mapElements.add(new PathElement(path, type));
+                            mapElements.add(new PathElement(geometry, offset, length, matching));
                         } else if (isPolygon(tags, wayNodes)) {
-                            mapElements.add(new PolygonElement(path, type));
+                            mapElements.add(new PolygonElement(geometry, offset, length, false, matching));
                         } else {
-                            mapElements.add(new PolygonElement(path, true, type));
+                            mapElements.add(new PolygonElement(geometry, offset, length, true, matching));
                         }
                     }
                 }
@@ -218,10 +252,31 @@ public class OSMParser implements AutoCloseable {
 
             ways.add(way);
         }
+        nodeToAddress.clear();
         buildGraph();
         processIslands();
     }
 
+    /**
+     * Interpolates the house numbers between each pair of consecutive
+     * address nodes along an addr:interpolation way
+     */
+    private void interpolateAddresses(List<OSMNode> wayNodes, String interpolation) {
+        int last = -1;
+        for (int i = 0; i < wayNodes.size(); i++) {
+            if (!nodeToAddress.containsKey(wayNodes.get(i))) continue;
+            if (last >= 0) {
+                float[] path = new float[(i - last + 1) * 2];
+                for (int j = last; j <= i; j++) {
+                    path[(j - last) * 2] = wayNodes.get(j).getX();
+                    path[(j - last) * 2 + 1] = wayNodes.get(j).getY();
+                }
+                addresses.interpolate(nodeToAddress.get(wayNodes.get(last)), nodeToAddress.get(wayNodes.get(i)), path, interpolation);
+            }
+            last = i;
+        }
+    }
+
     private void parseRelations() throws XMLStreamException, EOFException {
         String k, v, element;
         long id, ref;
@@ -246,7 +301,7 @@ public class OSMParser implements AutoCloseable {
                         break;
                     case "way":
                         var way = ways.get(ref);
-                        if (way != null) relation.addWay(way);
+                        if (way != null) relation.addWay(way, getAttribute("role"));
                         break;
                     case "relation":
                         var rel = relations.get(ref);
@@ -269,19 +324,30 @@ public class OSMParser implements AutoCloseable {
 
             if (relation.isEmpty()) continue;
 
-            float[][] paths = relation.getPaths();
-
             type = types.get(tags);
 
             if (type != null) {
+                // Rings of a single way share the path of the way, stitched rings are added
+                RingAssembler rings = relation.assembleRings();
                 if (OSMHelper.isMultiPolygon(tags, relation)) {
-                    mapElements.add(new MultiPolygonElement(paths, type));
-                } else if (isPath(tags)) {
-                    mapElements.add(new PathElement(paths[0], type));
-                } else if (isPolygon(tags)) {
-                    mapElements.add(new PolygonElement(paths[0], type));
+                    int count = rings.getRings().size();
+                    int[] offsets = new int[count];
+                    int[] lengths = new int[count];
+                    for (int r = 0; r < count; r++) {
+                        offsets[r] = store(rings, r);
+                        lengths[r] = rings.getRings().get(r).length * 2;
+                    }
+                    mapElements.add(new MultiPolygonElement(geometry, offsets, lengths, type));
                 } else {
-                    mapElements.add(new PolygonElement(paths[0], true, type));
+                    int offset = store(rings, 0);
+                    int length = rings.getRings().get(0).length * 2;
+                    if (isPath(tags)) {
+                        mapElements.add(new PathElement(geometry, offset, length, type));
+                    } else if (isPolygon(tags)) {
+                        mapElements.add(new PolygonElement(geometry, offset, length, false, type));
+                    } else {
+                        mapElements.add(new PolygonElement(geometry, offset, length, true, type));
+                    }
                 }
             }
             relations.add(relation);
@@ -311,6 +377,8 @@ public class OSMParser implements AutoCloseable {
 
         roadToWay.forEach((road, way) -> {
             roads.add(road);
+            if (!road.getStreetName().isEmpty())
+                roadSegments.addPath(road.getPath(), road);
             int lastStart = -1;
             for (int i = 0; i < way.size(); i++) {
                 if (lastStart == -1) lastStart = i;
@@ -351,47 +419,24 @@ public class OSMParser implements AutoCloseable {
         });
 
         String name = getValue("name", tags);
-        short speedLimit = OSMHelper.getSpeedLimit(tags);
-        boolean bicycleForward = OSMHelper.isCyclewayForward(tags);
-        boolean bicycleBackward = OSMHelper.isCycleBackward(tags);
-        boolean trafficForward = OSMHelper.isTrafficWayForward(tags);
-        boolean trafficBackward = OSMHelper.isTrafficWayBackward(tags);
-        boolean pedestrian = OSMHelper.isPedestrianWay(tags);
-        boolean isRoundabout = OSMHelper.isRoundabout(tags);
-
-        int vehicleBitsForward = 0;
-        int vehicleBitsBackward = 0;
-
-        if (isRoundabout) {
-            vehicleBitsForward++;
-            vehicleBitsBackward++;
-        }
+        short speedLimit = roadMatch.getSpeedLimit();
+        int vehicleBitsForward = roadMatch.getForwardBits();
+        int vehicleBitsBackward = roadMatch.getBackwardBits();
 
-        vehicleBitsForward = vehicleBitsForward << 1;
-        vehicleBitsBackward = vehicleBitsBackward << 1;
-
-
-        // Walk = 1XX
-        if (pedestrian) {
-            vehicleBitsForward++;
-            vehicleBitsBackward++;
-        }
-        vehicleBitsForward = vehicleBitsForward << 1;
-        vehicleBitsBackward = vehicleBitsBackward << 1;
-
-        // Bike = X1X
-        if (bicycleForward) vehicleBitsForward++;
-        if (bicycleBackward) vehicleBitsBackward++;
-
-        vehicleBitsForward = vehicleBitsForward << 1;
-        vehicleBitsBackward = vehicleBitsBackward << 1;
+        Road road = new Road(geometry, store(way), way.size() * 2, type, name, speedLimit, vehicleBitsForward, vehicleBitsBackward);
+        roadToWay.put(road, way);
+    }
 
-        // Car = XX1
-        if (trafficForward) vehicleBitsForward++;
-        if (trafficBackward) vehicleBitsBackward++;
+    // Adds the path of the way to the geometry once, later elements of the way share it
+    private int store(OSMWay way) {
+        if (way.getOffset() < 0) way.setOffset(geometry.add(way.getPath()));
+        return way.getOffset();
+    }
 
-        Road road = new Road(way.getPath(), type, name, speedLimit, vehicleBitsForward, vehicleBitsBackward);
-        roadToWay.put(road, way);
+    // Adds the path of the ring, unless it is the path of a way
+    private int store(RingAssembler rings, int ring) {
+        OSMWay way = rings.getWay(ring);
+        return way != null ? store(way) : geometry.add(rings.getPath(ring));
     }
 
     private void addCoastline(OSMWay way) {
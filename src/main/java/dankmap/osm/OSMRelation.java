@@ -3,18 +3,20 @@ package dankmap.osm;
 import dankmap.util.collections.IDSortedArrayList;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
+import java.util.*;
 
 public class OSMRelation implements IDSortedArrayList.IDSupplier<Long>, Serializable {
-    private static final long serialVersionUID = 3368422161402901797L;
+    private static final long serialVersionUID = -8014273185209425616L;
 
     private final List<OSMNode> nodes = new ArrayList<>();
     private final List<OSMWay> ways = new ArrayList<>();
+    // The member ways of the inner role, by their index in ways
+    private final BitSet innerWays = new BitSet();
     private final List<OSMRelation> relations = new ArrayList<>();
     private final long id;
     private String[] tags;
+    // The rings of the ways, assembled when first needed and dropped when members are added
+    private transient RingAssembler rings;
 
     public OSMRelation(long id, String[] tags) {
         this.id = id;
@@ -30,63 +32,14 @@ public class OSMRelation implements IDSortedArrayList.IDSupplier<Long>, Serializ
     }
 
     /**
-     * A Relation's ways aren't always in correct order nor direction.
-     * To make sure it is, we try to merge each way to every other way
-     * - creating a series of correctly oriented and connected ways.
+     * A Relation's ways aren't always in correct order nor direction,
+     * the ways of the relation and its member relations are stitched
+     * into rings by their shared end nodes.
+     *
+     * @return the paths of the rings, the rings of outer ways first
      */
-    public static List<OSMWay> mergeWays(List<OSMWay> ways) {
-        ArrayList<OSMWay> temp = new ArrayList<>(ways.size());
-        for (OSMWay way : ways) temp.add((OSMWay) way.clone());
-
-        List<OSMWay> newWays = new ArrayList<>();
-        if (!temp.isEmpty()) {
-            int i = 0;
-            while (i < temp.size()) {
-                OSMWay newWay = temp.get(i);
-                int j = i + 1;
-                while (j < temp.size()) {
-                    OSMWay nextWay = temp.get(j);
-                    try {
-                        newWay = OSMWay.merge(newWay, nextWay);
-                        temp.remove(j);
-                    } catch (IllegalArgumentException e) {
-                        j++;
-                    }
-                }
-                newWays.add(newWay);
-                i++;
-            }
-        }
-        return newWays;
-    }
-
-    public static List<OSMWay> mergeRelations(List<OSMRelation> rels) {
-        List<OSMWay> newWays = new ArrayList<>();
-        for (OSMRelation rel : rels) {
-            newWays.addAll(mergeRelation(rel));
-        }
-        return mergeWays(newWays);
-    }
-
-    public static List<OSMWay> mergeRelation(OSMRelation rel) {
-        List<OSMWay> newWays = new ArrayList<>();
-        newWays.addAll(mergeWays(rel.ways));
-        newWays.addAll(mergeRelations(rel.relations));
-        return mergeWays(newWays);
-    }
-
-    public List<OSMWay> getMergedWays() {
-        return mergeRelation(this);
-    }
-
     public float[][] getPaths() {
-        List<OSMWay> newWays = getMergedWays();
-
-        float[][] paths = new float[newWays.size()][];
-        for (int i = 0; i < paths.length; i++) {
-            paths[i] = newWays.get(i).getPath();
-        }
-        return paths;
+        return assembleRings().getPaths();
     }
 
     public int size() {
@@ -103,12 +56,11 @@ public class OSMRelation implements IDSortedArrayList.IDSupplier<Long>, Serializ
         return true;
     }
 
+    /**
+     * @return true if the ways of the relation form a single closed ring
+     */
     public boolean isConnected() {
-        var ways = getMergedWays();
-        if (ways.size() == 1) {
-            return ways.get(0).first() == ways.get(0).last();
-        }
-        return false;
+        return assembleRings().isSingleRing();
     }
 
     public void addNode(OSMNode node) {
@@ -121,18 +73,31 @@ public class OSMRelation implements IDSortedArrayList.IDSupplier<Long>, Serializ
 
     public void addWay(OSMWay way) {
         this.ways.add(way);
+        rings = null;
+    }
+
+    /**
+     * @param role the role of the way in the relation, ie. inner or outer
+     */
+    public void addWay(OSMWay way, String role) {
+        if ("inner".equals(role)) innerWays.set(ways.size());
+        this.ways.add(way);
+        rings = null;
     }
 
     public void addWays(Collection<OSMWay> ways) {
         this.ways.addAll(ways);
+        rings = null;
     }
 
     public void addRelation(OSMRelation relation) {
         this.relations.add(relation);
+        rings = null;
     }
 
     public void addRelations(Collection<OSMRelation> relations) {
         this.relations.addAll(relations);
+        rings = null;
     }
 
     /**
@@ -149,4 +114,28 @@ public class OSMRelation implements IDSortedArrayList.IDSupplier<Long>, Serializ
     public Long getID() {
         return id;
     }
+
+
+    /////////// Utility //////////
+
+    // The rings of the ways of the relation and its member relations, assembled once
+    RingAssembler assembleRings() {
+        if (rings == null) {
+            RingAssembler assembler = new RingAssembler();
+            addMembers(assembler, Collections.newSetFromMap(new IdentityHashMap<>()));
+            rings = assembler.assemble();
+        }
+        return rings;
+    }
+
+    // Adds the ways of the relation and its member relations, each relation once
+    private void addMembers(RingAssembler assembler, Set<OSMRelation> visited) {
+        if (!visited.add(this)) return;
+        for (int i = 0; i < ways.size(); i++) {
+            assembler.add(ways.get(i), innerWays.get(i));
+        }
+        for (OSMRelation relation : relations) {
+            relation.addMembers(assembler, visited);
+        }
+    }
 }
\ No newline at end of file
@@ -9,8 +9,10 @@ import java.util.List;
 import java.util.Random;
 
 public class OSMWay extends ArrayList<OSMNode> implements IDSortedArrayList.IDSupplier<Long>, Serializable {
-    private static final long serialVersionUID = -2959420991581337037L;
+    private static final long serialVersionUID = 6093478510931246573L;
     private final long id;
+    // The offset of the path of the way in the geometry of the parser, or -1 if not stored
+    private int offset = -1;
 
     public OSMWay(long id) {
         this.id = id;
@@ -44,6 +46,14 @@ public class OSMWay extends ArrayList<OSMNode> implements IDSortedArrayList.IDSu
         return path;
     }
 
+    int getOffset() {
+        return offset;
+    }
+
+    void setOffset(int offset) {
+        this.offset = offset;
+    }
+
     /**
      * This method merges 2 connected OSMWays by trying all
      * 4 combinations of direction.
@@ -0,0 +1,204 @@
+package dankmap.osm;
+
+import java.util.*;
+
+/**
+ * Stitches the member ways of a relation into rings, joining ways which share an end node
+ * regardless of their order and direction. Ways are joined only to ways of the same role,
+ * the outer rings are listed before the inner rings. Ways which cannot be closed are kept
+ * as the longest chains they can be joined to.
+ * <p>
+ * Ways are read as arrays of node indices, and the ends of the ways are indexed by node,
+ * such that the rings are assembled in about linear time in the number of nodes.
+ * <p>
+ * A ring made of a single way in its own direction is reported as that way, such that the
+ * path already stored for the way can be shared.
+ */
+class RingAssembler {
+    private final List<OSMNode> nodes = new ArrayList<>();
+    private final Map<OSMNode, Integer> indices = new IdentityHashMap<>();
+    private final List<int[]> ways = new ArrayList<>();
+    private final List<OSMWay> members = new ArrayList<>();
+    // The ways of the inner role
+    private final BitSet inner = new BitSet();
+
+    private final List<int[]> rings = new ArrayList<>();
+    // The way each ring is made of, or null if the ring is stitched or reversed
+    private final List<OSMWay> ringWays = new ArrayList<>();
+    private int closed;
+
+    /**
+     * Adds the way as a member of the role, empty ways are ignored
+     */
+    void add(OSMWay way, boolean isInner) {
+        if (way.isEmpty()) return;
+        int[] nodeIndices = new int[way.size()];
+        for (int i = 0; i < nodeIndices.length; i++) {
+            nodeIndices[i] = indices.computeIfAbsent(way.get(i), node -> {
+                nodes.add(node);
+                return nodes.size() - 1;
+            });
+        }
+        inner.set(ways.size(), isInner);
+        ways.add(nodeIndices);
+        members.add(way);
+    }
+
+    /**
+     * Assembles the rings of the ways added so far
+     */
+    RingAssembler assemble() {
+        rings.clear();
+        ringWays.clear();
+        closed = 0;
+        // The ends of each way, where end 2w is the first node of way w and 2w + 1 the last,
+        // linked in a list per node
+        int[] head = new int[nodes.size()];
+        int[] next = new int[ways.size() * 2];
+        Arrays.fill(head, -1);
+        for (int end = 0; end < next.length; end++) {
+            int node = endNode(end);
+            next[end] = head[node];
+            head[node] = end;
+        }
+
+        boolean[] used = new boolean[ways.size()];
+        for (boolean role : new boolean[]{false, true}) {
+            for (int w = 0; w < ways.size(); w++) {
+                if (used[w] || inner.get(w) != role) continue;
+                used[w] = true;
+                Chain chain = new Chain(ways.get(w));
+                extend(chain, role, head, next, used);
+                if (!chain.isClosed()) {
+                    int joined = chain.ways;
+                    chain.reverse();
+                    extend(chain, role, head, next, used);
+                    // Nothing joined at the other end, keep the direction of the ways
+                    if (chain.ways == joined) chain.reverse();
+                }
+                if (chain.isClosed()) closed++;
+                rings.add(chain.toArray());
+                ringWays.add(chain.isWay() ? members.get(w) : null);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return the rings as arrays of node indices, outer rings first
+     */
+    List<int[]> getRings() {
+        return rings;
+    }
+
+    /**
+     * @return true if the ways form a single closed ring
+     */
+    boolean isSingleRing() {
+        return rings.size() == 1 && closed == 1;
+    }
+
+    /**
+     * @return the way the ring is made of, in the direction of the way, or null if the
+     * ring is stitched from several ways or reversed
+     */
+    OSMWay getWay(int ring) {
+        return ringWays.get(ring);
+    }
+
+    /**
+     * @return the path of the ring [ lon0, lat0, lon1, lat1, ... ]
+     */
+    float[] getPath(int ring) {
+        int[] nodeIndices = rings.get(ring);
+        float[] path = new float[nodeIndices.length * 2];
+        for (int i = 0; i < nodeIndices.length; i++) {
+            OSMNode node = nodes.get(nodeIndices[i]);
+            path[i * 2] = node.getLon();
+            path[i * 2 + 1] = node.getLat();
+        }
+        return path;
+    }
+
+    /**
+     * @return the paths of the rings [ lon0, lat0, lon1, lat1, ... ], outer rings first
+     */
+    float[][] getPaths() {
+        float[][] paths = new float[rings.size()][];
+        for (int r = 0; r < paths.length; r++) paths[r] = getPath(r);
+        return paths;
+    }
+
+
+    /////////// Utility //////////
+
+    // Appends unused ways of the role at the last node of the chain until it is closed or cannot be extended
+    private void extend(Chain chain, boolean role, int[] head, int[] next, boolean[] used) {
+        while (!chain.isClosed()) {
+            int end = head[chain.last()];
+            while (end >= 0 && (used[end / 2] || inner.get(end / 2) != role)) end = next[end];
+            if (end < 0) return;
+            used[end / 2] = true;
+            chain.append(ways.get(end / 2), end % 2 == 1);
+        }
+    }
+
+    private int endNode(int end) {
+        int[] way = ways.get(end / 2);
+        return end % 2 == 0 ? way[0] : way[way.length - 1];
+    }
+
+    // A growable array of node indices
+    private static class Chain {
+        private int[] nodes;
+        private int size;
+        private int ways = 1;
+        private boolean reversed;
+
+        Chain(int[] way) {
+            nodes = Arrays.copyOf(way, Math.max(16, way.length * 2));
+            size = way.length;
+        }
+
+        int first() {
+            return nodes[0];
+        }
+
+        int last() {
+            return nodes[size - 1];
+        }
+
+        boolean isClosed() {
+            return size > 1 && first() == last();
+        }
+
+        // True if the chain is its first way as it is
+        boolean isWay() {
+            return ways == 1 && !reversed;
+        }
+
+        // Appends the way starting at the last node, skipping the shared node
+        void append(int[] way, boolean reversed) {
+            if (size + way.length - 1 > nodes.length) {
+                nodes = Arrays.copyOf(nodes, Math.max(nodes.length * 2, size + way.length - 1));
+            }
+            for (int i = 1; i < way.length; i++) {
+                nodes[size++] = reversed ? way[way.length - 1 - i] : way[i];
+            }
+            ways++;
+        }
+
+        void reverse() {
+            for (int i = 0, j = size - 1; i < j; i++, j--) {
+                int node = nodes[i];
+                nodes[i] = nodes[j];
+                nodes[j] = node;
+            }
+            reversed = !reversed;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(nodes, size);
+        }
+    }
+}
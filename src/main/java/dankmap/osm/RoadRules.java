@@ -0,0 +1,305 @@
+package dankmap.osm;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+
+/**
+ * Road classification compiled from a rules file into a decision table.
+ * A single pass over the tags of a way, loaded into a {@link TagTable},
+ * computes whether it is a road, its speed limit, roundabout flag and
+ * the forward and backward vehicle bits used by {@link dankmap.navigation.Road}.
+ * <p>
+ * See <code>osm/road_rules.xml</code> for the format of the rules.
+ */
+class RoadRules {
+    private static final String FILE = "osm/road_rules.xml";
+
+    // Mode bits, matching the layout of the vehicle bits of Road
+    static final int MOTOR = 0b0001;
+    static final int BICYCLE = 0b0010;
+    static final int FOOT = 0b0100;
+    static final int ROUNDABOUT = 0b1000;
+
+    private static RoadRules defaultRules;
+
+    // Classification of a highway value
+    private static class HighwayRule {
+        final String value;
+        final boolean road;
+        final int modes;
+        final int speed;
+
+        HighwayRule(String value, boolean road, int modes, int speed) {
+            this.value = value;
+            this.road = road;
+            this.modes = modes;
+            this.speed = speed;
+        }
+    }
+
+    // A rule applying to ways with a key=value tag
+    private static class TagRule {
+        final int key;
+        final String value;
+        final boolean road;
+        final int modes;
+        final int speed;
+        final boolean contraflow;
+        final boolean roundabout;
+
+        TagRule(int key, String value, boolean road, int modes, int speed, boolean contraflow, boolean roundabout) {
+            this.key = key;
+            this.value = value;
+            this.road = road;
+            this.modes = modes;
+            this.speed = speed;
+            this.contraflow = contraflow;
+            this.roundabout = roundabout;
+        }
+
+        boolean matches(TagTable tags) {
+            return tags.get(key).equals(value);
+        }
+    }
+
+    /**
+     * Classification of a single way, reused between ways
+     */
+    static class Match {
+        private boolean road;
+        private boolean roundabout;
+        private short speedLimit;
+        private int forward;
+        private int backward;
+
+        boolean isRoad() {
+            return road;
+        }
+
+        boolean isRoundabout() {
+            return roundabout;
+        }
+
+        short getSpeedLimit() {
+            return speedLimit;
+        }
+
+        /**
+         * @return the vehicle bits in the direction of the way, roundabout 1XXX, foot X1XX, bicycle XX1X, motor XXX1
+         */
+        int getForwardBits() {
+            return forward;
+        }
+
+        /**
+         * @return the vehicle bits against the direction of the way
+         */
+        int getBackwardBits() {
+            return backward;
+        }
+    }
+
+    private final int highwayKey = TagTable.register("highway");
+    private final Map<String, HighwayRule> highways = new HashMap<>();
+    private final List<HighwayRule> highwayPrefixes = new ArrayList<>();
+    private final List<TagRule> sets = new ArrayList<>();
+    private final List<TagRule> clears = new ArrayList<>();
+    private final List<TagRule> oneways = new ArrayList<>();
+    private final List<TagRule> contraflows = new ArrayList<>();
+    private final Map<String, Integer> speedAliases = new HashMap<>();
+    private int maxSpeedKey = -1;
+    private int defaultSpeed;
+
+    private RoadRules() {
+    }
+
+    /**
+     * @return the rules of the default rules file
+     */
+    static synchronized RoadRules getDefault() {
+        if (defaultRules == null) {
+            try (InputStream file = RoadRules.class.getClassLoader().getResourceAsStream(FILE)) {
+                defaultRules = load(Objects.requireNonNull(file, FILE));
+            } catch (IOException | SAXException | ParserConfigurationException e) {
+                throw new IllegalStateException("could not load " + FILE, e);
+            }
+        }
+        return defaultRules;
+    }
+
+    static RoadRules load(InputStream file) throws ParserConfigurationException, IOException, SAXException {
+        Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file);
+        Element root = document.getDocumentElement();
+        root.normalize();
+
+        RoadRules rules = new RoadRules();
+        rules.defaultSpeed = intOf(root, "default-speed");
+
+        NodeList nodes = root.getChildNodes();
+        for (int i = 0; i < nodes.getLength(); i++) {
+            if (!(nodes.item(i) instanceof Element)) continue;
+            Element rule = (Element) nodes.item(i);
+            switch (rule.getTagName()) {
+                case "highway":
+                    var highway = new HighwayRule(rule.getAttribute("value"), isYes(rule, "road"), modesOf(rule), intOf(rule, "speed"));
+                    if (isYes(rule, "prefix")) rules.highwayPrefixes.add(highway);
+                    else rules.highways.put(highway.value, highway);
+                    break;
+                case "set":
+                    rules.sets.add(tagRuleOf(rule));
+                    break;
+                case "clear":
+                    rules.clears.add(tagRuleOf(rule));
+                    break;
+                case "oneway":
+                    rules.oneways.add(tagRuleOf(rule));
+                    break;
+                case "contraflow":
+                    rules.contraflows.add(tagRuleOf(rule));
+                    break;
+                case "maxspeed":
+                    rules.maxSpeedKey = TagTable.register(rule.getAttribute("key"));
+                    NodeList aliases = rule.getElementsByTagName("alias");
+                    for (int j = 0; j < aliases.getLength(); j++) {
+                        Element alias = (Element) aliases.item(j);
+                        rules.speedAliases.put(alias.getAttribute("value"), intOf(alias, "speed"));
+                    }
+                    break;
+                default:
+                    throw new InputMismatchException("unknown road rule: " + rule.getTagName());
+            }
+        }
+
+        // Longest prefix wins
+        rules.highwayPrefixes.sort(Comparator.comparingInt((HighwayRule h) -> h.value.length()).reversed());
+        return rules;
+    }
+
+    /**
+     * Classifies a way by its tags, the result is written to the specified match
+     */
+    void classify(TagTable tags, Match match) {
+        HighwayRule highway = highwayOf(tags.get(highwayKey));
+
+        boolean road = highway != null && highway.road;
+        int modes = highway != null ? highway.modes : 0;
+        int speedOverride = 0;
+        for (TagRule rule : sets) {
+            if (!rule.matches(tags)) continue;
+            road |= rule.road;
+            modes |= rule.modes;
+            if (rule.speed > 0) speedOverride = rule.speed;
+        }
+        for (TagRule rule : clears) {
+            if (rule.matches(tags)) modes &= ~rule.modes;
+        }
+
+        int oneway = 0, strictOneway = 0, contraflow = 0;
+        boolean roundabout = false;
+        for (TagRule rule : oneways) {
+            if (!rule.matches(tags)) continue;
+            if (rule.contraflow) oneway |= rule.modes;
+            else strictOneway |= rule.modes;
+            roundabout |= rule.roundabout;
+        }
+        for (TagRule rule : contraflows) {
+            if (rule.matches(tags)) contraflow |= rule.modes;
+        }
+
+        int forward = modes;
+        int backward = modes & ~strictOneway & ~(oneway & ~contraflow);
+        if (roundabout) {
+            forward |= ROUNDABOUT;
+            backward |= ROUNDABOUT;
+        }
+
+        match.road = road;
+        match.roundabout = roundabout;
+        match.forward = forward;
+        match.backward = backward;
+        match.speedLimit = (short) (speedOverride > 0 ? speedOverride : speedOf(tags, highway));
+    }
+
+    private HighwayRule highwayOf(String value) {
+        if (value.isEmpty()) return null;
+        HighwayRule rule = highways.get(value);
+        if (rule != null) return rule;
+        for (HighwayRule prefix : highwayPrefixes) {
+            if (value.startsWith(prefix.value)) return prefix;
+        }
+        return null;
+    }
+
+    private int speedOf(TagTable tags, HighwayRule highway) {
+        String maxSpeed = maxSpeedKey >= 0 ? tags.get(maxSpeedKey) : "";
+        if (isNumber(maxSpeed)) return Integer.parseInt(maxSpeed);
+
+        Integer alias = speedAliases.get(maxSpeed);
+        if (alias != null) return alias;
+
+        if (highway != null && highway.speed > 0) return highway.speed;
+        return defaultSpeed;
+    }
+
+
+    /////////// Utility //////////
+
+    private static boolean isNumber(String value) {
+        if (value.isEmpty() || value.length() > 4) return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private static TagRule tagRuleOf(Element rule) {
+        return new TagRule(
+                TagTable.register(rule.getAttribute("key")),
+                rule.getAttribute("value"),
+                isYes(rule, "road"),
+                modesOf(rule),
+                intOf(rule, "speed"),
+                !rule.getAttribute("contraflow").equals("no"),
+                isYes(rule, "roundabout")
+        );
+    }
+
+    private static int modesOf(Element rule) {
+        int modes = 0;
+        for (String mode : rule.getAttribute("modes").split(" ")) {
+            switch (mode) {
+                case "motor":
+                    modes |= MOTOR;
+                    break;
+                case "bicycle":
+                    modes |= BICYCLE;
+                    break;
+                case "foot":
+                    modes |= FOOT;
+                    break;
+                case "":
+                    break;
+                default:
+                    throw new InputMismatchException("unknown mode: " + mode);
+            }
+        }
+        return modes;
+    }
+
+    private static boolean isYes(Element rule, String attribute) {
+        return rule.getAttribute(attribute).equals("yes");
+    }
+
+    private static int intOf(Element rule, String attribute) {
+        String value = rule.getAttribute(attribute);
+        return value.isEmpty() ? 0 : Integer.parseInt(value);
+    }
+}
@@ -0,0 +1,126 @@
+package dankmap.osm;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A small open-addressed map from interned tag key ids to tag values,
+ * filled once per element such that repeated lookups of the same tags
+ * do not rescan the tag list. Only keys registered by {@link #register(String)}
+ * are stored, all other tags are skipped on load.
+ * <p>
+ * Clearing is O(1), slots are invalidated by bumping a generation counter.
+ */
+class TagTable {
+    private static final Map<String, Integer> KEY_IDS = new HashMap<>();
+
+    private int[] keys;
+    private String[] values;
+    private int[] generations;
+    private int generation = 1;
+    private int mask;
+    private int size;
+
+    TagTable() {
+        this(16);
+    }
+
+    TagTable(int capacity) {
+        int slots = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        keys = new int[slots];
+        values = new String[slots];
+        generations = new int[slots];
+        mask = slots - 1;
+    }
+
+    /**
+     * @return the interned id of the key, registering it if it is new
+     */
+    static synchronized int register(String key) {
+        return KEY_IDS.computeIfAbsent(key, k -> KEY_IDS.size());
+    }
+
+    /**
+     * @return the interned id of the key, or -1 if the key has not been registered
+     */
+    static int idOf(String key) {
+        Integer id = KEY_IDS.get(key);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Clears the table and adds the registered keys of [ k0, v0, k1, v1, ... ],
+     * if a key occurs more than once the first value is kept, like {@link OSMHelper#getValue}
+     */
+    void load(List<String> tags) {
+        clear();
+        for (int i = 0; i < tags.size(); i += 2) {
+            int id = idOf(tags.get(i));
+            if (id >= 0) putIfAbsent(id, tags.get(i + 1));
+        }
+    }
+
+    void putIfAbsent(int key, String value) {
+        if ((size + 1) * 2 > keys.length) grow();
+        int slot = slot(key);
+        if (generations[slot] == generation) return;
+        keys[slot] = key;
+        values[slot] = value;
+        generations[slot] = generation;
+        size++;
+    }
+
+    /**
+     * @return the value of the key, or the empty string if absent
+     */
+    String get(int key) {
+        int slot = slot(key);
+        return generations[slot] == generation ? values[slot] : "";
+    }
+
+    String get(String key) {
+        int id = idOf(key);
+        return id < 0 ? "" : get(id);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        size = 0;
+        if (++generation == 0) {
+            Arrays.fill(generations, 0);
+            generation = 1;
+        }
+    }
+
+    // Slot holding the key, or the empty slot it belongs in
+    private int slot(int key) {
+        int slot = (key * 0x9E3779B9) >>> 16 & mask;
+        while (generations[slot] == generation && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        String[] oldValues = values;
+        int[] oldGenerations = generations;
+        int oldGeneration = generation;
+
+        keys = new int[oldKeys.length * 2];
+        values = new String[oldKeys.length * 2];
+        generations = new int[oldKeys.length * 2];
+        mask = keys.length - 1;
+        generation = 1;
+        size = 0;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldGenerations[i] == oldGeneration) putIfAbsent(oldKeys[i], oldValues[i]);
+        }
+    }
+}
@@ -226,6 +226,32 @@ public class VectorMath {
         return dist;
     }
 
+    /**
+     * Allocation free variant of {@link #shortestDistPointToSegment(double[], double[], double[])},
+     * the projection of m onto the segment is clamped to the segment, such that
+     * the distance to the nearest endpoint is used when the projection falls outside of it.
+     *
+     * @return  the squared shortest distance from the point (mx,my) to the
+     *          line segment between (tx,ty) and (px,py)
+     */
+    public static double sqDistPointToSegment(double mx, double my, double tx, double ty, double px, double py) {
+        double dx = px - tx;
+        double dy = py - ty;
+        double sqLength = dx * dx + dy * dy;
+
+        // Degenerate segment, t and p coincide
+        if (sqLength == 0) return sqDist(mx, my, tx, ty);
+
+        // Projection of tm onto tp, relative to the length of tp
+        double lambda = ((mx - tx) * dx + (my - ty) * dy) / sqLength;
+        if (lambda < 0) lambda = 0;
+        else if (lambda > 1) lambda = 1;
+
+        double kx = tx + lambda * dx - mx;
+        double ky = ty + lambda * dy - my;
+        return kx * kx + ky * ky;
+    }
+
 
     /////////// Utility //////////
 
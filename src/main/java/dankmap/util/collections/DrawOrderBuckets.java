@@ -0,0 +1,119 @@
+package dankmap.util.collections;
+
+import dankmap.model.elements.MapElement;
+
+import java.util.*;
+
+/**
+ * A collection of MapElements bucketed by their draw order, such that
+ * iteration is in draw order without sorting. Adding is O(1).
+ * <p>
+ * Elements of one bucket share a DrawType, which lets the renderer
+ * set the state of the GraphicsContext once per bucket.
+ */
+public class DrawOrderBuckets extends AbstractCollection<MapElement> {
+    // Draw orders are bytes, compared signed like MapElement.compareByDrawOrder
+    private static final int BUCKETS = 256;
+    private static final int OFFSET = 128;
+
+    @SuppressWarnings("unchecked")
+    private final List<MapElement>[] buckets = (List<MapElement>[]) new List<?>[BUCKETS];
+    private int size;
+    private int first = BUCKETS;
+    private int last = -1;
+
+    public DrawOrderBuckets() {
+    }
+
+    public DrawOrderBuckets(Collection<? extends MapElement> elements) {
+        addAll(elements);
+    }
+
+    @Override
+    public boolean add(MapElement element) {
+        int index = element.getDrawOrder() + OFFSET;
+        List<MapElement> bucket = buckets[index];
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            buckets[index] = bucket;
+        }
+        bucket.add(element);
+        if (index < first) first = index;
+        if (index > last) last = index;
+        size++;
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = first; i <= last; i++) {
+            if (buckets[i] != null) buckets[i].clear();
+        }
+        size = 0;
+        first = BUCKETS;
+        last = -1;
+    }
+
+    /**
+     * Copies the buckets without the removed elements and with the added elements,
+     * elements are compared by identity
+     *
+     * @return the copy, this is left unchanged
+     */
+    public DrawOrderBuckets copy(Collection<MapElement> removed, Collection<MapElement> added) {
+        Set<MapElement> skipped = Collections.newSetFromMap(new IdentityHashMap<>());
+        skipped.addAll(removed);
+
+        DrawOrderBuckets copy = new DrawOrderBuckets();
+        for (int i = first; i <= last; i++) {
+            if (buckets[i] == null) continue;
+            for (MapElement element : buckets[i]) {
+                if (!skipped.contains(element)) copy.add(element);
+            }
+        }
+        copy.addAll(added);
+        return copy;
+    }
+
+    /**
+     * @return the non-empty buckets in draw order, each holding elements of a single draw order
+     */
+    public List<List<MapElement>> getBuckets() {
+        List<List<MapElement>> result = new ArrayList<>();
+        for (int i = first; i <= last; i++) {
+            if (buckets[i] != null && !buckets[i].isEmpty()) result.add(Collections.unmodifiableList(buckets[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Iterates the elements in draw order, elements of equal draw order in the order they were added
+     */
+    @Override
+    public Iterator<MapElement> iterator() {
+        return new Iterator<>() {
+            private int bucket = first;
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                while (bucket <= last && (buckets[bucket] == null || index >= buckets[bucket].size())) {
+                    bucket++;
+                    index = 0;
+                }
+                return bucket <= last;
+            }
+
+            @Override
+            public MapElement next() {
+                if (!hasNext()) throw new NoSuchElementException();
+                return buckets[bucket].get(index++);
+            }
+        };
+    }
+}
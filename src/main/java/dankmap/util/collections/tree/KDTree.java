@@ -8,17 +8,29 @@ import dankmap.util.VectorMath;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 
 import static java.lang.Float.*;
 
 
+/**
+ * A KD-tree of MapElements by their centers. Each element may carry a level, and every
+ * node the lowest level of its subtree, such that a search of the levels below some
+ * level skips the subtrees holding none of them.
+ */
 public class KDTree implements Serializable {
+    // Subtrees of fewer elements are built by a single thread
+    private static final int PARALLEL_THRESHOLD = 4096;
 
-    public List<MapElement> toAdd;
+    // Elements added since the last build, guarded by the lock of the tree
+    private final List<Centered> toAdd;
     // The universe of our KD-tree
-    public float minX, minY, maxX, maxY;
-    //Root node of the tree.
-    private Node root;
+    private final float minX = NEGATIVE_INFINITY, minY = NEGATIVE_INFINITY, maxX = POSITIVE_INFINITY, maxY = POSITIVE_INFINITY;
+    //Root node of the tree. Nodes are never modified once built, a build publishes a new root
+    //at once, such that queries read the root once and traverse it without locks.
+    private volatile Node root;
 
     public Node getRoot() {
         return root;
@@ -27,65 +39,193 @@ public class KDTree implements Serializable {
     //primary constructor of KDTree.
     public KDTree() {
         toAdd = new ArrayList<>();
-        initializeBounds();
     }
 
-
-    private void initializeBounds() {
-        minX = NEGATIVE_INFINITY;
-        minY = NEGATIVE_INFINITY;
-        maxX = POSITIVE_INFINITY;
-        maxY = POSITIVE_INFINITY;
-    }
-    //builds the tree and clears temporary list of mapElements toAdd.
-    public void buildTree() {
-        root = buildKDTree(toAdd, true);
+    //builds the tree of the added elements, replacing the tree of any earlier build, and clears toAdd.
+    public synchronized void buildTree() {
+        Centered[] keys = toAdd.toArray(new Centered[0]);
+        BuildTask task = new BuildTask(keys, 0, keys.length - 1, true, true);
+        root = ForkJoinTask.inForkJoinPool() ? task.invoke() : ForkJoinPool.commonPool().invoke(task);
         toAdd.clear();
     }
 
     /**
-     * @param mapElements List of MapElements, in each recursive call, this is sorted by split-coordinate and split into two list, split at the lowest index median value.
-     * @param splitVertical  toggles on each call, to discern between splitting vertically or horizontally, is called with value=true.
-     * @return a Node, holding pointers to left and right nodes, if these exist. if the node is a leaf, it has two null references instead.
+     * Builds the subtree of keys[lo..hi] by selecting the median in place, such that each
+     * level costs linear time rather than a sort. Subtrees larger than PARALLEL_THRESHOLD
+     * are built concurrently.
      */
-    private Node buildKDTree(List<MapElement> mapElements, boolean splitVertical) {
-        Node node;
-        if (mapElements.isEmpty()) {
-            return null;
-        } else if (mapElements.size() == 1) {
-            return new Node(mapElements.get(0), null, null);
-        } else {
-            //sorts by either x or y coordinate 
-            if (splitVertical) {
-                mapElements.sort(Comparator.comparing(MapElement::getCenterX));
-            } else {
-                mapElements.sort(Comparator.comparing(MapElement::getCenterY));
+    private static class BuildTask extends RecursiveTask<Node> {
+        private static final long serialVersionUID = 1L;
+
+        private final Centered[] keys;
+        private final int lo, hi;
+        private final boolean splitVertical, isRoot;
+
+        BuildTask(Centered[] keys, int lo, int hi, boolean splitVertical, boolean isRoot) {
+            this.keys = keys;
+            this.lo = lo;
+            this.hi = hi;
+            this.splitVertical = splitVertical;
+            this.isRoot = isRoot;
+        }
+
+        @Override
+        protected Node compute() {
+            if (hi - lo + 1 <= PARALLEL_THRESHOLD) {
+                return build(keys, lo, hi, splitVertical, isRoot);
+            }
+            int median = split(keys, lo, hi, splitVertical, isRoot);
+            BuildTask left = new BuildTask(keys, lo, median - 1, !splitVertical, false);
+            BuildTask right = new BuildTask(keys, median + 1, hi, !splitVertical, false);
+            left.fork();
+            Node rightNode = right.compute();
+            return new Node(keys[median], left.join(), rightNode);
+        }
+
+        private static Node build(Centered[] keys, int lo, int hi, boolean splitVertical, boolean isRoot) {
+            if (lo > hi) {
+                return null;
+            }
+            if (lo == hi) {
+                return new Node(keys[lo], null, null);
+            }
+            int median = split(keys, lo, hi, splitVertical, isRoot);
+            return new Node(keys[median],
+                    build(keys, lo, median - 1, !splitVertical, false),
+                    build(keys, median + 1, hi, !splitVertical, false));
+        }
+
+        /**
+         * Splits keys[lo..hi] as sorting and taking the lowest index of the median value did:
+         * keys less than the median to the left, keys greater than or equal to the right, and
+         * the first key of the median value by the order the sort left them in at the split.
+         * The sorts were stable, so that order is insertion order at the root, and below the
+         * root the order of the other coordinate, then insertion.
+         *
+         * @return the index of the split key
+         */
+        private static int split(Centered[] keys, int lo, int hi, boolean splitVertical, boolean isRoot) {
+            // keys[lo..last] are less than or equal to the median, those equal to it end at last
+            int last = KDTreeUtilities.median(keys, lo, hi, splitVertical);
+            float median = keys[last].coordinate(splitVertical);
+
+            int first = lo;
+            for (int i = lo; i <= last; i++) {
+                if (compare(keys[i].coordinate(splitVertical), median) < 0) {
+                    KDTreeUtilities.swap(keys, i, first++);
+                }
+            }
+
+            int chosen = first;
+            for (int i = first + 1; i <= last; i++) {
+                if (precedes(keys[i], keys[chosen], splitVertical, isRoot)) {
+                    chosen = i;
+                }
+            }
+            KDTreeUtilities.swap(keys, first, chosen);
+            return first;
+        }
+
+        private static boolean precedes(Centered a, Centered b, boolean splitVertical, boolean isRoot) {
+            if (!isRoot) {
+                int other = compare(a.coordinate(!splitVertical), b.coordinate(!splitVertical));
+                if (other != 0) {
+                    return other < 0;
+                }
             }
+            return a.index < b.index;
+        }
+    }
+
+    // An element keyed by its center, which is computed from the bounds of the element once
+    private static class Centered implements XYSupplier {
+        private final MapElement element;
+        private final int index, level;
+        private final float x, y;
+
+        Centered(MapElement element, int index, int level) {
+            this.element = element;
+            this.index = index;
+            this.level = level;
+            this.x = element.getCenterX();
+            this.y = element.getCenterY();
+        }
+
+        float coordinate(boolean splitVertical) {
+            return splitVertical ? x : y;
+        }
+
+        @Override
+        public float getX() {
+            return x;
+        }
 
-            int median = median(mapElements, splitVertical);
+        @Override
+        public float getY() {
+            return y;
+        }
 
-            List<MapElement> leftList = mapElements.subList(0, median);
-            List<MapElement> rightList = mapElements.subList(median + 1, mapElements.size());
+        @Override
+        public float getCenterX() {
+            return x;
+        }
 
-            //@Todo find out which way of writing this we see most fitting.
-            node = new Node();
-            node.element = mapElements.get(median);
-            node.left = buildKDTree(leftList, !splitVertical);
-            node.right = buildKDTree(rightList, !splitVertical);
+        @Override
+        public float getCenterY() {
+            return y;
         }
-        return node;
     }
 
-    public List<MapElement> rangeSearch(List<MapElement> results, Bounds queryRange) {
+    /**
+     * Adds the elements intersecting the query range to the results
+     *
+     * @return the results
+     */
+    public <C extends Collection<MapElement>> C rangeSearch(C results, Bounds queryRange) {
+        return rangeSearch(results, queryRange, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Adds the elements of levels below the given level intersecting the query range to the results
+     *
+     * @return the results
+     */
+    public <C extends Collection<MapElement>> C rangeSearch(C results, Bounds queryRange, int levels) {
         Bounds universe = new Bounds(minX, minY, maxX, maxY);
-        search(results, root, universe, queryRange, true);
+        search(results, root, universe, queryRange, true, levels);
         return results;
     }
 
 
 
-    private void search(List<MapElement> results, Node node, Bounds region, Bounds queryRange, boolean splitVertical) {
-        if (node == null) {
+    /**
+     * Adds the elements found by a range search of the query range, which are not found
+     * by a range search of the excluded range, ie. the elements entering a view moving
+     * from the excluded range to the query range. Subtrees within the excluded range
+     * are skipped, such that the cost scales with the part of the query range outside
+     * of the excluded range.
+     *
+     * @return the results
+     */
+    public <C extends Collection<MapElement>> C deltaSearch(C results, Bounds queryRange, Bounds excludedRange) {
+        return deltaSearch(results, queryRange, excludedRange, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Delta search of the elements of levels below the given level
+     *
+     * @return the results
+     * @see #deltaSearch(Collection, Bounds, Bounds)
+     */
+    public <C extends Collection<MapElement>> C deltaSearch(C results, Bounds queryRange, Bounds excludedRange, int levels) {
+        Bounds universe = new Bounds(minX, minY, maxX, maxY);
+        delta(results, root, universe, queryRange, excludedRange, true, levels);
+        return results;
+    }
+
+    private void search(Collection<MapElement> results, Node node, Bounds region, Bounds queryRange, boolean splitVertical, int levels) {
+        // The subtree holds no element of the searched levels
+        if (node == null || node.minLevel >= levels) {
             return;
         }
 
@@ -95,38 +235,69 @@ public class KDTree implements Serializable {
 
         // If the region in the call is fully contained in the query range the subtree is reported...
         if (queryRange.contains(region) && !node.isLeaf()) {
-            reportSubTree(results, node);
+            reportSubTree(results, node, levels);
             return;
 
             //else we check if the query range intersects the two regions divided by the splitting value of the current node.
         } else {
             if (queryRange.intersects(regionLeft) && node.hasLeft()) {
-                search(results, node.left, regionLeft, queryRange, !splitVertical);
+                search(results, node.left, regionLeft, queryRange, !splitVertical, levels);
             }
             if (queryRange.intersects(regionRight) && node.hasRight()) {
-                search(results, node.right, regionRight, queryRange, !splitVertical);
+                search(results, node.right, regionRight, queryRange, !splitVertical, levels);
             }
         }
         // if the current nodes' elements' bounds intersects with the query range the MapElement is reported
-        if (queryRange.intersects(node.element.getBounds())) {
+        if (node.level < levels && queryRange.intersects(node.element.getBounds())) {
             results.add(node.element);
         }
     }
 
-    // Reports every nodes' MapElement in a given subtree starting at the root of the subtree
-    private void reportSubTree(List<MapElement> results, Node node) {
+    private void delta(Collection<MapElement> results, Node node, Bounds region, Bounds queryRange, Bounds excludedRange, boolean splitVertical, int levels) {
+        // Every element of the subtree is found by a search of the excluded range, or none is of the searched levels
+        if (node == null || node.minLevel >= levels || excludedRange.contains(region)) {
+            return;
+        }
+
+        if (node.level < levels && isReported(node, region, queryRange) && !isReported(node, region, excludedRange)) {
+            results.add(node.element);
+        }
 
-        if (node == null) {
+        Bounds regionLeft = regionLeft(region, node, splitVertical);
+        Bounds regionRight = regionRight(region, node, splitVertical);
+        if (queryRange.intersects(regionLeft) && node.hasLeft()) {
+            delta(results, node.left, regionLeft, queryRange, excludedRange, !splitVertical, levels);
+        }
+        if (queryRange.intersects(regionRight) && node.hasRight()) {
+            delta(results, node.right, regionRight, queryRange, excludedRange, !splitVertical, levels);
+        }
+    }
+
+    // Whether search reports the node of the region, either as part of a subtree within
+    // the query range or as a visited node intersecting it
+    private boolean isReported(Node node, Bounds region, Bounds queryRange) {
+        if (queryRange.contains(region)) {
+            return true;
+        }
+        return queryRange.intersects(region) && queryRange.intersects(node.element.getBounds());
+    }
+
+    // Reports every nodes' MapElement of the searched levels in a given subtree starting at the root of the subtree
+    private void reportSubTree(Collection<MapElement> results, Node node, int levels) {
+
+        if (node == null || node.minLevel >= levels) {
             return;
         }
 
-        results.add(node.element);
+        if (node.level < levels) {
+            results.add(node.element);
+        }
 
         if (node.hasLeft()) {
-            reportSubTree(results, node.left);
+            reportSubTree(results, node.left, levels);
         }
         if (node.hasRight()) {
-            reportSubTree(results, node.right);
+            reportSubTree(results, node.right, levels);
         }
     }
 
@@ -198,26 +369,17 @@ public class KDTree implements Serializable {
         }
     }
 
-    public void addElement(MapElement element) {
-        toAdd.add(element);
+    public synchronized void addElement(MapElement element) {
+        addElement(element, 0);
     }
 
-
-    //                    UTILITIES                 //
-
-    //returns the median as an index of a List, ensures that we choose the lowest index with the median value.
-    public int median(List<MapElement> elements, boolean splitVertical) {
-        int median;
-
-        median = (elements.size() - 1) / 2; //chooses the floor value
-
-        while (median != 0 && splitCoord(elements.get(median), splitVertical) == splitCoord(elements.get(median - 1), splitVertical)) {
-            median--;
-        }
+    //adds an element of the given level, it is only found by searches of higher levels.
+    public synchronized void addElement(MapElement element, int level) {
+        toAdd.add(new Centered(element, toAdd.size(), level));
+    }
 
 
-        return median;
-    }
+    //                    UTILITIES                 //
 
     //Checks the orthogonal distance from the queryPoint to the splitting line.
     public double orthogonalDistance(XYSupplier queryPoint, Node splittingPoint, boolean splitVertical) {
@@ -282,26 +444,31 @@ public class KDTree implements Serializable {
         return false;
     }
 
-    public int size() {
+    //returns the number of elements added since the last build.
+    public synchronized int size() {
         return toAdd.size();
     }
 
 
     /**
-     * Nodes in our KD-tree. holds a reference to a left and right child and a reference to a mapElement.
+     * Nodes in our KD-tree. holds a reference to a left and right child and a reference to a mapElement,
+     * the level of the element and the lowest level of the subtree.
      */
     private static class Node implements Serializable{
-        private Node left;
-        private Node right;
-        private MapElement element;
-
-        public Node() {
-        }
+        private final Node left;
+        private final Node right;
+        private final MapElement element;
+        private final int level, minLevel;
 
-        public Node(MapElement element, Node left, Node right) {
-            this.element = element;
+        private Node(Centered key, Node left, Node right) {
+            this.element = key.element;
             this.left = left;
             this.right = right;
+            this.level = key.level;
+            int minLevel = level;
+            if (left != null) minLevel = Math.min(minLevel, left.minLevel);
+            if (right != null) minLevel = Math.min(minLevel, right.minLevel);
+            this.minLevel = minLevel;
         }
 
         private boolean hasLeft() {
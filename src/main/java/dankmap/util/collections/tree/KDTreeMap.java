@@ -5,78 +5,102 @@ import dankmap.model.XYSupplier;
 
 import java.io.Serializable;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static dankmap.util.collections.tree.KDTreeUtilities.*;
-import static java.lang.Float.*;
-import static java.util.Arrays.copyOfRange;
 
 /**
- * Maintains a fully balanced KD-tree by lazily
- * reconstructing the tree. This is highly inefficient
- * for frequent insertions/deletions and even more so
- * the larger the tree becomes.
+ * A map of points kept in balanced KD-trees by the logarithmic method
+ * (Bentley-Saxe): bucket i is either empty or a balanced tree of at most
+ * 2^i entries. An insertion merges the full buckets below the first empty
+ * one into it, such that an entry is rebuilt O(log n) times and insertions
+ * cost amortized O(log^2 n). Lookups search every bucket, O(log^2 n).
+ * <p>
+ * Removed entries are marked and dropped when their bucket is merged, all
+ * buckets are rebuilt once more entries are removed than remain.
+ * <p>
+ * Nodes are never modified, a writer builds a new version of the map, sharing
+ * the untouched buckets and copying the path to a changed node, and publishes
+ * it at once. Readers use the version current when they start and need no
+ * locks, such that the map can be read by any number of threads while written.
+ * Writers are serialized.
  */
 public class KDTreeMap<K extends XYSupplier, V> implements Map<K, V>, Serializable {
-    private static final long serialVersionUID = 4210652501620949128L;
+    private static final long serialVersionUID = -8520716423447311870L;
 
     /**
-     * A node of the tree
+     * A node of the tree, located at its key. A removed entry has no value
      */
-    private class Node implements Serializable {
+    private class Node implements XYSupplier, Serializable {
         private static final long serialVersionUID = 3114187454544539263L;
 
-        K key;
-        V value;
-        Node left, right;
+        final K key;
+        final V value;
+        final Node left, right;
 
         Node(K key, V value, Node left, Node right) {
             this.key = key;
             this.value = value;
             this.left = left;
             this.right = right;
-
-            minX = min(minX, key.getX());
-            minY = min(minY, key.getY());
-            maxX = max(maxX, key.getX());
-            maxY = max(maxY, key.getY());
         }
 
         private boolean isLeaf() {
             return left == null && right == null;
         }
+
+        @Override
+        public float getX() {
+            return key.getX();
+        }
+
+        @Override
+        public float getY() {
+            return key.getY();
+        }
+
+        @Override
+        public float getCenterX() {
+            return key.getCenterX();
+        }
+
+        @Override
+        public float getCenterY() {
+            return key.getCenterY();
+        }
     }
 
-    // Root of this tree
-    private Node root;
+    /**
+     * An immutable version of the map
+     */
+    private class Version implements Serializable {
+        private static final long serialVersionUID = -3167390658174529212L;
+
+        // Roots of the buckets, bucket i holds at most 2^i entries or is null
+        final List<Node> buckets;
 
-    // Size of this tree
-    private int size;
+        // Number of entries of the map
+        final int size;
 
-    // Boundaries of the universe of elements, that is :
-    // for any key k with (x,y) in this tree :
-    //  minX <= x <= maxX
-    //  minY <= y <= maxY
-    private float minX, minY, maxX, maxY;
+        // Number of removed entries still in the buckets
+        final int removed;
 
-    // If the tree is balanced
-    private boolean isBalanced;
+        Version(List<Node> buckets, int size, int removed) {
+            this.buckets = Collections.unmodifiableList(buckets);
+            this.size = size;
+            this.removed = removed;
+        }
+    }
 
-    // Contains recently added elements
-    private Map<K, V> recentlyAdded = new HashMap<>();
+    // The current version, replaced as a whole by writers
+    private volatile Version version;
 
 
     /**
      * Default constructor
      */
     public KDTreeMap() {
-        minX = POSITIVE_INFINITY;
-        minY = POSITIVE_INFINITY;
-        maxX = NEGATIVE_INFINITY;
-        maxY = NEGATIVE_INFINITY;
-        recentlyAdded = new HashMap<>();
-        size = 0;
+        version = new Version(new ArrayList<>(), 0, 0);
     }
 
     /**
@@ -84,12 +108,13 @@ public class KDTreeMap<K extends XYSupplier, V> implements Map<K, V>, Serializab
      * specified map
      */
     public KDTreeMap(Map<K, V> map) {
-        minX = POSITIVE_INFINITY;
-        minY = POSITIVE_INFINITY;
-        maxX = NEGATIVE_INFINITY;
-        maxY = NEGATIVE_INFINITY;
-        recentlyAdded.putAll(map);
-        reconstruct();
+        List<Node> nodes = new ArrayList<>(map.size());
+        for (Entry<K, V> entry : map.entrySet()) {
+            nodes.add(new Node(entry.getKey(), entry.getValue(), null, null));
+        }
+        List<Node> buckets = new ArrayList<>();
+        store(buckets, nodes, level(nodes.size()));
+        version = new Version(buckets, nodes.size(), 0);
     }
 
     /**
@@ -97,13 +122,9 @@ public class KDTreeMap<K extends XYSupplier, V> implements Map<K, V>, Serializab
      */
     @Override
     public V get(Object o) {
-        checkBalance();
-
-        if (root == null) return null;
-
         @SuppressWarnings("unchecked") K k = (K) o;
 
-        Node found = find(k, root, true);
+        Node found = find(version, k);
         if (found == null) return null;
 
         return found.value;
@@ -114,54 +135,39 @@ public class KDTreeMap<K extends XYSupplier, V> implements Map<K, V>, Serializab
      * or null if no such key exists
      */
     public K getKey(XYSupplier k) {
-        checkBalance();
-
-        if (root == null) return null;
-
-        Node found = find(k, root, true);
-        if (found == null) return null;
+        Node found = find(version, k);
+        if (found == null || found.value == null) return null;
 
         return found.key;
     }
 
-    private void update(K k, V v) {
-        Node node = find(k, root, true);
-
-        if (node == null) {
-            throw new NoSuchElementException(k.toString());
-        }
-
-        node.value = v;
-    }
-
     /**
      * @inheritDoc
      */
     @Override
-    public V put(K k, V v) {
+    public synchronized V put(K k, V v) {
         if (v == null || k == null) {
             throw new NullPointerException();
         }
 
-        if (root == null) {
-            V replaced = recentlyAdded.put(k, v);
-            if (replaced == null) {
-                isBalanced = false;
-                size++;
-            }
-            return replaced;
-        }
-
-        Node node = find(k, root, true);
+        Version current = version;
+        int bucket = locate(current, k);
 
-        if (node == null) {
-            isBalanced = false;
-            size++;
-            return recentlyAdded.put(k, v);
+        if (bucket < 0) {
+            version = insert(current, new Node(k, v, null, null));
+            return null;
         }
 
-        V temp = node.value;
-        node.value = v;
+        V temp = find(k, current.buckets.get(bucket), true).value;
+        List<Node> buckets = new ArrayList<>(current.buckets);
+        if (temp == null) {
+            // Revives the removed entry of the same point
+            buckets.set(bucket, replace(buckets.get(bucket), k, k, v, true));
+            version = new Version(buckets, current.size + 1, current.removed - 1);
+        } else {
+            buckets.set(bucket, replace(buckets.get(bucket), k, null, v, true));
+            version = new Version(buckets, current.size, current.removed);
+        }
         return temp;
     }
 
@@ -170,46 +176,42 @@ public class KDTreeMap<K extends XYSupplier, V> implements Map<K, V>, Serializab
      */
     @Override
     public void putAll(Map<? extends K, ? extends V> m) {
-        checkBalance();
         for (Entry<? extends K, ? extends V> entry : m.entrySet()) {
             put(entry.getKey(), entry.getValue());
         }
     }
 
     @Override
-    public V remove(Object key) {
-        checkBalance();
-
+    public synchronized V remove(Object key) {
         @SuppressWarnings("unchecked") K k = (K) key;
-        Node found = find(k, root, true);
-        if (found == null) return null;
+        Version current = version;
+        int bucket = locate(current, k);
+        if (bucket < 0) return null;
 
-        V val = found.value;
-        found.value = null;
+        V val = find(k, current.buckets.get(bucket), true).value;
+        if (val == null) return null;
+
+        List<Node> buckets = new ArrayList<>(current.buckets);
+        buckets.set(bucket, replace(buckets.get(bucket), k, null, null, true));
+        Version removed = new Version(buckets, current.size - 1, current.removed + 1);
+
+        version = removed.removed > removed.size ? rebuild(removed) : removed;
 
         return val;
     }
 
     @Override
-    public void clear() {
-        recentlyAdded.clear();
-        root = null;
-        size = 0;
-        minX = POSITIVE_INFINITY;
-        minY = POSITIVE_INFINITY;
-        maxX = NEGATIVE_INFINITY;
-        maxY = NEGATIVE_INFINITY;
+    public synchronized void clear() {
+        version = new Version(new ArrayList<>(), 0, 0);
     }
 
     @Override
     public boolean containsKey(Object key) {
-        checkBalance();
         return get(key) != null;
     }
 
     @Override
     public boolean containsValue(Object value) {
-        checkBalance();
         for (V v : values()) {
             if (v.equals(value)) return true;
         }
@@ -218,17 +220,12 @@ public class KDTreeMap<K extends XYSupplier, V> implements Map<K, V>, Serializab
 
     @Override
     public Set<K> keySet() {
-        checkBalance();
-        Collection<Node> results = new LinkedList<>();
-        return keys(collectTree(root, results));
+        return keys(collectAll(version));
     }
 
     @Override
     public Set<Entry<K, V>> entrySet() {
-        checkBalance();
-        Collection<Node> results = new ArrayList<>();
-        collectTree(root, results);
-        return results.stream()
+        return collectAll(version).stream()
                 .map((nd) -> new Entry<K, V>() {
                     K k = nd.key;
                     V v = nd.value;
@@ -258,92 +255,96 @@ public class KDTreeMap<K extends XYSupplier, V> implements Map<K, V>, Serializab
 
     @Override
     public Collection<V> values() {
-        checkBalance();
-        Collection<Node> results = new LinkedList<>();
-        return values(collectTree(root, results));
+        return values(collectAll(version));
     }
 
     public int size() {
-        return size;
+        return version.size;
     }
 
     public boolean isEmpty() {
-        return size == 0;
+        return size() == 0;
     }
 
 
 
-    public Collection<K> nearestKeys(XYSupplier query, int limit) {
-        checkBalance();
-        return keys(nearestNodes(query, limit));
+    /**
+     * @return the keys of the limit entries nearest to the query, nearest first
+     */
+    public List<K> nearestKeys(XYSupplier query, int limit) {
+        List<Node> nodes = nearestNodes(query, limit);
+        List<K> keys = new ArrayList<>(nodes.size());
+        for (Node node : nodes) keys.add(node.key);
+        return keys;
     }
 
 
+    // Collects the entries of every bucket, removed entries are skipped
+    private List<Node> collectAll(Version version) {
+        List<Node> results = new ArrayList<>(version.size);
+        for (Node bucket : version.buckets) {
+            if (bucket != null) collectTree(bucket, results);
+        }
+        return results;
+    }
+
     private Collection<Node> collectTree(Node node, Collection<Node> results) {
-        results.add(node);
-        Node left = node.left, right = node.right;
-        if (left != null) collectTree(left, results);
-        if (right != null) collectTree(right, results);
+        collectLive(node, results);
         return results;
     }
 
-    private Collection<Node> nearestNodes(XYSupplier query, int limit) {
+    /**
+     * Adds the entries of the subtree that are not removed to the results
+     *
+     * @return the number of removed entries of the subtree
+     */
+    private int collectLive(Node node, Collection<Node> results) {
+        int removedEntries = 0;
+        if (node.value != null) results.add(node);
+        else removedEntries++;
+        Node left = node.left, right = node.right;
+        if (left != null) removedEntries += collectLive(left, results);
+        if (right != null) removedEntries += collectLive(right, results);
+        return removedEntries;
+    }
+
+    private List<Node> nearestNodes(XYSupplier query, int limit) {
         if (query == null) {
             throw new IllegalArgumentException("null query");
         }
-        if (root == null) {
+        Version current = version;
+        if (current.size == 0) {
             throw new NoSuchElementException();
         }
 
-        Comparator<Node> ascending = (a, b) -> {
-            if (sqDist(query, a.key) > sqDist(query, b.key)) return 1;
-            return -1; /* IMPORTANT: breaks if a,b are ever equal */
-        };
-        TreeSet<Node> results = new TreeSet<>(ascending);
-
-        return nearest(query, root, results, limit, true);
+        NearestHeap<Node> results = new NearestHeap<>(limit);
+        float x = query.getX(), y = query.getY();
+        for (Node bucket : current.buckets) {
+            if (bucket != null) nearest(x, y, bucket, results, true);
+        }
+        return results.toSortedList();
     }
 
-    private TreeSet<Node> nearest(XYSupplier query, Node node, TreeSet<Node> results, int limit, boolean vertical) {
+    // Searches the side of the query first, the other side only if it may hold a nearer entry
+    private void nearest(float x, float y, Node node, NearestHeap<Node> results, boolean vertical) {
         K key = node.key;
+        float dx = key.getX() - x, dy = key.getY() - y;
 
-        if (results.isEmpty()) {
-            results.add(node);
-        } else if ((results.size() < limit) || sqDist(query, key) < sqDist(query, results.last().key)) {
-            results.add(node);
-        }
-
-        if (results.size() > limit) {
-            results.pollLast();
+        // Removed entries still split the tree
+        if (node.value != null) {
+            results.offer((double) dx * dx + (double) dy * dy, node);
         }
 
-        Node left = node.left;
-        Node right = node.right;
-        boolean hasLeft = left != null;
-        boolean hasRight = right != null;
-
-        Function<Node, Boolean> shouldCheckOther = (k) -> {
-            boolean couldHaveShorter = sqDistPerpendicular(query, k.key, vertical) < sqDist(query, results.last().key);
-            return results.size() < limit || couldHaveShorter;
-        };
+        float perpendicular = vertical ? dx : dy;
+        Node near = perpendicular < 0 ? node.right : node.left;
+        Node far = perpendicular < 0 ? node.left : node.right;
 
-        if (lt(key, query, vertical)) {
-            if (hasRight) {
-                nearest(query, right, results, limit, !vertical);
-            }
-            if (hasLeft && shouldCheckOther.apply(node)) {
-                nearest(query, left, results, limit, !vertical);
-            }
-        } else {
-            if (hasLeft) {
-                nearest(query, left, results, limit, !vertical);
-            }
-            if (hasRight && shouldCheckOther.apply(node)) {
-                nearest(query, right, results, limit, !vertical);
-            }
+        if (near != null) {
+            nearest(x, y, near, results, !vertical);
+        }
+        if (far != null && (double) perpendicular * perpendicular < results.bound()) {
+            nearest(x, y, far, results, !vertical);
         }
-
-        return results;
     }
 
     private Collection<Node> searchTree(Node node, Bounds region, Bounds query, Collection<Node> results, boolean vertical) {
@@ -385,6 +386,27 @@ public class KDTreeMap<K extends XYSupplier, V> implements Map<K, V>, Serializab
         return results;
     }
 
+    // Finds the entry of the key in any bucket, a removed entry only if no other is found
+    private Node find(Version version, XYSupplier k) {
+        int bucket = locate(version, k);
+        if (bucket < 0) return null;
+        return find(k, version.buckets.get(bucket), true);
+    }
+
+    // The bucket holding the entry of the key, or -1 if none does
+    private int locate(Version version, XYSupplier k) {
+        int removedEntry = -1;
+        for (int i = 0; i < version.buckets.size(); i++) {
+            Node bucket = version.buckets.get(i);
+            if (bucket == null) continue;
+            Node found = find(k, bucket, true);
+            if (found == null) continue;
+            if (found.value != null) return i;
+            removedEntry = i;
+        }
+        return removedEntry;
+    }
+
     private Node find(XYSupplier k, Node node, boolean vertical) {
         K key = node.key;
 
@@ -411,54 +433,78 @@ public class KDTreeMap<K extends XYSupplier, V> implements Map<K, V>, Serializab
         }
     }
 
-    private void checkBalance() {
-        if (!isBalanced) {
-            reconstruct();
-            isBalanced = true;
+    /**
+     * Copies the path to the node found for k, replacing its value and,
+     * unless the new key is null, its key
+     *
+     * @return the new root of the subtree
+     */
+    private Node replace(Node node, XYSupplier k, K newKey, V newValue, boolean vertical) {
+        K key = node.key;
+
+        if (key.getX() == k.getX() && key.getY() == k.getY()) {
+            return new Node(newKey == null ? key : newKey, newValue, node.left, node.right);
+        }
+        if (le(k, key, vertical)) {
+            return new Node(key, node.value, replace(node.left, k, newKey, newValue, !vertical), node.right);
+        } else {
+            return new Node(key, node.value, node.left, replace(node.right, k, newKey, newValue, !vertical));
         }
     }
 
-    private void reconstruct() {
-        if (root != null) {
-            Collection<Node> results = new LinkedList<>();
-            collectTree(root, results);
-            for (Node nd : results) {
-                if (nd.value != null) {
-                    recentlyAdded.put(nd.key, nd.value);
-                }
-            }
-        }
-        root = buildTree(toArray(recentlyAdded.keySet()), true);
-        size = recentlyAdded.size();
-        for (Entry<K, V> entry : recentlyAdded.entrySet()) {
-            K key = entry.getKey();
-            V value = entry.getValue();
-            update(key, value);
+    /**
+     * Merges the buckets below the first empty bucket with the node into it,
+     * the merged bucket holds at most 1 + 2^0 + ... + 2^(i-1) = 2^i entries
+     */
+    private Version insert(Version current, Node node) {
+        List<Node> buckets = new ArrayList<>(current.buckets);
+        List<Node> carry = new ArrayList<>();
+        carry.add(node);
+        int removed = current.removed;
+        int level = 0;
+        while (level < buckets.size() && buckets.get(level) != null) {
+            // Removed entries of the merged buckets are dropped
+            removed -= collectLive(buckets.get(level), carry);
+            buckets.set(level, null);
+            level++;
         }
-        recentlyAdded.clear();
-        isBalanced = true;
+        store(buckets, carry, level);
+        return new Version(buckets, current.size + 1, removed);
     }
 
-    private Node buildTree(K[] keys, boolean vertical) {
-        int n = keys.length;
+    // Every live entry is moved into the single bucket fitting them
+    private Version rebuild(Version current) {
+        List<Node> nodes = collectAll(current);
+        List<Node> buckets = new ArrayList<>();
+        store(buckets, nodes, level(nodes.size()));
+        return new Version(buckets, nodes.size(), 0);
+    }
+
+    private void store(List<Node> buckets, List<Node> nodes, int level) {
+        while (buckets.size() <= level) buckets.add(null);
+        if (nodes.isEmpty()) return;
+        XYSupplier[] array = nodes.toArray(new XYSupplier[0]);
+        buckets.set(level, buildTree(array, 0, array.length - 1, true));
+    }
 
-        if (n == 0) {
+    // The lowest level of a bucket holding n entries
+    private static int level(int n) {
+        return n <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(n - 1);
+    }
+
+    // Builds a new subtree of the entries of nodes[lo..hi], partitioning the array in place
+    private Node buildTree(XYSupplier[] nodes, int lo, int hi, boolean vertical) {
+        if (lo > hi) {
             return null;
         }
 
-        Node left = null, right = null;
-
-        int median = median(keys, 0, keys.length - 1, vertical);
-        K key = keys[median];
+        int median = median(nodes, lo, hi, vertical);
+        @SuppressWarnings("unchecked") Node entry = (Node) nodes[median];
 
-        if (median > 0) {
-            left = buildTree(copyOfRange(keys, 0, median), !vertical);
-        }
-        if (median < n - 1) {
-            right = buildTree(copyOfRange(keys, median + 1, n), !vertical);
-        }
+        Node left = buildTree(nodes, lo, median - 1, !vertical);
+        Node right = buildTree(nodes, median + 1, hi, !vertical);
 
-        return new Node(key, null, left, right);
+        return new Node(entry.key, entry.value, left, right);
     }
 
     private Collection<V> values(Collection<Node> nodes) {
@@ -4,7 +4,7 @@ import dankmap.model.Bounds;
 import dankmap.model.XYSupplier;
 
 import java.util.Collection;
-import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 import static java.lang.Double.max;
 import static java.lang.Double.min;
@@ -65,9 +65,8 @@ abstract class KDTreeUtilities {
     static <T extends XYSupplier> int partition(T[] keys, int lo, int hi, boolean vertical) {
         if (lo == hi) return lo;
 
-        var rand = new Random();
         int left = lo, right = hi + 1;
-        swap(keys, lo, lo + rand.nextInt(hi - lo));
+        swap(keys, lo, lo + ThreadLocalRandom.current().nextInt(hi - lo));
 
         while (true) {
             while (le(keys[++left], keys[lo], vertical)) if (left == hi) break;
@@ -2,25 +2,22 @@ package dankmap.util.collections.tree;
 
 import dankmap.drawing.ZoomLevel;
 import dankmap.model.Bounds;
-import dankmap.model.XYSupplier;
 import dankmap.model.elements.MapElement;
 import dankmap.model.elements.PointElement;
+import dankmap.util.collections.DrawOrderBuckets;
 
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
 
+/**
+ * The MapElements of every ZoomLevel in a single KDTree, each element of the level it
+ * is first drawn at. A search of a zoom level is a single traversal, pruning the subtrees
+ * of levels not drawn yet. The tree is published at once when built, such that queries
+ * may run on any thread, also while the tree is built.
+ */
 public class LayeredKDTree implements Serializable {
-    List<KDTree> layers;
+    private final KDTree tree = new KDTree();
 
-    //Primary constructor, creates an empty KDTree for each zoom level.
-    public LayeredKDTree() {
-        layers = new ArrayList<>();
-        for (int i = 0; i <= ZoomLevel.ZOOM_LEVEL_MAX.getId(); i++) {
-            layers.add(i, new KDTree());
-        }
-    }
-    //adds elements to the correct KDTree by their area, unless they are Pointelements, in which they'll be added by DrawType's zoom level ID.
+    //adds elements by their area, unless they are Pointelements, in which they'll be added by DrawType's zoom level ID.
     public void add(MapElement element) {
         int layer = element.getDrawType().getZoomLevel();
 
@@ -28,37 +25,24 @@ public class LayeredKDTree implements Serializable {
             layer = Math.max(layer, ZoomLevel.getLevelByArea(element.getArea()).getId());
         }
 
-        layers.get(layer).addElement(element);
+        tree.addElement(element, layer);
     }
-    //builds all KDTrees.
+    //builds the tree, the subtrees are built in parallel.
     public void build() {
-        for (KDTree kdTree : layers) {
-            kdTree.buildTree();
-        }
+        tree.buildTree();
     }
-    //Method that calls rangeSearch for all KDTrees with zoom levels from 13 to the current zoom level.
-    public List<MapElement> rangeSearch(ZoomLevel currentZoomLevel, Bounds queryRange) {
-        List<MapElement> results = new ArrayList<>();
-
-        for (int i = 0; i < currentZoomLevel.getId(); i++) {
-            layers.get(i).rangeSearch(results, queryRange);
-        }
-        return results;
+    //Method that searches the elements of zoom levels below the current zoom level.
+    //The results are bucketed by draw order, such that they need not be sorted for drawing.
+    public DrawOrderBuckets rangeSearch(ZoomLevel currentZoomLevel, Bounds queryRange) {
+        return tree.rangeSearch(new DrawOrderBuckets(), queryRange, currentZoomLevel.getId());
     }
-    //Calls nearest in all non-empty KDTrees.
-    public void nearest(ArrayList<MapElement> results, XYSupplier queryPoint) {
-        for (KDTree kdTree : layers) {
-            if (kdTree.getRoot() != null) {
-                results.addAll(kdTree.nearest(queryPoint));
-            }
-        }
+    //Method that calls deltaSearch for the same zoom levels as rangeSearch, returning the elements found
+    //by a rangeSearch of the query range but not by a rangeSearch of the excluded range.
+    public DrawOrderBuckets deltaSearch(ZoomLevel currentZoomLevel, Bounds queryRange, Bounds excludedRange) {
+        return tree.deltaSearch(new DrawOrderBuckets(), queryRange, excludedRange, currentZoomLevel.getId());
     }
-    //returns the sum of all toAdd lists in KDTrees.
+    //returns the number of elements added since the last build.
     public int size() {
-        int size = 0;
-        for (KDTree kdTree : layers) {
-            size += kdTree.size();
-        }
-        return size;
+        return tree.size();
     }
 }
@@ -0,0 +1,110 @@
+package dankmap.util.collections.tree;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The k nearest candidates of a nearest neighbour search, kept in a binary
+ * max-heap of squared distances in primitive arrays, such that the farthest
+ * candidate is replaced in O(log k) and offering allocates nothing.
+ */
+class NearestHeap<T> {
+    private final double[] distances;
+    private final Object[] values;
+    private int size;
+
+    NearestHeap(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive, was " + capacity);
+        distances = new double[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * Adds the value unless the heap is full of values nearer than it
+     */
+    void offer(double sqDistance, T value) {
+        if (size < distances.length) {
+            distances[size] = sqDistance;
+            values[size] = value;
+            siftUp(size++);
+        } else if (sqDistance < distances[0]) {
+            distances[0] = sqDistance;
+            values[0] = value;
+            siftDown(0);
+        }
+    }
+
+    boolean isFull() {
+        return size == distances.length;
+    }
+
+    /**
+     * @return the squared distance a value must be nearer than to be kept,
+     * infinite until the heap is full
+     */
+    double bound() {
+        return isFull() ? distances[0] : Double.POSITIVE_INFINITY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return the values, nearest first
+     */
+    @SuppressWarnings("unchecked")
+    List<T> toSortedList() {
+        double[] d = distances.clone();
+        Object[] v = values.clone();
+        int n = size;
+        Object[] sorted = new Object[n];
+        // Heap sort of the copy, the farthest is removed first
+        for (int i = n - 1; i >= 0; i--) {
+            sorted[i] = v[0];
+            n--;
+            d[0] = d[n];
+            v[0] = v[n];
+            siftDown(d, v, n, 0);
+        }
+        List<T> result = new ArrayList<>(size);
+        for (Object value : sorted) result.add((T) value);
+        return result;
+    }
+
+
+    /////////// Utility //////////
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (distances[parent] >= distances[i]) break;
+            swap(distances, values, i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        siftDown(distances, values, size, i);
+    }
+
+    private static void siftDown(double[] d, Object[] v, int n, int i) {
+        while (true) {
+            int largest = i, left = 2 * i + 1, right = left + 1;
+            if (left < n && d[left] > d[largest]) largest = left;
+            if (right < n && d[right] > d[largest]) largest = right;
+            if (largest == i) return;
+            swap(d, v, i, largest);
+            i = largest;
+        }
+    }
+
+    private static void swap(double[] d, Object[] v, int i, int j) {
+        double distance = d[i];
+        d[i] = d[j];
+        d[j] = distance;
+        Object value = v[i];
+        v[i] = v[j];
+        v[j] = value;
+    }
+}
@@ -0,0 +1,203 @@
+package dankmap.util.collections.tree;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.IntConsumer;
+
+/**
+ * A static KD-tree of points, stored in primitive arrays.
+ * The tree is implicit: the node of any sub-range [lo, hi) is
+ * stored at index (lo + hi) / 2, its left subtree in [lo, mid)
+ * and its right subtree in [mid + 1, hi). Queries allocate nothing.
+ * <p>
+ * Points need not have a value, the index each point was added at is kept, such
+ * that points of values kept elsewhere are looked up by {@link #getIndex(int)}.
+ */
+public class PointKDTree<V> implements Serializable {
+    private static final long serialVersionUID = 5377146213809265093L;
+
+    private final float[] xs, ys;
+    // The index each point was added at
+    private final int[] order;
+    // Null if no point has a value
+    private final Object[] values;
+
+    private PointKDTree(float[] xs, float[] ys, Object[] values) {
+        this.xs = xs;
+        this.ys = ys;
+        this.values = values;
+        order = new int[xs.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        build(0, xs.length, true);
+    }
+
+    /**
+     * @return the index of the point nearest to (x,y)
+     * or -1 if the tree is empty
+     */
+    public int nearest(float x, float y) {
+        return nearest(x, y, 0, xs.length, true, -1);
+    }
+
+    /**
+     * Calls the action with the index of every point within [minX, maxX] x [minY, maxY]
+     */
+    public void range(float minX, float minY, float maxX, float maxY, IntConsumer action) {
+        range(minX, minY, maxX, maxY, action, 0, xs.length, true);
+    }
+
+    public float getX(int index) {
+        return xs[index];
+    }
+
+    public float getY(int index) {
+        return ys[index];
+    }
+
+    /**
+     * @return the value of the point, or null if it has none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int index) {
+        return values == null ? null : (V) values[index];
+    }
+
+    /**
+     * @return the index the point was added to the builder at
+     */
+    public int getIndex(int index) {
+        return order[index];
+    }
+
+    public int size() {
+        return xs.length;
+    }
+
+    private int nearest(float x, float y, int lo, int hi, boolean vertical, int best) {
+        if (lo >= hi) return best;
+
+        int mid = (lo + hi) >>> 1;
+        if (best == -1 || sqDist(x, y, mid) < sqDist(x, y, best)) best = mid;
+
+        double delta = vertical ? x - xs[mid] : y - ys[mid];
+
+        // Search the side of the splitting line containing the query first,
+        // the other side can only hold a nearer point if the line is nearer
+        if (delta < 0) {
+            best = nearest(x, y, lo, mid, !vertical, best);
+            if (delta * delta < sqDist(x, y, best))
+                best = nearest(x, y, mid + 1, hi, !vertical, best);
+        } else {
+            best = nearest(x, y, mid + 1, hi, !vertical, best);
+            if (delta * delta < sqDist(x, y, best))
+                best = nearest(x, y, lo, mid, !vertical, best);
+        }
+        return best;
+    }
+
+    private void range(float minX, float minY, float maxX, float maxY, IntConsumer action, int lo, int hi, boolean vertical) {
+        if (lo >= hi) return;
+
+        int mid = (lo + hi) >>> 1;
+        float x = xs[mid], y = ys[mid];
+        if (x >= minX && x <= maxX && y >= minY && y <= maxY) action.accept(mid);
+
+        float key = vertical ? x : y;
+        if ((vertical ? minX : minY) <= key) range(minX, minY, maxX, maxY, action, lo, mid, !vertical);
+        if ((vertical ? maxX : maxY) >= key) range(minX, minY, maxX, maxY, action, mid + 1, hi, !vertical);
+    }
+
+    private double sqDist(float x, float y, int index) {
+        double dx = xs[index] - x;
+        double dy = ys[index] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Arranges [lo, hi) such that the median by the specified axis
+     * is placed in the middle, then does the same for each half
+     */
+    private void build(int lo, int hi, boolean vertical) {
+        if (hi - lo < 2) return;
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, vertical);
+        build(lo, mid, !vertical);
+        build(mid + 1, hi, !vertical);
+    }
+
+    // Quickselect, places the k'th smallest element of [lo, hi] at index k
+    private void select(int lo, int hi, int k, boolean vertical) {
+        float[] keys = vertical ? xs : ys;
+        while (hi > lo) {
+            swap(lo, lo + ThreadLocalRandom.current().nextInt(hi - lo + 1));
+            float pivot = keys[lo];
+            int lt = lo, gt = hi, i = lo + 1;
+            while (i <= gt) {
+                if (keys[i] < pivot) swap(lt++, i++);
+                else if (keys[i] > pivot) swap(i, gt--);
+                else i++;
+            }
+            if (k < lt) hi = lt - 1;
+            else if (k > gt) lo = gt + 1;
+            else return;
+        }
+    }
+
+    private void swap(int i, int j) {
+        float x = xs[i], y = ys[i];
+        int o = order[i];
+        xs[i] = xs[j];
+        ys[i] = ys[j];
+        order[i] = order[j];
+        xs[j] = x;
+        ys[j] = y;
+        order[j] = o;
+        if (values != null) {
+            Object v = values[i];
+            values[i] = values[j];
+            values[j] = v;
+        }
+    }
+
+    public static class Builder<V> {
+        private float[] xs = new float[16];
+        private float[] ys = new float[16];
+        private Object[] values;
+        private int size;
+
+        /**
+         * Adds a point without a value
+         */
+        public Builder<V> add(float x, float y) {
+            return add(x, y, null);
+        }
+
+        public Builder<V> add(float x, float y, V value) {
+            if (size == xs.length) {
+                xs = Arrays.copyOf(xs, size * 2);
+                ys = Arrays.copyOf(ys, size * 2);
+                if (values != null) values = Arrays.copyOf(values, size * 2);
+            }
+            // The values are allocated with the first point which has one
+            if (value != null && values == null) values = new Object[xs.length];
+            xs[size] = x;
+            ys[size] = y;
+            if (values != null) values[size] = value;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public PointKDTree<V> build() {
+            return new PointKDTree<>(
+                    Arrays.copyOf(xs, size),
+                    Arrays.copyOf(ys, size),
+                    values == null ? null : Arrays.copyOf(values, size)
+            );
+        }
+    }
+}
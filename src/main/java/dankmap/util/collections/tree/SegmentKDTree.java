@@ -0,0 +1,232 @@
+package dankmap.util.collections.tree;
+
+import dankmap.util.VectorMath;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A static KD-tree of line segments, stored in primitive arrays.
+ * Segments are split by their midpoints, and every node keeps the
+ * bounding box of its whole subtree, such that nearest segment
+ * queries can be answered with the true point-to-segment distance.
+ * <p>
+ * Like {@link PointKDTree} the tree is implicit, the node of any
+ * sub-range [lo, hi) is stored at index (lo + hi) / 2.
+ * Queries allocate nothing.
+ */
+public class SegmentKDTree<V> implements Serializable {
+    private static final long serialVersionUID = 7329144412862315091L;
+
+    // Segment endpoints, segment i goes from (x0[i],y0[i]) to (x1[i],y1[i])
+    private final float[] x0, y0, x1, y1;
+    private final Object[] values;
+
+    // Bounding box of the subtree rooted at each node
+    private final float[] minX, minY, maxX, maxY;
+
+    private SegmentKDTree(float[] x0, float[] y0, float[] x1, float[] y1, Object[] values) {
+        int n = x0.length;
+        this.x0 = x0;
+        this.y0 = y0;
+        this.x1 = x1;
+        this.y1 = y1;
+        this.values = values;
+        minX = new float[n];
+        minY = new float[n];
+        maxX = new float[n];
+        maxY = new float[n];
+        build(0, n, true);
+    }
+
+    /**
+     * @return the index of the segment nearest to (x,y)
+     * or -1 if the tree is empty
+     */
+    public int nearest(float x, float y) {
+        if (x0.length == 0) return -1;
+        return nearest(x, y, 0, x0.length, -1, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * @return the value of the segment at the specified index
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int index) {
+        return (V) values[index];
+    }
+
+    /**
+     * @return the squared distance from (x,y) to the segment at the specified index
+     */
+    public double sqDist(float x, float y, int index) {
+        return VectorMath.sqDistPointToSegment(x, y, x0[index], y0[index], x1[index], y1[index]);
+    }
+
+    public int size() {
+        return x0.length;
+    }
+
+    /**
+     * Branch and bound search, children are visited nearest box first,
+     * and skipped entirely if their box is further away than the best
+     * segment found so far.
+     */
+    private int nearest(float x, float y, int lo, int hi, int best, double bestDist) {
+        int mid = (lo + hi) >>> 1;
+
+        double dist = sqDist(x, y, mid);
+        if (dist < bestDist) {
+            best = mid;
+            bestDist = dist;
+        }
+
+        int leftLo = lo, leftHi = mid;
+        int rightLo = mid + 1, rightHi = hi;
+        double leftDist = leftLo < leftHi ? sqDistToBox(x, y, (leftLo + leftHi) >>> 1) : Double.POSITIVE_INFINITY;
+        double rightDist = rightLo < rightHi ? sqDistToBox(x, y, (rightLo + rightHi) >>> 1) : Double.POSITIVE_INFINITY;
+
+        if (leftDist <= rightDist) {
+            if (leftDist < bestDist) {
+                best = nearest(x, y, leftLo, leftHi, best, bestDist);
+                bestDist = sqDist(x, y, best);
+            }
+            if (rightDist < bestDist) {
+                best = nearest(x, y, rightLo, rightHi, best, bestDist);
+            }
+        } else {
+            if (rightDist < bestDist) {
+                best = nearest(x, y, rightLo, rightHi, best, bestDist);
+                bestDist = sqDist(x, y, best);
+            }
+            if (leftDist < bestDist) {
+                best = nearest(x, y, leftLo, leftHi, best, bestDist);
+            }
+        }
+        return best;
+    }
+
+    private double sqDistToBox(float x, float y, int node) {
+        double dx = Math.max(Math.max(minX[node] - x, x - maxX[node]), 0);
+        double dy = Math.max(Math.max(minY[node] - y, y - maxY[node]), 0);
+        return dx * dx + dy * dy;
+    }
+
+    /**
+     * Arranges [lo, hi) such that the median segment by the specified axis
+     * is placed in the middle, builds each half, then computes the
+     * bounding box of the subtree
+     */
+    private void build(int lo, int hi, boolean vertical) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        select(lo, hi - 1, mid, vertical);
+        build(lo, mid, !vertical);
+        build(mid + 1, hi, !vertical);
+
+        minX[mid] = Math.min(x0[mid], x1[mid]);
+        minY[mid] = Math.min(y0[mid], y1[mid]);
+        maxX[mid] = Math.max(x0[mid], x1[mid]);
+        maxY[mid] = Math.max(y0[mid], y1[mid]);
+        if (lo < mid) include(mid, (lo + mid) >>> 1);
+        if (mid + 1 < hi) include(mid, (mid + 1 + hi) >>> 1);
+    }
+
+    private void include(int node, int child) {
+        minX[node] = Math.min(minX[node], minX[child]);
+        minY[node] = Math.min(minY[node], minY[child]);
+        maxX[node] = Math.max(maxX[node], maxX[child]);
+        maxY[node] = Math.max(maxY[node], maxY[child]);
+    }
+
+    // Doubled midpoint, the factor of 2 does not change the ordering
+    private float split(int i, boolean vertical) {
+        return vertical ? x0[i] + x1[i] : y0[i] + y1[i];
+    }
+
+    // Quickselect, places the k'th smallest segment of [lo, hi] at index k
+    private void select(int lo, int hi, int k, boolean vertical) {
+        while (hi > lo) {
+            swap(lo, lo + ThreadLocalRandom.current().nextInt(hi - lo + 1));
+            float pivot = split(lo, vertical);
+            int lt = lo, gt = hi, i = lo + 1;
+            while (i <= gt) {
+                float key = split(i, vertical);
+                if (key < pivot) swap(lt++, i++);
+                else if (key > pivot) swap(i, gt--);
+                else i++;
+            }
+            if (k < lt) hi = lt - 1;
+            else if (k > gt) lo = gt + 1;
+            else return;
+        }
+    }
+
+    private void swap(int i, int j) {
+        swap(x0, i, j);
+        swap(y0, i, j);
+        swap(x1, i, j);
+        swap(y1, i, j);
+        Object v = values[i];
+        values[i] = values[j];
+        values[j] = v;
+    }
+
+    private static void swap(float[] a, int i, int j) {
+        float temp = a[i];
+        a[i] = a[j];
+        a[j] = temp;
+    }
+
+    public static class Builder<V> {
+        private float[] x0 = new float[16], y0 = new float[16];
+        private float[] x1 = new float[16], y1 = new float[16];
+        private Object[] values = new Object[16];
+        private int size;
+
+        public Builder<V> add(float fromX, float fromY, float toX, float toY, V value) {
+            if (size == x0.length) {
+                int capacity = size * 2;
+                x0 = Arrays.copyOf(x0, capacity);
+                y0 = Arrays.copyOf(y0, capacity);
+                x1 = Arrays.copyOf(x1, capacity);
+                y1 = Arrays.copyOf(y1, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            x0[size] = fromX;
+            y0[size] = fromY;
+            x1[size] = toX;
+            y1[size] = toY;
+            values[size] = value;
+            size++;
+            return this;
+        }
+
+        /**
+         * Adds every segment of a path [ x0, y0, x1, y1, ... , xn, yn ],
+         * a path of a single point is added as a segment of length 0
+         */
+        public Builder<V> addPath(float[] path, V value) {
+            if (path.length == 2) return add(path[0], path[1], path[0], path[1], value);
+            for (int i = 0; i < path.length - 2; i += 2) {
+                add(path[i], path[i + 1], path[i + 2], path[i + 3], value);
+            }
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public SegmentKDTree<V> build() {
+            return new SegmentKDTree<>(
+                    Arrays.copyOf(x0, size),
+                    Arrays.copyOf(y0, size),
+                    Arrays.copyOf(x1, size),
+                    Arrays.copyOf(y1, size),
+                    Arrays.copyOf(values, size)
+            );
+        }
+    }
+}
@@ -179,6 +179,34 @@ public class RadixTree<T> implements Serializable {
         return found.value;
     }
 
+    /**
+     * Unlike {@link #get(String)}, which also matches keys ending inside a node,
+     * this only returns the value of a key which was inserted
+     * @param stringKey
+     * @return value of the inserted key, or null if the key was never inserted
+     */
+    public T getWord(String stringKey) {
+        byte[] key = alphabet.encode(stringKey);
+        RadixTreeNode<T> node = root;
+        int matched = 0;
+        while (node != null) {
+            if (matched == key.length) return node.isWord ? node.value : null;
+            RadixTreeNode<T> next = null;
+            for (RadixTreeNode<T> child : node.children) {
+                if (child.key[0] == key[matched]) {
+                    next = child;
+                    break;
+                }
+            }
+            if (next == null || key.length - matched < next.key.length) return null;
+            for (int i = 0; i < next.key.length; i++) {
+                if (next.key[i] != key[matched + i]) return null;
+            }
+            matched += next.key.length;
+            node = next;
+        }
+        return null;
+    }
 
     private RadixTreeNode<T> get(byte[] key, RadixTreeNode<T> node) {
         RadixTreeNode<T> result = null;
@@ -0,0 +1,185 @@
+package dankmap.util.metrics;
+
+import java.io.*;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Timings and counts of the rendering of frames, kept as rolling windows such that
+ * percentiles reflect the recent frames. Phases running on workers, ie. the viewport
+ * query and label placement, are recorded as they complete.
+ * <p>
+ * The metrics are exported as CSV or JSON by {@link #export(File)}, summarizing each series.
+ * Thread safe.
+ */
+public class FrameMetrics {
+    // About ten seconds of frames at 60 fps
+    private static final int WINDOW = 600;
+
+    private static final FrameMetrics global = new FrameMetrics();
+
+    public enum Series {
+        QUERY("ms"),
+        LABELS("ms"),
+        TILES("ms"),
+        ISLANDS("ms"),
+        MAP_ELEMENTS("ms"),
+        ROADS("ms"),
+        HIGHLIGHT("ms"),
+        OVERLAY("ms"),
+        FRAME("ms"),
+        GC("ms"),
+        ELEMENT_COUNT("elements"),
+        ROAD_COUNT("roads"),
+        PATH_COMMANDS("commands"),
+        LABEL_COUNT("labels");
+
+        private final String unit;
+
+        Series(String unit) {
+            this.unit = unit;
+        }
+
+        public String getUnit() {
+            return unit;
+        }
+
+        public String getName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private final Map<Series, RollingPercentiles> series = new EnumMap<>(Series.class);
+    private long frames;
+    private long lastCollectionTime;
+
+    public FrameMetrics() {
+        reset(WINDOW);
+    }
+
+    /**
+     * Drops all samples, keeping the given number of recent samples of each series from now on
+     */
+    public synchronized void reset(int window) {
+        for (Series s : Series.values()) {
+            series.put(s, new RollingPercentiles(window));
+        }
+        frames = 0;
+        lastCollectionTime = collectionTime();
+    }
+
+    /**
+     * @return the metrics of the application
+     */
+    public static FrameMetrics get() {
+        return global;
+    }
+
+    /**
+     * Records the time since <code>startNanos</code>, as given by {@link System#nanoTime()}, in milliseconds
+     */
+    public synchronized void time(Series s, long startNanos) {
+        series.get(s).add((System.nanoTime() - startNanos) / 1e6);
+    }
+
+    public synchronized void record(Series s, double value) {
+        series.get(s).add(value);
+    }
+
+    /**
+     * Completes a frame, recording the time spent collecting garbage since the last frame
+     */
+    public synchronized void endFrame() {
+        long collectionTime = collectionTime();
+        series.get(Series.GC).add(collectionTime - lastCollectionTime);
+        lastCollectionTime = collectionTime;
+        frames++;
+    }
+
+    /**
+     * @param p the percentile, in [0, 100]
+     * @return the percentile of the recent samples of the series, or NaN if there are none
+     */
+    public synchronized double percentile(Series s, double p) {
+        return series.get(s).percentile(p);
+    }
+
+    /**
+     * @param ps the percentiles, each in [0, 100]
+     * @return the percentiles of the recent samples of the series, sorting the samples once
+     */
+    public synchronized double[] percentiles(Series s, double... ps) {
+        return series.get(s).percentiles(ps);
+    }
+
+    public synchronized double last(Series s) {
+        return series.get(s).last();
+    }
+
+    public synchronized long getFrames() {
+        return frames;
+    }
+
+    /**
+     * Writes the summary of every series to the file, as JSON if the file name ends
+     * with <code>.json</code> and as CSV otherwise
+     */
+    public void export(File file) throws IOException {
+        try (Writer out = new BufferedWriter(new FileWriter(file))) {
+            if (file.getName().endsWith(".json")) writeJson(out);
+            else writeCsv(out);
+        }
+    }
+
+    public synchronized void writeCsv(Writer out) throws IOException {
+        out.write("series,unit,samples,last,mean,p50,p95,p99,max\n");
+        for (Series s : Series.values()) {
+            RollingPercentiles r = series.get(s);
+            double[] p = r.percentiles(50, 95, 99);
+            out.write(String.format(Locale.ROOT, "%s,%s,%d,%s,%s,%s,%s,%s,%s%n",
+                    s.getName(), s.getUnit(), r.size(),
+                    number(r.last()), number(r.mean()), number(p[0]), number(p[1]), number(p[2]),
+                    number(r.max())));
+        }
+    }
+
+    public synchronized void writeJson(Writer out) throws IOException {
+        out.write("{\n  \"frames\": " + frames + ",\n  \"series\": {");
+        Series[] values = Series.values();
+        for (int i = 0; i < values.length; i++) {
+            Series s = values[i];
+            RollingPercentiles r = series.get(s);
+            double[] p = r.percentiles(50, 95, 99);
+            out.write(String.format(Locale.ROOT,
+                    "%n    \"%s\": {\"unit\": \"%s\", \"samples\": %d, \"last\": %s, \"mean\": %s, \"p50\": %s, \"p95\": %s, \"p99\": %s, \"max\": %s}",
+                    s.getName(), s.getUnit(), r.size(),
+                    json(r.last()), json(r.mean()), json(p[0]), json(p[1]), json(p[2]),
+                    json(r.max())));
+            if (i < values.length - 1) out.write(",");
+        }
+        out.write("\n  }\n}\n");
+    }
+
+
+    /////////// Utility //////////
+
+    // Accumulated over all collectors, concurrent collectors also count time not spent paused
+    private static long collectionTime() {
+        long time = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            time += Math.max(0, gc.getCollectionTime());
+        }
+        return time;
+    }
+
+    private static String number(double value) {
+        return Double.isNaN(value) ? "" : String.format(Locale.ROOT, "%.3f", value);
+    }
+
+    private static String json(double value) {
+        return Double.isNaN(value) ? "null" : String.format(Locale.ROOT, "%.3f", value);
+    }
+}
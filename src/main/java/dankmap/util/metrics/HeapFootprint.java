@@ -0,0 +1,219 @@
+package dankmap.util.metrics;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Estimates the heap retained by object graphs, walking the fields of every reachable object
+ * and sizing it as laid out by HotSpot: a header, the fields and padding to 8 bytes.
+ * <p>
+ * Objects are counted once per footprint, such that an object reachable from several measured
+ * roots is attributed to the root measured first. Static fields, classes and enum constants
+ * are not counted. Fields of the JDK are read reflectively, which needs
+ * <code>--add-opens</code> of their packages from Java 16, collections of packages not opened
+ * are walked through their elements instead.
+ */
+public class HeapFootprint {
+    private static final int ALIGNMENT = 8;
+
+    private final int headerSize, arrayHeaderSize, referenceSize;
+    private final Set<Object> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final Map<Class<?>, Layout> layouts = new HashMap<>();
+
+    /**
+     * The objects and bytes of a part of an object graph
+     */
+    public static class Usage {
+        private long objects, bytes, elements;
+
+        public long getObjects() {
+            return objects;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return the number of objects the part was classified by, or 0 for parts not classified
+         */
+        public long getElements() {
+            return elements;
+        }
+
+        /**
+         * @return the bytes per element, or NaN for parts without elements
+         */
+        public double getBytesPerElement() {
+            return elements == 0 ? Double.NaN : (double) bytes / elements;
+        }
+
+        void add(Usage usage) {
+            objects += usage.objects;
+            bytes += usage.bytes;
+        }
+    }
+
+    // The shallow size of a class and its fields holding references
+    private static class Layout {
+        final long size;
+        final List<Field> references;
+
+        Layout(long size, List<Field> references) {
+            this.size = size;
+            this.references = references;
+        }
+    }
+
+    public HeapFootprint() {
+        this(compressedOops());
+    }
+
+    /**
+     * @param compressedOops whether references are 4 bytes and headers 12 bytes, as on heaps below 32 GB
+     */
+    public HeapFootprint(boolean compressedOops) {
+        headerSize = compressedOops ? 12 : 16;
+        arrayHeaderSize = compressedOops ? 16 : 24;
+        referenceSize = compressedOops ? 4 : 8;
+    }
+
+    /**
+     * @return the usage of the objects reachable from the root and not counted yet
+     */
+    public Usage measure(Object root) {
+        return measure(root, o -> null).getOrDefault("", new Usage());
+    }
+
+    /**
+     * Measures the objects reachable from the root and not counted yet, split by the classifier.
+     * An object the classifier names, and the objects reached through it, are attributed to the
+     * part of that name, unless named otherwise themselves. Other objects are attributed to the
+     * part of the object they were reached from, the root to the part named by the empty string.
+     *
+     * @param classifier the name of the part an object starts, or null if it starts none
+     * @return the usage of each part, in the order found
+     */
+    public Map<String, Usage> measure(Object root, Function<Object, String> classifier) {
+        Map<String, Usage> parts = new LinkedHashMap<>();
+        Deque<Object> objects = new ArrayDeque<>();
+        Deque<String> names = new ArrayDeque<>();
+        push(root, "", classifier, objects, names, parts);
+
+        while (!objects.isEmpty()) {
+            Object o = objects.pop();
+            String name = names.pop();
+            Usage usage = parts.computeIfAbsent(name, n -> new Usage());
+            usage.objects++;
+
+            Class<?> type = o.getClass();
+            if (type.isArray()) {
+                int length = Array.getLength(o);
+                usage.bytes += align(arrayHeaderSize + (long) length * elementSize(type.getComponentType()));
+                if (!type.getComponentType().isPrimitive()) {
+                    for (Object element : (Object[]) o) push(element, name, classifier, objects, names, parts);
+                }
+                continue;
+            }
+
+            Layout layout = layout(type);
+            usage.bytes += layout.size;
+            try {
+                for (Field field : layout.references) push(field.get(o), name, classifier, objects, names, parts);
+            } catch (IllegalAccessException e) {
+                throw new IllegalStateException(e);
+            }
+            // The fields of packages not opened to us are skipped, their elements are walked instead
+            if (layout.references.isEmpty() && !accessible(type)) {
+                if (o instanceof Collection) {
+                    for (Object element : (Collection<?>) o) push(element, name, classifier, objects, names, parts);
+                } else if (o instanceof Map) {
+                    for (Map.Entry<?, ?> entry : ((Map<?, ?>) o).entrySet()) {
+                        push(entry.getKey(), name, classifier, objects, names, parts);
+                        push(entry.getValue(), name, classifier, objects, names, parts);
+                    }
+                }
+            }
+        }
+        return parts;
+    }
+
+    /**
+     * @return the total objects and bytes of the usages, without elements as they are of different kinds
+     */
+    public static Usage total(Collection<Usage> usages) {
+        Usage total = new Usage();
+        usages.forEach(total::add);
+        return total;
+    }
+
+
+    /////////// Utility //////////
+
+    private void push(Object o, String name, Function<Object, String> classifier,
+                      Deque<Object> objects, Deque<String> names, Map<String, Usage> parts) {
+        if (o == null || o instanceof Class || o instanceof Enum || !visited.add(o)) return;
+        String part = classifier.apply(o);
+        if (part != null) {
+            name = part;
+            parts.computeIfAbsent(name, n -> new Usage()).elements++;
+        }
+        objects.push(o);
+        names.push(name);
+    }
+
+    private Layout layout(Class<?> type) {
+        Layout layout = layouts.get(type);
+        if (layout != null) return layout;
+
+        long size = headerSize;
+        List<Field> references = new ArrayList<>();
+        for (Class<?> c = type; c != null; c = c.getSuperclass()) {
+            boolean open = accessible(c);
+            for (Field field : c.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) continue;
+                size += elementSize(field.getType());
+                if (field.getType().isPrimitive() || !open || !field.trySetAccessible()) continue;
+                references.add(field);
+            }
+        }
+        layout = new Layout(align(size), references);
+        layouts.put(type, layout);
+        return layout;
+    }
+
+    private long elementSize(Class<?> type) {
+        if (!type.isPrimitive()) return referenceSize;
+        if (type == long.class || type == double.class) return 8;
+        if (type == int.class || type == float.class) return 4;
+        if (type == short.class || type == char.class) return 2;
+        return 1;
+    }
+
+    private static long align(long size) {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    // Whether the fields of the class can be read, ie. its package is open to this module
+    private static boolean accessible(Class<?> type) {
+        Module module = type.getModule();
+        Package p = type.getPackage();
+        return p == null || module.isOpen(p.getName(), HeapFootprint.class.getModule());
+    }
+
+    private static boolean compressedOops() {
+        try {
+            HotSpotDiagnosticMXBean hotSpot = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+            return Boolean.parseBoolean(hotSpot.getVMOption("UseCompressedOops").getValue());
+        } catch (RuntimeException e) {
+            // Not HotSpot, assume the default of heaps below 32 GB
+            return true;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package dankmap.util.metrics;
+
+import java.util.Arrays;
+
+/**
+ * The last <code>capacity</code> samples of a measurement, older samples are overwritten.
+ * Percentiles are computed over the samples in the window, by nearest rank.
+ */
+public class RollingPercentiles {
+    private final double[] samples;
+    private int next;
+    private int size;
+    private long total;
+
+    public RollingPercentiles(int capacity) {
+        if (capacity <= 0) throw new IllegalArgumentException("capacity must be positive, was " + capacity);
+        samples = new double[capacity];
+    }
+
+    public void add(double sample) {
+        samples[next] = sample;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) size++;
+        total++;
+    }
+
+    /**
+     * @param p the percentile, in [0, 100]
+     * @return the smallest sample greater than or equal to p percent of the window, or NaN if empty
+     */
+    public double percentile(double p) {
+        return percentiles(p)[0];
+    }
+
+    /**
+     * Computes several percentiles over a single sorted copy of the window
+     *
+     * @param ps the percentiles, each in [0, 100]
+     * @return the percentile of each of <code>ps</code>, as by {@link #percentile(double)}
+     */
+    public double[] percentiles(double... ps) {
+        for (double p : ps) {
+            if (p < 0 || p > 100) throw new IllegalArgumentException("percentile must be in [0, 100], was " + p);
+        }
+        double[] result = new double[ps.length];
+        if (size == 0) {
+            Arrays.fill(result, Double.NaN);
+            return result;
+        }
+        double[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        for (int i = 0; i < ps.length; i++) {
+            int rank = (int) Math.ceil(ps[i] / 100 * size);
+            result[i] = sorted[Math.max(0, rank - 1)];
+        }
+        return result;
+    }
+
+    public double mean() {
+        if (size == 0) return Double.NaN;
+        double sum = 0;
+        for (int i = 0; i < size; i++) sum += samples[i];
+        return sum / size;
+    }
+
+    public double max() {
+        if (size == 0) return Double.NaN;
+        double max = samples[0];
+        for (int i = 1; i < size; i++) max = Math.max(max, samples[i]);
+        return max;
+    }
+
+    /**
+     * @return the latest sample, or NaN if empty
+     */
+    public double last() {
+        if (size == 0) return Double.NaN;
+        return samples[(next - 1 + samples.length) % samples.length];
+    }
+
+    /**
+     * @return the number of samples in the window
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of samples ever added
+     */
+    public long total() {
+        return total;
+    }
+}
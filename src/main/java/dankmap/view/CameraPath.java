@@ -0,0 +1,167 @@
+package dankmap.view;
+
+import dankmap.drawing.ZoomLevel;
+import dankmap.model.Bounds;
+import javafx.scene.transform.Affine;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * A sequence of views of the map, each the ZoomLevel, the size of the view and the
+ * scale and translation of the transform, such that a session of panning and zooming
+ * can be replayed by the <code>RenderHarness</code>.
+ * <p>
+ * Paths are saved as text, a frame per line: <code>zoomLevel width height mxx myy tx ty</code>.
+ * Lines starting with <code>#</code> are comments.
+ */
+public class CameraPath {
+    private final List<Frame> frames = new ArrayList<>();
+
+    public static class Frame {
+        private final int zoomLevel;
+        private final double width, height;
+        private final double mxx, myy, tx, ty;
+
+        public Frame(int zoomLevel, double width, double height, double mxx, double myy, double tx, double ty) {
+            this.zoomLevel = zoomLevel;
+            this.width = width;
+            this.height = height;
+            this.mxx = mxx;
+            this.myy = myy;
+            this.tx = tx;
+            this.ty = ty;
+        }
+
+        public int getZoomLevel() {
+            return zoomLevel;
+        }
+
+        public double getWidth() {
+            return width;
+        }
+
+        public double getHeight() {
+            return height;
+        }
+
+        public Affine getTransform() {
+            return new Affine(mxx, 0, tx, 0, myy, ty);
+        }
+    }
+
+    public void add(Frame frame) {
+        frames.add(frame);
+    }
+
+    public List<Frame> getFrames() {
+        return Collections.unmodifiableList(frames);
+    }
+
+    public int size() {
+        return frames.size();
+    }
+
+    /**
+     * Adds a frame of the current view of the model whenever its transform changes
+     */
+    public void record(ViewModel model) {
+        Affine transform = model.getTransform();
+        model.getTransformWrapper().addOnTransformChangedListener(() -> add(new Frame(
+                ZoomLevel.getCurrent().getId(), model.getWidth(), model.getHeight(),
+                transform.getMxx(), transform.getMyy(), transform.getTx(), transform.getTy())));
+    }
+
+    /**
+     * A path over the bounds, zooming from the level fitting the bounds in to the highest level
+     * at the center, then panning across at each level on the way back out. Each step zooms by a
+     * tenth of a level or pans by a tenth of the view.
+     */
+    public static CameraPath flyover(Bounds bounds, double width, double height) {
+        CameraPath path = new CameraPath();
+        ZoomLevel first = fitting(bounds, width, height);
+        double cx = bounds.getCenterX(), cy = bounds.getCenterY();
+
+        for (int level = first.getId(); level <= ZoomLevel.ZOOM_LEVEL_MAX.getId(); level++) {
+            ZoomLevel zoomLevel = ZoomLevel.values()[level];
+            double from = level == first.getId() ? zoomLevel.getScale() : ZoomLevel.values()[level - 1].getScale();
+            for (int step = 1; step <= 10; step++) {
+                double scale = from * Math.pow(zoomLevel.getScale() / from, step / 10.0);
+                path.add(centered(zoomLevel, width, height, scale, cx, cy));
+            }
+        }
+        for (int level = ZoomLevel.ZOOM_LEVEL_MAX.getId(); level >= first.getId(); level--) {
+            ZoomLevel zoomLevel = ZoomLevel.values()[level];
+            double scale = zoomLevel.getScale();
+            // A view to each side, within the bounds
+            double step = Math.min(width / scale, bounds.getWidth() / 2) / 10;
+            for (int i = -10; i <= 10; i++) {
+                path.add(centered(zoomLevel, width, height, scale, cx + i * step, cy));
+            }
+        }
+        return path;
+    }
+
+    public static CameraPath read(File file) throws IOException {
+        try (Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return read(in);
+        }
+    }
+
+    public static CameraPath read(Reader reader) throws IOException {
+        CameraPath path = new CameraPath();
+        BufferedReader in = new BufferedReader(reader);
+        String line;
+        int number = 0;
+        while ((line = in.readLine()) != null) {
+            number++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] values = line.split("\\s+");
+            if (values.length != 7) throw new IOException("line " + number + ": expected 7 values, found " + values.length);
+            try {
+                path.add(new Frame(Integer.parseInt(values[0]),
+                        Double.parseDouble(values[1]), Double.parseDouble(values[2]),
+                        Double.parseDouble(values[3]), Double.parseDouble(values[4]),
+                        Double.parseDouble(values[5]), Double.parseDouble(values[6])));
+            } catch (NumberFormatException e) {
+                throw new IOException("line " + number + ": " + e.getMessage());
+            }
+        }
+        return path;
+    }
+
+    public void save(File file) throws IOException {
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+            write(out);
+        }
+    }
+
+    public void write(Writer out) throws IOException {
+        out.write("# zoomLevel width height mxx myy tx ty\n");
+        for (Frame frame : frames) {
+            out.write(String.format(Locale.ROOT, "%d %s %s %s %s %s %s%n", frame.zoomLevel,
+                    frame.width, frame.height, frame.mxx, frame.myy, frame.tx, frame.ty));
+        }
+    }
+
+
+    /////////// Utility //////////
+
+    // The highest level at which the bounds fit the view, as fitted by the ViewModel
+    private static ZoomLevel fitting(Bounds bounds, double width, double height) {
+        ZoomLevel current = ZoomLevel.getCurrent();
+        ZoomLevel.setToNearestByScale(Math.min(width / bounds.getWidth(), height / bounds.getHeight()));
+        ZoomLevel fitting = ZoomLevel.getCurrent();
+        ZoomLevel.setCurrent(current);
+        return fitting;
+    }
+
+    private static Frame centered(ZoomLevel zoomLevel, double width, double height, double scale, double x, double y) {
+        return new Frame(zoomLevel.getId(), width, height, scale, scale, width / 2 - x * scale, height / 2 - y * scale);
+    }
+}
@@ -0,0 +1,82 @@
+package dankmap.view;
+
+import java.util.Arrays;
+
+/**
+ * A uniform grid over the screen holding the rectangles of placed labels,
+ * such that a new label is only tested against the labels of the cells it covers.
+ * Rectangles reaching outside of the screen are clamped to the border cells.
+ */
+class CollisionGrid {
+    private final double cellSize;
+    private final int cols, rows;
+
+    // Rectangles as [ minX, minY, maxX, maxY, ... ]
+    private double[] rects = new double[64];
+    private int size;
+
+    // Indices of the rectangles covering each cell
+    private final int[][] cells;
+    private final int[] counts;
+
+    CollisionGrid(double width, double height, double cellSize) {
+        this.cellSize = cellSize;
+        this.cols = Math.max(1, (int) Math.ceil(width / cellSize));
+        this.rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        this.cells = new int[cols * rows][];
+        this.counts = new int[cols * rows];
+    }
+
+    /**
+     * Adds the rectangle unless it overlaps a rectangle of the grid
+     *
+     * @return true if the rectangle was added
+     */
+    boolean insert(double minX, double minY, double maxX, double maxY) {
+        int minCol = col(minX), maxCol = col(maxX);
+        int minRow = row(minY), maxRow = row(maxY);
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                int cell = row * cols + col;
+                for (int i = 0; i < counts[cell]; i++) {
+                    int rect = cells[cell][i] * 4;
+                    if (minX < rects[rect + 2] && maxX > rects[rect] && minY < rects[rect + 3] && maxY > rects[rect + 1])
+                        return false;
+                }
+            }
+        }
+
+        if (size * 4 == rects.length) rects = Arrays.copyOf(rects, rects.length * 2);
+        rects[size * 4] = minX;
+        rects[size * 4 + 1] = minY;
+        rects[size * 4 + 2] = maxX;
+        rects[size * 4 + 3] = maxY;
+
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                int cell = row * cols + col;
+                if (cells[cell] == null) cells[cell] = new int[4];
+                else if (counts[cell] == cells[cell].length) cells[cell] = Arrays.copyOf(cells[cell], counts[cell] * 2);
+                cells[cell][counts[cell]++] = size;
+            }
+        }
+        size++;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+
+    /////////// Utility //////////
+
+    private int col(double x) {
+        return Math.max(0, Math.min(cols - 1, (int) Math.floor(x / cellSize)));
+    }
+
+    private int row(double y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / cellSize)));
+    }
+}
@@ -0,0 +1,71 @@
+package dankmap.view;
+
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Caches the advance widths of the characters of a font, such that labels are
+ * measured without laying out text. Kerning is ignored, which is precise enough
+ * for keeping labels apart. Each character is measured once.
+ * <p>
+ * Not thread safe, a GlyphMetrics is confined to the thread placing labels.
+ */
+class GlyphMetrics {
+    private final Font font;
+    private final double height;
+    private final double[] latin = new double[256];
+    private final Map<Character, Double> others = new HashMap<>();
+
+    GlyphMetrics(Font font) {
+        this.font = font;
+        this.height = measure("Hg").getLayoutBounds().getHeight();
+        Arrays.fill(latin, -1);
+    }
+
+    /**
+     * @return the width of the text in pixels
+     */
+    double width(String text) {
+        double width = 0;
+        for (int i = 0; i < text.length(); i++) {
+            width += advance(text.charAt(i));
+        }
+        return width;
+    }
+
+    double getHeight() {
+        return height;
+    }
+
+    Font getFont() {
+        return font;
+    }
+
+
+    /////////// Utility //////////
+
+    private double advance(char c) {
+        if (c < latin.length) {
+            if (latin[c] < 0) latin[c] = advanceOf(c);
+            return latin[c];
+        }
+        return others.computeIfAbsent(c, this::advanceOf);
+    }
+
+    // The bounds of text exclude trailing whitespace, so characters are measured between two others
+    private double advanceOf(char c) {
+        double both = measure("x" + c + "x").getLayoutBounds().getWidth();
+        double outer = measure("xx").getLayoutBounds().getWidth();
+        return both - outer;
+    }
+
+    private Text measure(String text) {
+        Text node = new Text(text);
+        node.setFont(font);
+        return node;
+    }
+}
@@ -305,10 +305,9 @@ public class HighlightCanvas extends BaseCanvas {
     public void getNearestRoad() {
         var road = model.getNearestRoad();
         if (road != null) {
-            float[] path = road.getPath();
-            nearestRoad = new Point2D[path.length / 2];
-            for (int i = 0, j = 0; i < path.length; i += 2, j++) {
-                nearestRoad[j] = transform.transform(path[i], path[i + 1]);
+            nearestRoad = new Point2D[road.getPointCount()];
+            for (int i = 0; i < nearestRoad.length; i++) {
+                nearestRoad[i] = transform.transform(road.getX(i), road.getY(i));
             }
         } else {
             nearestRoad = null;
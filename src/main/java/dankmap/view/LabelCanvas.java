@@ -0,0 +1,108 @@
+package dankmap.view;
+
+import dankmap.drawing.ZoomLevel;
+import dankmap.model.Bounds;
+import dankmap.model.Place;
+import dankmap.model.elements.MapElement;
+import dankmap.util.metrics.FrameMetrics;
+import javafx.application.Platform;
+import javafx.geometry.Point2D;
+import javafx.geometry.VPos;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.StrokeLineJoin;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Draws the names of places and roads. Labels are placed on a worker, such
+ * that panning never waits for placement. Until a new placement is published
+ * the last labels are drawn, following the view by their map coordinates.
+ */
+public class LabelCanvas extends BaseCanvas {
+    private static final String FONT_FAMILY = "Francois One";
+
+    private final ExecutorService layoutWorker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "label-layout");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> pendingLayout;
+    private volatile long layoutGeneration;
+    private long publishedGeneration;
+
+    // Only accessed by the layout worker
+    private LabelLayout layout;
+
+    private List<MapLabel> labels = Collections.emptyList();
+
+    @Override
+    public void initialize(ViewModel model) {
+        super.initialize(model);
+        layout = new LabelLayout(
+                Font.font(FONT_FAMILY, 12),
+                Font.font(FONT_FAMILY, 18),
+                Font.font(FONT_FAMILY, 15),
+                Font.font(FONT_FAMILY, 13));
+    }
+
+    /**
+     * Places the labels of the current view on the layout worker. A placement
+     * that has not started when a newer one is requested is cancelled.
+     */
+    @Override
+    public void update() {
+        super.update();
+        long generation = ++layoutGeneration;
+        ZoomLevel zoomLevel = ZoomLevel.getCurrent();
+        double scale = transform.getMxx(), tx = transform.getTx(), ty = transform.getTy();
+        double width = getWidth(), height = getHeight();
+        Bounds bounds = new Bounds(innerBounds.getMinX(), innerBounds.getMinY(), innerBounds.getMaxX(), innerBounds.getMaxY());
+        Iterable<MapElement> roads = model.getRoads();
+
+        if (pendingLayout != null) pendingLayout.cancel(false);
+        pendingLayout = layoutWorker.submit(() -> {
+            if (generation != layoutGeneration) return;
+            long start = System.nanoTime();
+            List<Place> places = model.getPlaces(zoomLevel, bounds);
+            List<MapLabel> placed = layout.place(places, roads, zoomLevel, scale, tx, ty, width, height);
+            FrameMetrics.get().time(FrameMetrics.Series.LABELS, start);
+            FrameMetrics.get().record(FrameMetrics.Series.LABEL_COUNT, placed.size());
+            Platform.runLater(() -> publish(generation, placed));
+        });
+    }
+
+    private void publish(long generation, List<MapLabel> placed) {
+        if (generation <= publishedGeneration) return;
+        publishedGeneration = generation;
+        labels = placed;
+        repaint();
+    }
+
+    @Override
+    public void repaint() {
+        gfx.clearRect(0, 0, getWidth(), getHeight());
+        gfx.setTextAlign(TextAlignment.CENTER);
+        gfx.setTextBaseline(VPos.CENTER);
+        gfx.setLineJoin(StrokeLineJoin.ROUND);
+        gfx.setLineWidth(3);
+        gfx.setStroke(Color.WHITE);
+        gfx.setFill(darkColor);
+
+        for (MapLabel label : labels) {
+            Point2D anchor = transform.transform(label.getX(), label.getY());
+            gfx.save();
+            gfx.translate(anchor.getX(), anchor.getY());
+            gfx.rotate(label.getAngle());
+            gfx.setFont(label.getFont());
+            gfx.strokeText(label.getText(), 0, 0);
+            gfx.fillText(label.getText(), 0, 0);
+            gfx.restore();
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package dankmap.view;
+
+import dankmap.drawing.ZoomLevel;
+import dankmap.model.Place;
+import dankmap.model.elements.MapElement;
+import dankmap.navigation.Road;
+import javafx.scene.text.Font;
+
+import java.util.*;
+
+/**
+ * Places the labels of a view. Places are placed first, most important first,
+ * then the names of roads along the longest straight stretch of the road in view,
+ * longest stretches first and each name once. A label overlapping an already
+ * placed label is dropped, as tested by a {@link CollisionGrid} in screen space.
+ * <p>
+ * Meant to run off the FX thread, but not thread safe: one layout per thread.
+ */
+class LabelLayout {
+    // Roads are labeled from this ZoomLevel
+    static final int ROAD_LABEL_LEVEL = 9;
+
+    // Space kept free around labels, in pixels
+    private static final double PADDING = 4;
+    private static final double CELL_SIZE = 64;
+
+    // Stretches of a road bending more than this from their first segment are split
+    private static final double MAX_BEND = Math.toRadians(20);
+
+    private final GlyphMetrics roadMetrics;
+    private final GlyphMetrics largeMetrics;
+    private final GlyphMetrics mediumMetrics;
+    private final GlyphMetrics smallMetrics;
+
+    // A straight stretch of a named road, from point start to point end of its path
+    private static class Stretch {
+        final Road road;
+        final int start, end;
+        final double length;
+
+        Stretch(Road road, int start, int end, double length) {
+            this.road = road;
+            this.start = start;
+            this.end = end;
+            this.length = length;
+        }
+    }
+
+    LabelLayout(Font roadFont, Font largeFont, Font mediumFont, Font smallFont) {
+        roadMetrics = new GlyphMetrics(roadFont);
+        largeMetrics = new GlyphMetrics(largeFont);
+        mediumMetrics = new GlyphMetrics(mediumFont);
+        smallMetrics = new GlyphMetrics(smallFont);
+    }
+
+    /**
+     * Places the labels of the view of width x height pixels, where the map
+     * is transformed to the screen by (x * scale + tx, y * scale + ty)
+     */
+    List<MapLabel> place(Collection<Place> places, Iterable<MapElement> roads, ZoomLevel zoomLevel,
+                         double scale, double tx, double ty, double width, double height) {
+        CollisionGrid grid = new CollisionGrid(width, height, CELL_SIZE);
+        List<MapLabel> labels = new ArrayList<>();
+
+        List<Place> sortedPlaces = new ArrayList<>(places);
+        sortedPlaces.sort(Comparator.comparingInt(Place::getZoomLevel));
+        for (Place place : sortedPlaces) {
+            GlyphMetrics metrics = metricsOf(place);
+            double x = place.getX() * scale + tx;
+            double y = place.getY() * scale + ty;
+            if (x < 0 || x > width || y < 0 || y > height) continue;
+            if (insert(grid, metrics, place.getName(), x, y, 0))
+                labels.add(new MapLabel(place.getName(), place.getX(), place.getY(), 0, metrics.getFont()));
+        }
+
+        if (zoomLevel.getId() < ROAD_LABEL_LEVEL) return labels;
+
+        List<Stretch> stretches = new ArrayList<>();
+        for (MapElement element : roads) {
+            Road road = (Road) element;
+            if (road.getStreetName() == null || road.getStreetName().isEmpty()) continue;
+            Stretch stretch = longestStretch(road, scale);
+            if (stretch != null) stretches.add(stretch);
+        }
+        stretches.sort(Comparator.comparingDouble((Stretch s) -> s.length).reversed());
+
+        Set<String> placedNames = new HashSet<>();
+        for (Stretch stretch : stretches) {
+            String name = stretch.road.getStreetName();
+            if (placedNames.contains(name)) continue;
+            if (stretch.length < roadMetrics.width(name) + 2 * PADDING) continue;
+
+            Road road = stretch.road;
+            float midX = (road.getX(stretch.start) + road.getX(stretch.end)) / 2;
+            float midY = (road.getY(stretch.start) + road.getY(stretch.end)) / 2;
+            double x = midX * scale + tx;
+            double y = midY * scale + ty;
+            if (x < 0 || x > width || y < 0 || y > height) continue;
+
+            double angle = uprightAngle(road, stretch.start, stretch.end);
+            if (insert(grid, roadMetrics, name, x, y, angle)) {
+                labels.add(new MapLabel(name, midX, midY, Math.toDegrees(angle), roadMetrics.getFont()));
+                placedNames.add(name);
+            }
+        }
+        return labels;
+    }
+
+
+    /////////// Utility //////////
+
+    private GlyphMetrics metricsOf(Place place) {
+        if (place.getZoomLevel() <= 4) return largeMetrics;
+        if (place.getZoomLevel() <= 7) return mediumMetrics;
+        return smallMetrics;
+    }
+
+    // Inserts the box bounding the rotated label centered at (x,y)
+    private static boolean insert(CollisionGrid grid, GlyphMetrics metrics, String text, double x, double y, double angle) {
+        double halfWidth = metrics.width(text) / 2 + PADDING;
+        double halfHeight = metrics.getHeight() / 2 + PADDING / 2;
+        double cos = Math.abs(Math.cos(angle));
+        double sin = Math.abs(Math.sin(angle));
+        double extentX = cos * halfWidth + sin * halfHeight;
+        double extentY = sin * halfWidth + cos * halfHeight;
+        return grid.insert(x - extentX, y - extentY, x + extentX, y + extentY);
+    }
+
+    /**
+     * @return the longest run of segments of the road staying within MAX_BEND of the direction
+     * of its first segment, measured in pixels along the chord, or null if the road has no length
+     */
+    private static Stretch longestStretch(Road road, double scale) {
+        int points = road.getPointCount();
+
+        Stretch best = null;
+        int start = 0;
+        double direction = Double.NaN;
+        for (int i = 1; i < points; i++) {
+            double dx = road.getX(i) - road.getX(i - 1);
+            double dy = road.getY(i) - road.getY(i - 1);
+            if (dx == 0 && dy == 0) continue;
+
+            double angle = Math.atan2(dy, dx);
+            if (Double.isNaN(direction) || bend(angle, direction) > MAX_BEND) {
+                start = i - 1;
+                direction = angle;
+            }
+            double chord = Math.hypot(road.getX(i) - road.getX(start), road.getY(i) - road.getY(start)) * scale;
+            if (best == null || chord > best.length) best = new Stretch(road, start, i, chord);
+        }
+        return best;
+    }
+
+    private static double bend(double a, double b) {
+        double diff = Math.abs(a - b) % (2 * Math.PI);
+        return diff > Math.PI ? 2 * Math.PI - diff : diff;
+    }
+
+    // Angle of the chord in radians, turned such that the text is never upside down
+    private static double uprightAngle(Road road, int start, int end) {
+        double angle = Math.atan2(road.getY(end) - road.getY(start), road.getX(end) - road.getX(start));
+        if (angle > Math.PI / 2) angle -= Math.PI;
+        else if (angle <= -Math.PI / 2) angle += Math.PI;
+        return angle;
+    }
+}
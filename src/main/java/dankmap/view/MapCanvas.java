@@ -1,10 +1,8 @@
 package dankmap.view;
 
-import dankmap.drawing.DrawType;
 import dankmap.drawing.ZoomLevel;
-import dankmap.model.elements.IslandElement;
-import dankmap.model.elements.MapElement;
-import dankmap.navigation.Road;
+import dankmap.util.metrics.FrameMetrics;
+import dankmap.util.metrics.FrameMetrics.Series;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.FillRule;
 import javafx.scene.shape.StrokeLineCap;
@@ -13,59 +11,85 @@ import javafx.scene.text.Font;
 import javafx.scene.text.TextAlignment;
 import javafx.scene.transform.Affine;
 
-import java.util.Collection;
-
 public class MapCanvas extends BaseCanvas {
+    // Memory budget of cached tiles, 512 tiles of 256 x 256
+    private static final long TILE_BUDGET = 128L * 1024 * 1024;
+
     private final Affine reset = new Affine();
+    private TileCache tiles;
+    private Prefetcher prefetcher;
+    private boolean tiled = true;
 
     @Override
     public void initialize(ViewModel viewModel) {
         super.initialize(viewModel);
         gfx.setFillRule(FillRule.EVEN_ODD);
+        tiles = new TileCache(viewModel, TILE_BUDGET, this::repaint);
+        prefetcher = new Prefetcher(viewModel, tiles, TILE_BUDGET / 4);
     }
 
+    /**
+     * Composes the map of cached tiles, the map is only
+     * painted as vectors while tiles are missing.
+     * Tiles and elements ahead of the motion of the view are prefetched.
+     */
     public void repaint() {
+        FrameMetrics metrics = FrameMetrics.get();
+        long start = System.nanoTime();
         drawBackground();
-        resetPaint();
-        drawIslands();
-        drawMapElements();
-        drawRoads();
+        boolean drawn = tiled && tiles.draw(gfx, transform, getWidth(), getHeight(), ZoomLevel.getCurrent());
+        metrics.time(Series.TILES, start);
+        if (!drawn) {
+            resetPaint();
+            start = System.nanoTime();
+            drawIslands();
+            metrics.time(Series.ISLANDS, start);
+            start = System.nanoTime();
+            int commands = drawMapElements();
+            metrics.time(Series.MAP_ELEMENTS, start);
+            start = System.nanoTime();
+            commands += drawRoads();
+            metrics.time(Series.ROADS, start);
+            metrics.record(Series.PATH_COMMANDS, commands);
+        }
+        if (tiled) prefetcher.update(transform, getWidth(), getHeight(), ZoomLevel.getCurrent());
         requestFocus();
     }
 
+    /**
+     * Whether the map is composed of cached tiles. Untiled, the map is painted as vectors
+     * on every repaint and nothing is prefetched, such that painting needs no FX thread.
+     */
+    public void setTiled(boolean tiled) {
+        this.tiled = tiled;
+    }
+
+    /**
+     * Drops all cached tiles, such that the map is painted anew
+     */
+    public void clearTiles() {
+        tiles.clear();
+    }
+
+    public TileCache getTileCache() {
+        return tiles;
+    }
+
     private void drawIslands() {
-        DrawType.set(gfx, DrawType.getDrawTypes().get(IslandElement.drawType));
-        for (var isle : model.getIslands()) {
-            if (isle.getBounds().intersects(innerBounds)) {
-                isle.draw(gfx);
-            }
-        }
+        MapPainter.paintIslands(gfx, ZoomLevel.getCurrent(), model.getIslands(), innerBounds);
     }
 
     private void drawBackground() {
         gfx.setTransform(reset);
-        gfx.setFill(DrawType.getDrawTypes().get((byte) 0).getFillColor());
-        gfx.fillRect(0, 0, getWidth(), getHeight());
+        MapPainter.paintBackground(gfx, getWidth(), getHeight());
     }
 
-    private void drawRoads() {
-        boolean shouldOutline = ZoomLevel.getCurrent().getId() >= 10;
-        Collection<MapElement> roads = model.getRoads();
-        if (shouldOutline) {
-            for (MapElement road : roads) {
-                ((Road) road).outline(gfx);
-            }
-        }
-        for (MapElement road : roads) {
-            ((Road) road).draw(gfx);
-        }
+    private int drawRoads() {
+        return MapPainter.paintRoads(gfx, ZoomLevel.getCurrent(), model.getRoads());
     }
 
-    private void drawMapElements() {
-        model.getMapElements()
-                .stream()
-                .sorted(MapElement::compareByDrawOrder)
-                .forEach(element -> element.draw(gfx));
+    private int drawMapElements() {
+        return MapPainter.paintMapElements(gfx, ZoomLevel.getCurrent(), model.getMapElements());
     }
 
     private void resetPaint() {
@@ -0,0 +1,46 @@
+package dankmap.view;
+
+import javafx.scene.text.Font;
+
+/**
+ * A placed label, anchored at its center in map coordinates such that
+ * it follows the view until it is placed again. The text is drawn
+ * in screen space, rotated by the angle.
+ */
+final class MapLabel {
+    private final String text;
+    private final float x, y;
+    private final double angle;
+    private final Font font;
+
+    MapLabel(String text, float x, float y, double angle, Font font) {
+        this.text = text;
+        this.x = x;
+        this.y = y;
+        this.angle = angle;
+        this.font = font;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    float getX() {
+        return x;
+    }
+
+    float getY() {
+        return y;
+    }
+
+    /**
+     * @return the rotation of the text in degrees, clockwise
+     */
+    double getAngle() {
+        return angle;
+    }
+
+    Font getFont() {
+        return font;
+    }
+}
@@ -0,0 +1,100 @@
+package dankmap.view;
+
+import dankmap.drawing.DrawType;
+import dankmap.drawing.ZoomLevel;
+import dankmap.model.Bounds;
+import dankmap.model.elements.IslandElement;
+import dankmap.model.elements.MapElement;
+import dankmap.util.collections.DrawOrderBuckets;
+import javafx.scene.canvas.GraphicsContext;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Paints the layers of the map, shared by the <code>MapCanvas</code>
+ * and the tiles of the <code>TileCache</code>, such that both look the same.
+ * Painting only issues commands to the GraphicsContext, so tiles
+ * can be painted off the FX thread on canvases not yet in a scene.
+ * <p>
+ * Elements are painted bucket by bucket of their draw order, the state of the
+ * GraphicsContext is set once per bucket and all stroked elements of a bucket
+ * are traced into a single path.
+ */
+class MapPainter {
+
+    static void paintBackground(GraphicsContext gfx, double width, double height) {
+        gfx.setFill(DrawType.getDrawTypes().get((byte) 0).getFillColor());
+        gfx.fillRect(0, 0, width, height);
+    }
+
+    static void paintIslands(GraphicsContext gfx, ZoomLevel zoomLevel, Collection<IslandElement> islands, Bounds bounds) {
+        DrawType.set(gfx, DrawType.getDrawTypes().get(IslandElement.drawType));
+        for (var isle : islands) {
+            if (isle.getBounds().intersects(bounds)) {
+                isle.draw(gfx, zoomLevel);
+            }
+        }
+    }
+
+    /**
+     * @return the number of path commands issued
+     */
+    static int paintMapElements(GraphicsContext gfx, ZoomLevel zoomLevel, DrawOrderBuckets mapElements) {
+        int commands = 0;
+        for (List<MapElement> bucket : mapElements.getBuckets()) {
+            DrawType.set(gfx, bucket.get(0).getDrawType());
+            commands += paintBucket(gfx, zoomLevel, bucket);
+        }
+        return commands;
+    }
+
+    /**
+     * When drawing roads, we wanna be able to outline each road's stroke. Since
+     * no such method exists in javafx, the solution is to draw all roads
+     * twice with different lineWidths. This also creates the illusion of the
+     * roads 'sticking' together.
+     *
+     * @return the number of path commands issued
+     */
+    static int paintRoads(GraphicsContext gfx, ZoomLevel zoomLevel, DrawOrderBuckets roads) {
+        List<List<MapElement>> buckets = roads.getBuckets();
+        boolean shouldOutline = zoomLevel.getId() >= 10;
+        int commands = 0;
+        if (shouldOutline) {
+            for (List<MapElement> bucket : buckets) {
+                DrawType drawType = bucket.get(0).getDrawType();
+                if (!drawType.isOutline()) continue;
+                DrawType.set(gfx, drawType);
+                gfx.setStroke(drawType.getStrokeColor().darker());
+                gfx.setLineWidth(gfx.getLineWidth() / 4 * 5);
+                commands += paintBucket(gfx, zoomLevel, bucket);
+            }
+        }
+        return commands + paintMapElements(gfx, zoomLevel, roads);
+    }
+
+
+    /////////// Utility //////////
+
+    // Filled elements are painted one at a time, then the rest are stroked as one path
+    private static int paintBucket(GraphicsContext gfx, ZoomLevel zoomLevel, List<MapElement> bucket) {
+        int commands = 0;
+        for (MapElement element : bucket) {
+            if (!element.isFilled()) continue;
+            gfx.beginPath();
+            commands += element.trace(gfx, zoomLevel);
+            gfx.fill();
+            gfx.stroke();
+        }
+
+        int filled = commands;
+        gfx.beginPath();
+        for (MapElement element : bucket) {
+            if (element.isFilled()) continue;
+            commands += element.trace(gfx, zoomLevel);
+        }
+        if (commands > filled) gfx.stroke();
+        return commands;
+    }
+}
@@ -4,6 +4,8 @@ import dankmap.controller.Controller;
 import dankmap.drawing.ZoomLevel;
 import dankmap.util.StringUtil;
 import dankmap.util.cartography.MapConstants;
+import dankmap.util.metrics.FrameMetrics;
+import dankmap.util.metrics.FrameMetrics.Series;
 import javafx.scene.text.Font;
 import javafx.scene.text.TextAlignment;
 import javafx.scene.transform.NonInvertibleTransformException;
@@ -13,9 +15,6 @@ public class OverlayCanvas extends BaseCanvas {
     private final int padding = 10;
     private final int gap = -15;
 
-    private double repaintTime;
-    private double updateTime;
-
     @Override
     public void initialize(ViewModel model) {
         super.initialize(model);
@@ -41,9 +40,9 @@ public class OverlayCanvas extends BaseCanvas {
             int mapCount = model.getMapElements().size();
             int roadCount = model.getRoads().size();
             gfx.fillText(ZoomLevel.getCurrent().toString(), padding, offset + gap * 6);
-            gfx.fillText(String.format("Update Time: %.0fns", updateTime), padding, offset + gap * 5);
-            gfx.fillText(String.format("Repaint Time: %.3fms", repaintTime), padding, offset + gap * 4);
-            gfx.fillText(String.format("Time/Element: %.3fns", repaintTime / (mapCount + roadCount) * 1e6), padding, offset + gap * 3);
+            gfx.fillText(percentiles("Frame", Series.FRAME), padding, offset + gap * 5);
+            gfx.fillText(percentiles("Query", Series.QUERY), padding, offset + gap * 4);
+            gfx.fillText(percentiles("Labels", Series.LABELS), padding, offset + gap * 3);
             gfx.fillText(String.format("MapElements: %d", mapCount), padding, offset + gap * 2);
             gfx.fillText(String.format("Roads: %d", roadCount), padding, offset + gap);
         }
@@ -51,12 +50,9 @@ public class OverlayCanvas extends BaseCanvas {
         drawNearestRoad();
     }
 
-    public void setUpdateTime(double updateTime) {
-        this.updateTime = updateTime;
-    }
-
-    public void setRepaintTime(double repaintTime) {
-        this.repaintTime = repaintTime;
+    private static String percentiles(String label, Series series) {
+        double[] p = FrameMetrics.get().percentiles(series, 50, 95, 99);
+        return String.format("%s: p50 %.2fms  p95 %.2fms  p99 %.2fms", label, p[0], p[1], p[2]);
     }
 
     private void resetPaint() {
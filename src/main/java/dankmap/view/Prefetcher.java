@@ -0,0 +1,111 @@
+package dankmap.view;
+
+import dankmap.drawing.ZoomLevel;
+import dankmap.model.Bounds;
+import javafx.scene.transform.Affine;
+
+/**
+ * Predicts where the view is heading from the velocity of panning and the
+ * direction of zooming, and requests the elements and tiles ahead of it from
+ * the background workers, such that fast flicks do not show blank edges.
+ * <p>
+ * Prefetched tiles are limited to a share of the tile budget, all
+ * methods must be called from the FX thread.
+ */
+class Prefetcher {
+    // How far ahead of the motion to prefetch, in seconds
+    private static final double LOOKAHEAD = 0.4;
+
+    // At most this many viewports ahead of the view
+    private static final double MAX_AHEAD = 1.0;
+
+    // Weight of the newest sample in the smoothed velocity
+    private static final double SMOOTHING = 0.5;
+
+    // The view is at rest when it has not moved for this long, in nanoseconds
+    private static final long IDLE = 150_000_000L;
+
+    private final ViewModel model;
+    private final TileCache tiles;
+    private final int maxTiles;
+
+    // Last sample of the center of the view, in map coordinates
+    private long lastTime;
+    private double lastX, lastY, lastScale;
+
+    // Smoothed velocity in map units per second, and the sign of the last change of scale
+    private double vx, vy;
+    private int zoomDirection;
+
+    /**
+     * @param budget the maximum number of bytes of tiles requested by one prefetch
+     */
+    Prefetcher(ViewModel model, TileCache tiles, long budget) {
+        this.model = model;
+        this.tiles = tiles;
+        this.maxTiles = (int) (budget / TileCache.TILE_BYTES);
+    }
+
+    /**
+     * Samples the view of the transform and prefetches ahead of its motion
+     */
+    void update(Affine transform, double width, double height, ZoomLevel zoomLevel) {
+        long now = System.nanoTime();
+        double scale = transform.getMxx();
+        double x = (width / 2 - transform.getTx()) / scale;
+        double y = (height / 2 - transform.getTy()) / scale;
+
+        if (lastTime == 0 || now - lastTime > IDLE) {
+            vx = 0;
+            vy = 0;
+            zoomDirection = 0;
+        }
+        if (lastTime != 0 && (x != lastX || y != lastY || scale != lastScale)) {
+            double dt = (now - lastTime) / 1e9;
+            if (dt > 0) {
+                vx = SMOOTHING * (x - lastX) / dt + (1 - SMOOTHING) * vx;
+                vy = SMOOTHING * (y - lastY) / dt + (1 - SMOOTHING) * vy;
+            }
+            if (scale != lastScale) zoomDirection = scale > lastScale ? 1 : -1;
+        }
+        if (lastTime == 0 || x != lastX || y != lastY || scale != lastScale) {
+            lastTime = now;
+            lastX = x;
+            lastY = y;
+            lastScale = scale;
+        }
+        if (vx == 0 && vy == 0 && zoomDirection == 0) return;
+
+        double viewWidth = width / scale;
+        double viewHeight = height / scale;
+        double aheadX = x + clamp(vx * LOOKAHEAD, viewWidth * MAX_AHEAD);
+        double aheadY = y + clamp(vy * LOOKAHEAD, viewHeight * MAX_AHEAD);
+
+        Bounds ahead = around(aheadX, aheadY, viewWidth, viewHeight);
+        model.prefetchElements(ahead);
+        requestTiles(zoomLevel, ahead);
+
+        // The view at the next level in the direction of zooming
+        int nextId = zoomLevel.getId() + zoomDirection;
+        if (zoomDirection != 0 && nextId >= 0 && nextId < ZoomLevel.values().length) {
+            ZoomLevel next = ZoomLevel.values()[nextId];
+            requestTiles(next, around(aheadX, aheadY, width / next.getScale(), height / next.getScale()));
+        }
+    }
+
+    private void requestTiles(ZoomLevel zoomLevel, Bounds bounds) {
+        if (TileCache.tileCount(zoomLevel, bounds) > maxTiles) return;
+        tiles.request(zoomLevel, bounds);
+    }
+
+
+    /////////// Utility //////////
+
+    private static Bounds around(double x, double y, double width, double height) {
+        return new Bounds(x - width / 2, y - height / 2, x + width / 2, y + height / 2);
+    }
+
+    private static double clamp(double value, double limit) {
+        return Math.max(-limit, Math.min(limit, value));
+    }
+}
@@ -0,0 +1,143 @@
+package dankmap.view;
+
+import dankmap.Launcher;
+import dankmap.controller.Controller;
+import dankmap.drawing.ZoomLevel;
+import dankmap.model.DataModel;
+import dankmap.util.metrics.FrameMetrics;
+import dankmap.util.metrics.FrameMetrics.Series;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Replays a camera path against a map headless, querying and drawing the map, highlight and
+ * overlay canvases as the view does, and reports the distributions of the frame metrics.
+ * <p>
+ * The canvases are not in a scene, so drawing only records the commands of each frame, the
+ * cost of rasterizing them is not measured. The map is painted as vectors rather than composed
+ * of tiles, as tiles are snapshot on the FX thread. Each frame is drawn once its viewport query
+ * is published, such that runs are reproducible.
+ * <p>
+ * Usage: RenderHarness &lt;map.bin|map.osm|map.zip&gt; [camera.path|-] [results.json|results.csv]
+ * <p>
+ * Without a camera path, or given <code>-</code>, a flyover of the map is replayed.
+ */
+public class RenderHarness {
+    private static final double WIDTH = 1280, HEIGHT = 800;
+
+    private final ViewModel model;
+    private final ExecutorService queryWorker;
+    // Results of queries, published to the thread replaying the path
+    private final Queue<Runnable> published = new ConcurrentLinkedQueue<>();
+
+    private final MapCanvas mapCanvas = new MapCanvas();
+    private final HighlightCanvas highlightCanvas = new HighlightCanvas();
+    private final OverlayCanvas overlayCanvas = new OverlayCanvas();
+
+    public RenderHarness(DataModel dataModel) {
+        queryWorker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "viewport-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+        model = new ViewModel(dataModel, WIDTH, HEIGHT, queryWorker, published::add);
+        mapCanvas.setTiled(false);
+        mapCanvas.initialize(model);
+        highlightCanvas.initialize(model);
+        overlayCanvas.initialize(model);
+    }
+
+    /**
+     * Replays the path, recording a frame of the metrics per frame of the path
+     */
+    public void replay(CameraPath path) throws InterruptedException, ExecutionException {
+        FrameMetrics.get().reset(Math.max(1, path.size()));
+        awaitQueries();
+        for (CameraPath.Frame frame : path.getFrames()) {
+            ZoomLevel.setByLevel(frame.getZoomLevel());
+            if (frame.getWidth() != model.getWidth() || frame.getHeight() != model.getHeight()) {
+                model.setSize(frame.getWidth(), frame.getHeight());
+            }
+            model.getTransformWrapper().setTransform(frame.getTransform());
+            awaitQueries();
+            drawFrame();
+        }
+    }
+
+    public ViewModel getViewModel() {
+        return model;
+    }
+
+    // Waits for the queries submitted so far, then publishes their results
+    private void awaitQueries() throws InterruptedException, ExecutionException {
+        queryWorker.submit(() -> { }).get();
+        Runnable publish;
+        while ((publish = published.poll()) != null) publish.run();
+    }
+
+    // As the Controller draws a frame, without labels which are placed on a worker
+    private void drawFrame() {
+        FrameMetrics metrics = FrameMetrics.get();
+        long frameStart = System.nanoTime();
+        mapCanvas.update();
+        highlightCanvas.update();
+        overlayCanvas.update();
+
+        mapCanvas.repaint();
+        long start = System.nanoTime();
+        highlightCanvas.repaint();
+        metrics.time(Series.HIGHLIGHT, start);
+        start = System.nanoTime();
+        overlayCanvas.repaint();
+        metrics.time(Series.OVERLAY, start);
+
+        metrics.record(Series.ELEMENT_COUNT, model.getMapElements().size());
+        metrics.record(Series.ROAD_COUNT, model.getRoads().size());
+        metrics.time(Series.FRAME, frameStart);
+        metrics.endFrame();
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("usage: RenderHarness <map.bin|map.osm|map.zip> [camera.path|-] [results.json|results.csv]");
+            System.exit(1);
+        }
+        // Software rendering, as there may be no display
+        if (System.getProperty("prism.order") == null) System.setProperty("prism.order", "sw");
+
+        // Keep load messages out of results written to stdout
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+        DataModel dataModel = Launcher.loadFile(new File(args[0]));
+        System.setOut(stdout);
+        if (dataModel == null) throw new IOException("unsupported map file: " + args[0]);
+
+        // The overlay draws its debug information, as when rendering is observed interactively
+        Controller.IS_DEBUG = true;
+        RenderHarness harness = new RenderHarness(dataModel);
+        CameraPath path = args.length > 1 && !args[1].equals("-") ?
+                CameraPath.read(new File(args[1])) :
+                CameraPath.flyover(dataModel.getBounds(), WIDTH, HEIGHT);
+
+        long start = System.nanoTime();
+        harness.replay(path);
+        System.err.println(String.format(Locale.ROOT, "Replayed %d frames in %.3f s",
+                path.size(), (System.nanoTime() - start) / 1e9));
+
+        if (args.length > 2) {
+            FrameMetrics.get().export(new File(args[2]));
+        } else {
+            Writer out = new OutputStreamWriter(stdout, StandardCharsets.UTF_8);
+            FrameMetrics.get().writeCsv(out);
+            out.flush();
+        }
+        System.exit(0);
+    }
+}
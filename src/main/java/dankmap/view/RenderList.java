@@ -0,0 +1,54 @@
+package dankmap.view;
+
+import dankmap.drawing.ZoomLevel;
+import dankmap.model.Bounds;
+import dankmap.util.collections.DrawOrderBuckets;
+
+/**
+ * The elements of one viewport query, prepared on the query worker
+ * of the <code>ViewModel</code> and handed to the FX thread.
+ * A render list is never modified once it has been published.
+ */
+public final class RenderList {
+    static final RenderList EMPTY = new RenderList(0, ZoomLevel.ZOOM_LEVEL_MIN, null, new DrawOrderBuckets(), new DrawOrderBuckets());
+
+    private final long generation;
+    private final ZoomLevel zoomLevel;
+    private final Bounds bounds;
+    private final DrawOrderBuckets roads;
+    private final DrawOrderBuckets mapElements;
+
+    RenderList(long generation, ZoomLevel zoomLevel, Bounds bounds, DrawOrderBuckets roads, DrawOrderBuckets mapElements) {
+        this.generation = generation;
+        this.zoomLevel = zoomLevel;
+        this.bounds = bounds;
+        this.roads = roads;
+        this.mapElements = mapElements;
+    }
+
+    /**
+     * @return the number of the query, later queries have larger numbers
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    public ZoomLevel getZoomLevel() {
+        return zoomLevel;
+    }
+
+    /**
+     * @return the bounds that were queried, or null for the empty list
+     */
+    public Bounds getBounds() {
+        return bounds;
+    }
+
+    public DrawOrderBuckets getRoads() {
+        return roads;
+    }
+
+    public DrawOrderBuckets getMapElements() {
+        return mapElements;
+    }
+}
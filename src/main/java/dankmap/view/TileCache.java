@@ -0,0 +1,272 @@
+package dankmap.view;
+
+import dankmap.drawing.ZoomLevel;
+import dankmap.model.Bounds;
+import dankmap.model.elements.IslandElement;
+import dankmap.model.elements.MapElement;
+import dankmap.util.collections.DrawOrderBuckets;
+import javafx.application.Platform;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.FillRule;
+import javafx.scene.shape.StrokeLineCap;
+import javafx.scene.shape.StrokeLineJoin;
+import javafx.scene.transform.Affine;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Caches the map as raster tiles of fixed pixel size per ZoomLevel.
+ * Tiles are painted on background threads onto canvases outside of any scene,
+ * then snapshot into images on the FX thread and kept in an LRU cache
+ * limited by a memory budget.
+ * <p>
+ * Tile (col,row) of a ZoomLevel covers the map area
+ * [col * s, (col + 1) * s] x [row * s, (row + 1) * s] where s = TILE_SIZE / scale.
+ * <p>
+ * All methods must be called from the FX thread.
+ */
+public class TileCache {
+    public static final int TILE_SIZE = 256;
+    static final long TILE_BYTES = TILE_SIZE * TILE_SIZE * 4L;
+
+    private final ViewModel model;
+    private final long budget;
+    private final Runnable onTilesReady;
+    private final ExecutorService renderer;
+
+    // Access ordered, the eldest tile is the least recently drawn
+    private final LinkedHashMap<Long, Image> tiles = new LinkedHashMap<>(64, 0.75f, true);
+    private final Set<Long> pending = new HashSet<>();
+
+    // Bumped when the cache is cleared, tiles painted before are dropped
+    private int generation;
+
+    /**
+     * @param budget       the maximum number of bytes held by cached tiles
+     * @param onTilesReady called on the FX thread when requested tiles have been added
+     */
+    public TileCache(ViewModel model, long budget, Runnable onTilesReady) {
+        this.model = model;
+        this.budget = budget;
+        this.onTilesReady = onTilesReady;
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        this.renderer = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "tile-renderer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Draws the tiles covering the viewport of the transform, if all of them are cached,
+     * missing tiles are requested.
+     *
+     * @param gfx a GraphicsContext with the identity transform
+     * @return true if the viewport was drawn, false if tiles were missing and nothing was drawn
+     */
+    public boolean draw(GraphicsContext gfx, Affine transform, double width, double height, ZoomLevel zoomLevel) {
+        double tileSize = tileSize(zoomLevel);
+        double scale = transform.getMxx();
+        int minCol = (int) Math.floor(-transform.getTx() / scale / tileSize);
+        int minRow = (int) Math.floor(-transform.getTy() / scale / tileSize);
+        int maxCol = (int) Math.floor((width - transform.getTx()) / scale / tileSize);
+        int maxRow = (int) Math.floor((height - transform.getTy()) / scale / tileSize);
+
+        List<Long> missing = new ArrayList<>();
+        for (int col = minCol; col <= maxCol; col++) {
+            for (int row = minRow; row <= maxRow; row++) {
+                long key = key(zoomLevel, col, row);
+                if (!tiles.containsKey(key)) missing.add(key);
+            }
+        }
+        if (!missing.isEmpty()) {
+            request(zoomLevel, missing);
+            return false;
+        }
+
+        // Edges are rounded such that neighbouring tiles meet without seams
+        for (int col = minCol; col <= maxCol; col++) {
+            double x0 = Math.round(col * tileSize * scale + transform.getTx());
+            double x1 = Math.round((col + 1) * tileSize * scale + transform.getTx());
+            for (int row = minRow; row <= maxRow; row++) {
+                double y0 = Math.round(row * tileSize * scale + transform.getTy());
+                double y1 = Math.round((row + 1) * tileSize * scale + transform.getTy());
+                gfx.drawImage(tiles.get(key(zoomLevel, col, row)), x0, y0, x1 - x0, y1 - y0);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Requests the tiles of the specified ZoomLevel covering the bounds,
+     * tiles that are cached or pending are skipped
+     *
+     * @return the number of tiles requested
+     */
+    public int request(ZoomLevel zoomLevel, Bounds bounds) {
+        double tileSize = tileSize(zoomLevel);
+        List<Long> keys = new ArrayList<>();
+        for (int col = (int) Math.floor(bounds.getMinX() / tileSize); col <= (int) Math.floor(bounds.getMaxX() / tileSize); col++) {
+            for (int row = (int) Math.floor(bounds.getMinY() / tileSize); row <= (int) Math.floor(bounds.getMaxY() / tileSize); row++) {
+                long key = key(zoomLevel, col, row);
+                if (!tiles.containsKey(key)) keys.add(key);
+            }
+        }
+        return request(zoomLevel, keys);
+    }
+
+    /**
+     * Drops all cached tiles, ie. when the style of the map changes
+     */
+    public void clear() {
+        generation++;
+        tiles.clear();
+        pending.clear();
+    }
+
+    public boolean contains(ZoomLevel zoomLevel, int col, int row) {
+        return tiles.containsKey(key(zoomLevel, col, row));
+    }
+
+    public int size() {
+        return tiles.size();
+    }
+
+    public long getBytes() {
+        return tiles.size() * TILE_BYTES;
+    }
+
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * @return the number of tiles of the ZoomLevel covering the bounds
+     */
+    public static int tileCount(ZoomLevel zoomLevel, Bounds bounds) {
+        double tileSize = tileSize(zoomLevel);
+        long cols = (long) Math.floor(bounds.getMaxX() / tileSize) - (long) Math.floor(bounds.getMinX() / tileSize) + 1;
+        long rows = (long) Math.floor(bounds.getMaxY() / tileSize) - (long) Math.floor(bounds.getMinY() / tileSize) + 1;
+        return (int) Math.min(Integer.MAX_VALUE, cols * rows);
+    }
+
+    /**
+     * @return the width and height of a tile of the ZoomLevel, in map coordinates
+     */
+    public static double tileSize(ZoomLevel zoomLevel) {
+        return TILE_SIZE / zoomLevel.getScale();
+    }
+
+
+    /////////// Rendering //////////
+
+    // Paints the tiles in one batch, sharing a single query of the map elements
+    private int request(ZoomLevel zoomLevel, List<Long> keys) {
+        keys.removeIf(key -> !pending.add(key));
+        if (keys.isEmpty()) return 0;
+
+        int batchGeneration = generation;
+        renderer.submit(() -> {
+            try {
+                Map<Long, Canvas> painted = paint(zoomLevel, keys);
+                Platform.runLater(() -> store(batchGeneration, keys, painted));
+            } catch (RuntimeException e) {
+                // Release the tiles such that they can be requested again
+                Platform.runLater(() -> pending.removeAll(keys));
+                e.printStackTrace();
+            }
+        });
+        return keys.size();
+    }
+
+    private Map<Long, Canvas> paint(ZoomLevel zoomLevel, List<Long> keys) {
+        double tileSize = tileSize(zoomLevel);
+
+        Bounds batchBounds = null;
+        for (long key : keys) {
+            Bounds bounds = tileBounds(key, tileSize);
+            if (batchBounds == null) batchBounds = bounds;
+            else batchBounds = batchBounds.inclusion(bounds);
+        }
+
+        // Elements are found by their centers, the buffer includes those reaching into the tiles
+        double c = zoomLevel.getPanBuffer();
+        Bounds queryBounds = new Bounds(batchBounds.getMinX() - c, batchBounds.getMinY() - c, batchBounds.getMaxX() + c, batchBounds.getMaxY() + c);
+        DrawOrderBuckets mapElements = model.getMapElements(zoomLevel, queryBounds);
+        DrawOrderBuckets roads = model.getRoads(zoomLevel, batchBounds);
+        Collection<IslandElement> islands = model.getIslands();
+
+        Map<Long, Canvas> painted = new HashMap<>();
+        for (long key : keys) {
+            Bounds bounds = tileBounds(key, tileSize);
+            // Strokes may reach a little outside of the elements bounds
+            double margin = tileSize / 8;
+            Bounds strokeBounds = new Bounds(bounds.getMinX() - margin, bounds.getMinY() - margin, bounds.getMaxX() + margin, bounds.getMaxY() + margin);
+
+            Canvas canvas = new Canvas(TILE_SIZE, TILE_SIZE);
+            GraphicsContext gfx = canvas.getGraphicsContext2D();
+            MapPainter.paintBackground(gfx, TILE_SIZE, TILE_SIZE);
+
+            gfx.setTransform(zoomLevel.getScale(), 0, 0, zoomLevel.getScale(), -bounds.getMinX() * zoomLevel.getScale(), -bounds.getMinY() * zoomLevel.getScale());
+            gfx.setFillRule(FillRule.EVEN_ODD);
+            gfx.setLineCap(StrokeLineCap.ROUND);
+            gfx.setLineJoin(StrokeLineJoin.ROUND);
+
+            MapPainter.paintIslands(gfx, zoomLevel, islands, strokeBounds);
+            MapPainter.paintMapElements(gfx, zoomLevel, intersecting(mapElements, strokeBounds));
+            MapPainter.paintRoads(gfx, zoomLevel, intersecting(roads, strokeBounds));
+            painted.put(key, canvas);
+        }
+        return painted;
+    }
+
+    private void store(int batchGeneration, List<Long> keys, Map<Long, Canvas> painted) {
+        if (batchGeneration != generation) return;
+
+        SnapshotParameters parameters = new SnapshotParameters();
+        parameters.setFill(Color.TRANSPARENT);
+        for (long key : keys) {
+            pending.remove(key);
+            WritableImage image = painted.get(key).snapshot(parameters, new WritableImage(TILE_SIZE, TILE_SIZE));
+            tiles.put(key, image);
+        }
+
+        // Evict least recently drawn tiles
+        var eldest = tiles.keySet().iterator();
+        while (tiles.size() * TILE_BYTES > budget && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+        onTilesReady.run();
+    }
+
+
+    /////////// Utility //////////
+
+    // Iteration keeps the draw order, so the result is bucketed without sorting
+    private static DrawOrderBuckets intersecting(DrawOrderBuckets elements, Bounds bounds) {
+        DrawOrderBuckets result = new DrawOrderBuckets();
+        for (MapElement element : elements) {
+            if (element.getBounds().intersects(bounds)) result.add(element);
+        }
+        return result;
+    }
+
+    private static Bounds tileBounds(long key, double tileSize) {
+        int col = (int) (key << 8 >> 36);
+        int row = (int) (key << 36 >> 36);
+        return new Bounds(col * tileSize, row * tileSize, (col + 1) * tileSize, (row + 1) * tileSize);
+    }
+
+    // Level in the upper 8 bits, then 28 bits each of column and row
+    static long key(ZoomLevel zoomLevel, int col, int row) {
+        return ((long) zoomLevel.getId() << 56) | ((col & 0xFFFFFFFL) << 28) | (row & 0xFFFFFFFL);
+    }
+}
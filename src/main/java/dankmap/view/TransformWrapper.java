@@ -123,6 +123,16 @@ public class TransformWrapper {
         }
     }
 
+    /**
+     * This method sets the transform to the scale and translation of another,
+     * ie. one recorded by a CameraPath, then updates innerBounds and notifies listeners.
+     */
+    public void setTransform(Affine to) {
+        setTransform(to.getMxx(), to.getMyy(), to.getTx(), to.getTy());
+        updateInnerBounds(transform, true);
+        notifyOnTransformChanged();
+    }
+
     // PRIVATE TRANSFORMATIONS
 
     /**
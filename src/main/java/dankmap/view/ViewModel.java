@@ -3,9 +3,11 @@ package dankmap.view;
 import dankmap.drawing.ZoomLevel;
 import dankmap.model.*;
 import dankmap.model.elements.IslandElement;
-import dankmap.model.elements.MapElement;
 import dankmap.navigation.Road;
 import dankmap.navigation.Route;
+import dankmap.util.collections.DrawOrderBuckets;
+import dankmap.util.metrics.FrameMetrics;
+import javafx.application.Platform;
 import javafx.geometry.Point2D;
 import javafx.scene.transform.Affine;
 import javafx.scene.transform.NonInvertibleTransformException;
@@ -13,6 +15,10 @@ import javafx.scene.transform.NonInvertibleTransformException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static java.lang.Math.max;
 import static java.lang.Math.min;
@@ -29,10 +35,19 @@ public class ViewModel {
     private TransformWrapper transformWrapper;
     private Affine transform;
 
+    // Viewport queries run on a single worker, results are published on the FX thread
+    private final ExecutorService queryWorker;
+    private final Executor publisher;
+    private Future<?> pendingQuery;
+    private volatile long queryGeneration;
+    private ZoomLevel submittedZoomLevel;
+    private Bounds submittedBounds;
+    // The last list built by the worker, only accessed by the worker
+    private RenderList lastQuery;
+
     // Temporary data
-    private Collection<MapElement> roads;
+    private RenderList renderList = RenderList.EMPTY;
     private Collection<IslandElement> islands;
-    private Collection<MapElement> mapElements;
     private Route currentRoute;
     private Road nearestRoad;
     private Address nearestAddress;
@@ -55,9 +70,23 @@ public class ViewModel {
 
 
     public ViewModel(DataModel dataModel, double width, double height) {
+        this(dataModel, width, height, Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "viewport-query");
+            thread.setDaemon(true);
+            return thread;
+        }), Platform::runLater);
+    }
+
+    /**
+     * @param queryWorker a single thread running the viewport queries
+     * @param publisher   the thread the view is drawn by, which query results are published to
+     */
+    public ViewModel(DataModel dataModel, double width, double height, ExecutorService queryWorker, Executor publisher) {
         this.dataModel = dataModel;
         this.width = width;
         this.height = height;
+        this.queryWorker = queryWorker;
+        this.publisher = publisher;
 
         onMapUpdate = new ArrayList<>();
         onHighlightUpdate = new ArrayList<>();
@@ -79,9 +108,70 @@ public class ViewModel {
         fitToBounds(outerBounds, false);
     }
 
+    /**
+     * Queries the elements of the viewport on the query worker, the last complete
+     * render list is drawn until the new one is published. A query that has not
+     * started when a newer one is made is cancelled.
+     */
     public void updateElements() {
-        roads = dataModel.getRoads(transformWrapper.getInnerBounds());
-        mapElements = dataModel.getMapElements(transformWrapper.getInnerBounds());
+        submitQuery(ZoomLevel.getCurrent(), transformWrapper.getInnerBounds());
+    }
+
+    /**
+     * Extends the render list by the bounds ahead of the view, such that
+     * elements are loaded before they are panned into view
+     */
+    public void prefetchElements(Bounds ahead) {
+        ZoomLevel zoomLevel = ZoomLevel.getCurrent();
+        Bounds bounds = transformWrapper.getInnerBounds().inclusion(ahead);
+        if (submittedZoomLevel == zoomLevel && submittedBounds.contains(bounds)) return;
+        submitQuery(zoomLevel, bounds);
+    }
+
+    private void submitQuery(ZoomLevel zoomLevel, Bounds queryBounds) {
+        long generation = ++queryGeneration;
+        Bounds bounds = new Bounds(queryBounds.getMinX(), queryBounds.getMinY(), queryBounds.getMaxX(), queryBounds.getMaxY());
+        submittedZoomLevel = zoomLevel;
+        submittedBounds = bounds;
+
+        if (pendingQuery != null) pendingQuery.cancel(false);
+        pendingQuery = queryWorker.submit(() -> {
+            if (generation != queryGeneration) return;
+            long start = System.nanoTime();
+            RenderList list = query(generation, zoomLevel, bounds);
+            FrameMetrics.get().time(FrameMetrics.Series.QUERY, start);
+            lastQuery = list;
+            publisher.execute(() -> publish(list));
+        });
+    }
+
+    /**
+     * When panning at the same ZoomLevel the last list is updated by the elements
+     * entering and leaving the view, such that only the uncovered strips are queried
+     */
+    private RenderList query(long generation, ZoomLevel zoomLevel, Bounds bounds) {
+        RenderList previous = lastQuery;
+        if (previous == null || previous.getZoomLevel() != zoomLevel || !previous.getBounds().intersects(bounds)) {
+            return new RenderList(generation, zoomLevel, bounds,
+                    dataModel.getRoads(zoomLevel, bounds),
+                    dataModel.getMapElements(zoomLevel, bounds));
+        }
+
+        Bounds previousBounds = previous.getBounds();
+        DrawOrderBuckets roads = previous.getRoads().copy(
+                dataModel.getRoads(zoomLevel, previousBounds, bounds),
+                dataModel.getRoads(zoomLevel, bounds, previousBounds));
+        DrawOrderBuckets mapElements = previous.getMapElements().copy(
+                dataModel.getMapElements(zoomLevel, previousBounds, bounds),
+                dataModel.getMapElements(zoomLevel, bounds, previousBounds));
+        return new RenderList(generation, zoomLevel, bounds, roads, mapElements);
+    }
+
+    // A list older than the drawn one is never published, such that the view never goes back in time
+    private void publish(RenderList list) {
+        if (list.getGeneration() <= renderList.getGeneration()) return;
+        renderList = list;
+        notifyOnMapUpdate();
     }
 
     //////////// Route and address? ///////////
@@ -289,16 +379,44 @@ public class ViewModel {
         return outerBounds;
     }
 
-    public Collection<MapElement> getRoads() {
-        return roads;
+    public DrawOrderBuckets getRoads() {
+        return renderList.getRoads();
     }
 
     public Collection<IslandElement> getIslands() {
         return islands;
     }
 
-    public Collection<MapElement> getMapElements() {
-        return mapElements;
+    public DrawOrderBuckets getMapElements() {
+        return renderList.getMapElements();
+    }
+
+    /**
+     * @return the last complete render list of the viewport
+     */
+    public RenderList getRenderList() {
+        return renderList;
+    }
+
+    /**
+     * Queries the map elements of any ZoomLevel and bounds, independent of the current view
+     */
+    public DrawOrderBuckets getMapElements(ZoomLevel zoomLevel, Bounds bounds) {
+        return dataModel.getMapElements(zoomLevel, bounds);
+    }
+
+    /**
+     * Queries the roads of any ZoomLevel and bounds, independent of the current view
+     */
+    public DrawOrderBuckets getRoads(ZoomLevel zoomLevel, Bounds bounds) {
+        return dataModel.getRoads(zoomLevel, bounds);
+    }
+
+    /**
+     * @return the places within the bounds which are labeled at the ZoomLevel
+     */
+    public List<Place> getPlaces(ZoomLevel zoomLevel, Bounds bounds) {
+        return dataModel.getPlaces(zoomLevel, bounds);
     }
 
     public Bounds getSelectedBounds() {
@@ -0,0 +1,61 @@
+package dankmap.drawing;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DrawTypeMapTest {
+    private DrawTypeMap map;
+    private DrawType water, building, anyLanduse, forest;
+
+    @BeforeEach
+    public void setUp() {
+        water = new DrawType.Builder().id((byte) 1).build();
+        building = new DrawType.Builder().id((byte) 5).build();
+        anyLanduse = new DrawType.Builder().id((byte) 2).build();
+        forest = new DrawType.Builder().id((byte) 3).build();
+
+        map = new DrawTypeMap();
+        map.put("natural", "water", water);
+        map.put("building", null, building);
+        map.put("landuse", null, anyLanduse);
+        map.put("landuse", "forest", forest);
+    }
+
+    @Test
+    public void testExactAndWildcard() {
+        assertEquals(water, map.get("natural", "water"));
+        assertNull(map.get("natural", "wood"));
+        assertEquals(building, map.get("building", "yes"));
+        assertEquals(forest, map.get("landuse", "forest"));
+        assertEquals(anyLanduse, map.get("landuse", "farmland"));
+        assertNull(map.get("highway", "primary"));
+    }
+
+    @Test
+    public void testHighestOrder() {
+        assertEquals(building, map.get(List.of("natural", "water", "building", "yes", "name", "x")));
+        assertEquals(building, map.get(new String[]{"building", "yes", "landuse", "forest"}));
+        assertNull(map.get(List.of("name", "x")));
+    }
+
+    @Test
+    public void testCollect() {
+        List<DrawType> result = new ArrayList<>();
+        assertEquals(2, map.collect(List.of("natural", "water", "name", "x", "landuse", "forest"), result));
+        assertEquals(List.of(water, forest), result);
+    }
+
+    @Test
+    public void testPutInvalidatesIndex() {
+        assertNull(map.get("natural", "wood"));
+        map.put("natural", "wood", forest);
+        assertEquals(forest, map.get("natural", "wood"));
+        map.clear();
+        assertNull(map.get("natural", "water"));
+    }
+}
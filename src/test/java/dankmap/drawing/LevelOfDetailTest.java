@@ -0,0 +1,95 @@
+package dankmap.drawing;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LevelOfDetailTest {
+
+    // Two straight lines meeting at a peak of the specified height in the middle, points should be odd
+    private static float[] peak(int points, float height) {
+        float[] path = new float[points * 2];
+        int mid = points / 2;
+        for (int i = 0; i < points; i++) {
+            path[i * 2] = i * 0.001f;
+            path[i * 2 + 1] = height * (i <= mid ? i : points - 1 - i) / mid;
+        }
+        return path;
+    }
+
+    // The indices of the points kept by the band
+    private static int[] indices(byte[] bands, int band) {
+        return IntStream.range(0, bands.length).filter(i -> bands[i] <= band).toArray();
+    }
+
+    @Test
+    public void testShortPathNotSimplified() {
+        assertNull(LevelOfDetail.simplify(new float[]{0, 0, 1, 1, 2, 0}));
+    }
+
+    @Test
+    public void testStraightLineCollapses() {
+        byte[] bands = LevelOfDetail.simplify(peak(101, 0));
+        assertNotNull(bands);
+        for (int band = 0; band < LevelOfDetail.BANDS; band++) {
+            assertArrayEquals(new int[]{0, 100}, indices(bands, band));
+        }
+    }
+
+    @Test
+    public void testSignificantPointKept() {
+        byte[] bands = LevelOfDetail.simplify(peak(101, 1));
+        for (int band = 0; band < LevelOfDetail.BANDS; band++) {
+            assertArrayEquals(new int[]{0, 50, 100}, indices(bands, band));
+        }
+    }
+
+    @Test
+    public void testSmallPointOnlyKeptWhenZoomedIn() {
+        // Below the tolerance of the coarsest band, but above that of the finest
+        byte[] bands = LevelOfDetail.simplify(peak(101, 1e-4f));
+        assertArrayEquals(new int[]{0, 100}, indices(bands, 0));
+        assertArrayEquals(new int[]{0, 50, 100}, indices(bands, LevelOfDetail.BANDS - 1));
+    }
+
+    @Test
+    public void testOneBytePerPoint() {
+        float[] path = new float[4000];
+        for (int i = 0; i < path.length / 2; i++) {
+            path[i * 2] = i * 1e-4f;
+            path[i * 2 + 1] = (float) (Math.sin(i * 0.05) * 0.01 + Math.sin(i * 0.9) * 1e-4);
+        }
+        byte[] bands = LevelOfDetail.simplify(path);
+        assertNotNull(bands);
+        assertEquals(path.length / 2, bands.length);
+        // The ends are kept by every band
+        assertEquals(0, bands[0]);
+        assertEquals(0, bands[bands.length - 1]);
+        for (byte band : bands) {
+            assertTrue(band >= 0 && band <= LevelOfDetail.BANDS);
+        }
+    }
+
+    @Test
+    public void testBandKeepingMostOfPathDrawsAll() {
+        // Every other point is significant at every band
+        float[] path = new float[200];
+        for (int i = 0; i < path.length / 2; i++) {
+            path[i * 2] = i;
+            path[i * 2 + 1] = i % 2;
+        }
+        assertNull(LevelOfDetail.simplify(path));
+    }
+
+    @Test
+    public void testIndicesOfZoomLevel() {
+        byte[] bands = LevelOfDetail.simplify(peak(101, 1e-4f));
+        assertArrayEquals(new int[]{0, 100}, LevelOfDetail.indicesOf(bands, ZoomLevel.ZOOM_LEVEL_0));
+        assertArrayEquals(new int[]{0, 100}, LevelOfDetail.indicesOf(bands, ZoomLevel.ZOOM_LEVEL_1));
+        assertArrayEquals(indices(bands, 1), LevelOfDetail.indicesOf(bands, ZoomLevel.ZOOM_LEVEL_2));
+        assertNull(LevelOfDetail.indicesOf(bands, ZoomLevel.ZOOM_LEVEL_MAX));
+        assertNull(LevelOfDetail.indicesOf(null, ZoomLevel.ZOOM_LEVEL_0));
+    }
+}
@@ -0,0 +1,107 @@
+package dankmap.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AddressStoreTest {
+
+    private static AddressStore store() {
+        AddressStore.Builder builder = new AddressStore.Builder();
+        builder.add("Rued Langgaards Vej", "7", "2300", "København S", 0, 0);
+        builder.add("Rued Langgaards Vej", "9A", "2300", "København S", 1, 0);
+        builder.add("Rued Langgaards Vej", "3", "2300", "København S", 2, 0);
+        builder.add("Hovedgaden", "1", "2300", "København S", 0, 5);
+        builder.add("Hovedgaden", "1", "4000", "Roskilde", 0, 50);
+        builder.add("Hovedgaden", "12-14", "4000", "Roskilde", 0, 51);
+        builder.add("Hovedgaden", "1", "4000", "Roskilde", 0, 52);
+        builder.add("Hovedgaden", "", "4000", "Roskilde", 0, 53);
+        return builder.build();
+    }
+
+    @Test
+    public void testFind() {
+        AddressStore store = store();
+        int i = store.find("rued langgaards vej", "2300", "9a");
+        assertEquals("rued langgaards vej 9a, 2300", store.format(i));
+        assertEquals("københavn s", store.getCity(i));
+        assertEquals(1, store.getX(i));
+        assertEquals(-1, store.find("rued langgaards vej", "2300", "9"));
+        assertEquals(-1, store.find("ukendt vej", "", "1"));
+    }
+
+    @Test
+    public void testFindQuery() {
+        AddressStore store = store();
+        assertEquals("rued langgaards vej 9a, 2300", store.format(store.find("Rued Langgaards Vej 9 A, 2300 København S")));
+        assertEquals("hovedgaden 12-14, 4000", store.format(store.find("hovedgaden 12-14, 4000")));
+        assertEquals(-1, store.find("hovedgaden"));
+    }
+
+    @Test
+    public void testPostcodeFilter() {
+        AddressStore store = store();
+        assertEquals(5, store.getY(store.find("hovedgaden", "2300", "1")));
+        assertEquals(50, store.getY(store.find("hovedgaden", "4000", "1")));
+        assertEquals(-1, store.find("hovedgaden", "5000", "1"));
+        assertEquals(2, store.range("hovedgaden", "", 1, 1).length);
+    }
+
+    @Test
+    public void testDuplicatesAndEmptyNumbers() {
+        // The duplicate of hovedgaden 1, 4000 and the address without a number are dropped
+        assertEquals(6, store().size());
+    }
+
+    @Test
+    public void testRange() {
+        AddressStore store = store();
+        int[] range = store.range("rued langgaards vej", "2300", 4, 100);
+        assertEquals(2, range.length);
+        assertEquals("7", store.getHouseNumber(range[0]));
+        assertEquals("9a", store.getHouseNumber(range[1]));
+        assertEquals(0, store.range("rued langgaards vej", "2300", 10, 4).length);
+    }
+
+    @Test
+    public void testComplete() {
+        AddressStore store = store();
+        assertEquals(List.of("rued langgaards vej 3, 2300", "rued langgaards vej 7, 2300", "rued langgaards vej 9a, 2300"), store.complete("Rued L"));
+        assertEquals(List.of("rued langgaards vej 9a, 2300"), store.complete("rued langgaards vej 9"));
+        assertEquals(3, store.complete("hovedgaden 1").size());
+        assertEquals(List.of("hovedgaden 1, 4000"), store.complete("hovedgaden 1, 4"));
+        assertTrue(store.complete("ukendt").isEmpty());
+        assertTrue(store.complete(" ").isEmpty());
+    }
+
+    @Test
+    public void testInterpolation() {
+        AddressStore.Builder builder = new AddressStore.Builder();
+        int from = builder.add("Vejen", "1", "1000", "", 0, 0);
+        int to = builder.add("Vejen", "9", "1000", "", 8, 4);
+        builder.interpolate(from, to, new float[]{0, 0, 8, 0, 8, 4}, "odd");
+        AddressStore store = builder.build();
+
+        int[] range = store.range("vejen", "1000", 0, 100);
+        assertEquals(5, range.length);
+        int five = store.find("vejen", "1000", "5");
+        assertTrue(store.isInterpolated(five));
+        assertFalse(store.isInterpolated(store.find("vejen", "1000", "9")));
+        // 5 lies halfway along the path of length 12
+        assertEquals(6, store.getX(five), 1e-6);
+        assertEquals(0, store.getY(five), 1e-6);
+        assertEquals(8, store.getX(store.find("vejen", "1000", "7")), 1e-6);
+        assertEquals(1, store.getY(store.find("vejen", "1000", "7")), 1e-6);
+    }
+
+    @Test
+    public void testNumberCodec() {
+        assertEquals(12 << AddressStore.SUFFIX_BITS, AddressStore.encodeNumber("12"));
+        assertEquals("12b", AddressStore.decodeNumber(AddressStore.encodeNumber("12 B")));
+        assertEquals("3å", AddressStore.decodeNumber(AddressStore.encodeNumber("3å")));
+        assertEquals(-1, AddressStore.encodeNumber("12-14"));
+        assertEquals(-1, AddressStore.encodeNumber("b"));
+    }
+}
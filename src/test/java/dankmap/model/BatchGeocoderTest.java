@@ -0,0 +1,65 @@
+package dankmap.model;
+
+import dankmap.model.BatchGeocoder.MatchQuality;
+import dankmap.util.collections.tree.PointKDTree;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BatchGeocoderTest {
+    private BatchGeocoder geocoder;
+
+    @BeforeEach
+    public void setUp() {
+        AddressStore.Builder builder = new AddressStore.Builder();
+        int from = builder.add("Rued Langgaards Vej", "7", "2300", "København S", 1, 2);
+        int to = builder.add("Rued Langgaards Vej", "11", "2300", "København S", 5, 2);
+        builder.interpolate(from, to, new float[]{1, 2, 5, 2}, "odd");
+        builder.add("Amagerbrogade", "3", "2300", "København S", 8, 4);
+
+        DataModel model = new DataModel(null, null, null, null, null, null, builder.build(), new PointKDTree.Builder<Void>().build(), new PointKDTree.Builder<Place>().build());
+        geocoder = new BatchGeocoder(model);
+    }
+
+    @Test
+    public void testNormalize() {
+        assertEquals("rued langgaards vej 7, 2300", BatchGeocoder.normalize("  Rued   Langgaards Vej 7 ,2300. "));
+    }
+
+    @Test
+    public void testMatchQuality() {
+        assertEquals(MatchQuality.EXACT, geocoder.geocode("Rued Langgaards Vej 7, 2300").getQuality());
+        assertEquals(MatchQuality.STRUCTURED, geocoder.geocode("Rued Langgaards Vej 7, 2300 København S").getQuality());
+        assertEquals(MatchQuality.INTERPOLATED, geocoder.geocode("rued langgaards vej 9").getQuality());
+        assertEquals(MatchQuality.STRUCTURED, geocoder.geocode("Amagerbrogade 3").getQuality());
+        assertEquals(MatchQuality.PREFIX, geocoder.geocode("Amagerbrogade 3, 23").getQuality());
+        assertEquals(8, geocoder.geocode("Amagerbrogade 3, 23").getAddress().getX(), 1e-6);
+        // The prefix of another house is not a match
+        assertEquals(MatchQuality.NONE, geocoder.geocode("rued langgaards vej 1").getQuality());
+        assertNull(geocoder.geocode("rued langgaards vej 1").getAddress());
+        assertEquals(MatchQuality.NONE, geocoder.geocode("ukendt vej 1").getQuality());
+        assertNull(geocoder.geocode("ukendt vej 1").getAddress());
+    }
+
+    @Test
+    public void testHouseNumber() {
+        assertEquals("11", BatchGeocoder.houseNumber("rued langgaards vej 11, 2300"));
+        assertEquals("12b", BatchGeocoder.houseNumber("vej 12 b, 2300 københavn s"));
+        assertEquals("3", BatchGeocoder.houseNumber("amagerbrogade 3"));
+    }
+
+    @Test
+    public void testBatchKeepsOrder() {
+        BatchGeocoder.Batch batch = geocoder.geocode(Stream.of("rued langgaards vej 9, 2300", "", "ukendt vej 1", "rued langgaards vej 7, 2300"));
+        List<BatchGeocoder.Result> results = batch.getResults();
+        assertEquals(3, results.size());
+        assertEquals(3, results.get(0).getAddress().getX(), 1e-6);
+        assertFalse(results.get(1).isMatch());
+        assertEquals(1, results.get(2).getAddress().getX(), 1e-6);
+        assertEquals(1L, batch.getCounts().get(MatchQuality.NONE));
+    }
+}
@@ -0,0 +1,46 @@
+package dankmap.model;
+
+import dankmap.drawing.DrawType;
+import dankmap.osm.MapGenerator;
+import dankmap.util.metrics.HeapFootprint.Usage;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoryReportTest {
+
+    @BeforeAll
+    public static void loadDrawTypes() {
+        DrawType.loadDrawTypeMap();
+    }
+
+    @Test
+    public void testPartsOfGeneratedMap(@TempDir Path dir) throws Exception {
+        File osm = dir.resolve("synthetic.osm").toFile();
+        new MapGenerator(5, 0.02).write(osm);
+        DataModel model = MapGenerator.writeBinary(osm, dir.resolve("synthetic.bin").toFile());
+
+        MemoryReport report = new MemoryReport(model);
+        Map<String, Usage> parts = report.getParts();
+        assertEquals(1, parts.get("islands/IslandElement").getElements());
+        assertTrue(parts.get("graph/vertices").getElements() > 0);
+        assertTrue(parts.get("graph/edges").getElements() > 0);
+        assertTrue(parts.get("roadElements/Road").getElements() > 0);
+        assertTrue(parts.get("addressStore").getBytes() > 0);
+
+        long bytes = 0;
+        for (Usage usage : parts.values()) bytes += usage.getBytes();
+        assertEquals(bytes, report.getTotal().getBytes());
+
+        StringWriter csv = new StringWriter();
+        report.writeCsv(csv);
+        assertEquals(parts.size() + 1, csv.toString().split("\n").length);
+    }
+}
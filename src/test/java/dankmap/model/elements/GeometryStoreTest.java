@@ -0,0 +1,172 @@
+package dankmap.model.elements;
+
+import dankmap.drawing.DrawType;
+import dankmap.drawing.LevelOfDetail;
+import dankmap.model.Bounds;
+import dankmap.navigation.Road;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeometryStoreTest {
+
+    private static float[] zigzag(int points, float y) {
+        float[] path = new float[points * 2];
+        for (int i = 0; i < points; i++) {
+            path[i * 2] = i;
+            path[i * 2 + 1] = y + (i % 2) * 0.001f * i;
+        }
+        return path;
+    }
+
+    @Test
+    public void testAddAndCopy() {
+        GeometryStore store = new GeometryStore(4);
+        float[] a = {1, 2, 3, 4};
+        float[] b = zigzag(50, 7);
+        assertEquals(0, store.add(a));
+        assertEquals(4, store.add(b));
+        assertEquals(104, store.add(new float[][]{a, a}));
+        assertEquals(112, store.size());
+
+        assertArrayEquals(a, store.copy(0, 4));
+        assertArrayEquals(b, store.copy(4, 100));
+        assertArrayEquals(a, store.copy(108, 4));
+
+        store.trim();
+        assertEquals(112, store.getCoords().length);
+        assertArrayEquals(b, store.copy(4, 100));
+    }
+
+    @Test
+    public void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new GeometryStore(-1));
+    }
+
+    @Test
+    public void testElementsOfStoreMatchElementsOfArrays() {
+        GeometryStore store = new GeometryStore(0);
+        float[] path = zigzag(40, 3);
+        store.add(new float[]{9, 9, 9, 9});
+        int offset = store.add(path);
+
+        PathElement stored = new PathElement(store, offset, path.length, DrawType.NONE);
+        PathElement own = new PathElement(path, DrawType.NONE);
+        assertEquals(own, stored);
+        assertEquals(own.hashCode(), stored.hashCode());
+        assertEquals(own.getBounds(), stored.getBounds());
+        assertEquals(own.getX(), stored.getX());
+        assertEquals(own.getY(), stored.getY());
+        assertEquals(path.length / 2, stored.getPointCount());
+        assertEquals(path[6], stored.getX(3));
+        assertEquals(path[7], stored.getY(3));
+        assertArrayEquals(path, stored.getPath());
+        assertNotEquals(new PathElement(store, 0, 4, DrawType.NONE), stored);
+
+        PolygonElement polygon = new PolygonElement(store, offset, path.length, true, DrawType.NONE);
+        assertEquals(new PolygonElement(path, true, DrawType.NONE), polygon);
+        assertEquals(new Bounds(path), polygon.getBounds());
+
+        float[][] rings = {zigzag(10, 0), zigzag(12, 5)};
+        MultiPolygonElement multi = new MultiPolygonElement(store, rings, DrawType.NONE);
+        assertEquals(new MultiPolygonElement(rings, DrawType.NONE), multi);
+        assertTrue(Arrays.deepEquals(rings, multi.getPaths()));
+        assertEquals(new Bounds(rings), multi.getBounds());
+    }
+
+    @Test
+    public void testMultiPolygonOfStoredPaths() {
+        GeometryStore store = new GeometryStore(0);
+        float[] outer = zigzag(10, 0), inner = zigzag(4, 0.5f);
+        int innerOffset = store.add(inner);
+        store.add(new float[]{9, 9});
+        int outerOffset = store.add(outer);
+
+        // The rings are shared with the store, in any order
+        MultiPolygonElement multi = new MultiPolygonElement(store, new int[]{outerOffset, innerOffset},
+                new int[]{outer.length, inner.length}, DrawType.NONE);
+        MultiPolygonElement own = new MultiPolygonElement(new float[][]{outer, inner}, DrawType.NONE);
+        assertEquals(own, multi);
+        assertEquals(own.hashCode(), multi.hashCode());
+        assertEquals(new Bounds(new float[][]{outer, inner}), multi.getBounds());
+        assertEquals(outer[outer.length / 2], multi.getX());
+        assertEquals(30, store.size());
+        assertNotEquals(new MultiPolygonElement(new float[][]{inner, outer}, DrawType.NONE), multi);
+        assertThrows(IllegalArgumentException.class,
+                () -> new MultiPolygonElement(store, new int[]{0}, new int[0], DrawType.NONE));
+    }
+
+    @Test
+    public void testBandsKeptAlongsideCoordinates() {
+        GeometryStore store = new GeometryStore(2);
+        float[] small = {9, 9, 8, 8};
+        float[] path = new float[400];
+        for (int i = 0; i < path.length / 2; i++) {
+            path[i * 2] = i * 1e-4f;
+            path[i * 2 + 1] = (float) Math.sin(i * 0.05) * 0.01f;
+        }
+        store.add(small);
+        int offset = store.add(path);
+
+        byte[] simplified = LevelOfDetail.simplify(path);
+        assertNotNull(simplified);
+        assertArrayEquals(simplified, Arrays.copyOfRange(store.getBands(), offset / 2, offset / 2 + simplified.length));
+        // Points of paths which are not simplified are kept by every band
+        assertEquals(0, store.getBands()[0]);
+        assertEquals(0, store.getBands()[1]);
+
+        store.trim();
+        assertEquals(store.size() / 2, store.getBands().length);
+        assertArrayEquals(simplified, Arrays.copyOfRange(store.getBands(), offset / 2, offset / 2 + simplified.length));
+        assertArrayEquals(simplified, GeometryStore.of(path).getBands());
+    }
+
+    @Test
+    public void testSimplifiedRangeMatchesSimplifiedPath() {
+        float[] path = zigzag(200, 1);
+        float[] coords = new float[path.length + 10];
+        System.arraycopy(path, 0, coords, 10, path.length);
+        assertArrayEquals(LevelOfDetail.simplify(path), LevelOfDetail.simplify(coords, 10, path.length));
+    }
+
+    @Test
+    public void testRoadSubPath() {
+        GeometryStore store = new GeometryStore(0);
+        store.add(new float[]{5, 5});
+        float[] path = {0, 0, 1, 1, 2, 2, 3, 3};
+        Road road = new Road(store, store.add(path), path.length, DrawType.NONE, "Vej", (short) 50, 0b111, 0b111);
+        assertArrayEquals(path, road.getPath());
+        assertEquals(2, road.getX(2));
+        assertEquals(3, road.getY(3));
+    }
+
+    @Test
+    public void testElementsShareStoreWhenSerialized() throws Exception {
+        GeometryStore store = new GeometryStore();
+        float[] a = zigzag(10, 0), b = zigzag(20, 1);
+        PathElement[] elements = {
+                new PathElement(store, store.add(a), a.length, DrawType.NONE),
+                new PathElement(store, store.add(b), b.length, DrawType.NONE)
+        };
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(elements);
+        }
+        // Trimmed when written
+        assertEquals(store.size(), store.getCoords().length);
+
+        PathElement[] read;
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (PathElement[]) in.readObject();
+        }
+        assertArrayEquals(elements, read);
+        assertArrayEquals(a, read[0].getPath());
+        assertArrayEquals(b, read[1].getPath());
+        assertSame(read[0].geometry, read[1].geometry);
+        assertArrayEquals(store.getBands(), read[0].geometry.getBands());
+    }
+}
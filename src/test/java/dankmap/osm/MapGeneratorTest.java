@@ -0,0 +1,81 @@
+package dankmap.osm;
+
+import dankmap.drawing.DrawType;
+import dankmap.drawing.ZoomLevel;
+import dankmap.model.Bounds;
+import dankmap.model.DataModel;
+import dankmap.model.Location;
+import dankmap.navigation.Vehicle;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MapGeneratorTest {
+    private static final double SCALE = 0.02;
+
+    @BeforeAll
+    public static void loadDrawTypes() {
+        DrawType.loadDrawTypeMap();
+    }
+
+    private static String generate(long seed) throws Exception {
+        StringWriter out = new StringWriter();
+        new MapGenerator(seed, SCALE).write(out);
+        return out.toString();
+    }
+
+    @Test
+    public void testSameSeedSameMap() throws Exception {
+        assertEquals(generate(7), generate(7));
+        assertNotEquals(generate(7), generate(8));
+    }
+
+    @Test
+    public void testNodeCount() throws Exception {
+        MapGenerator generator = new MapGenerator(1, SCALE).setBuildings(10).setAddresses(20);
+        StringWriter out = new StringWriter();
+        generator.write(out);
+        assertEquals(generator.getNodeCount(), out.toString().split("<node ", -1).length - 1);
+    }
+
+    @Test
+    public void testParsedMap(@TempDir Path dir) throws Exception {
+        MapGenerator generator = new MapGenerator(3, SCALE);
+        File osm = dir.resolve("synthetic.osm").toFile();
+        File bin = dir.resolve("synthetic.bin").toFile();
+        generator.write(osm);
+
+        DataModel model = MapGenerator.writeBinary(osm, bin);
+        assertTrue(bin.length() > 0);
+
+        // The coastline ways are joined to a single island
+        assertEquals(1, model.getIslands().size());
+
+        Bounds bounds = model.getBounds();
+        assertFalse(model.getMapElements(ZoomLevel.ZOOM_LEVEL_MAX, bounds).isEmpty());
+        assertFalse(model.getRoads(ZoomLevel.ZOOM_LEVEL_MAX, bounds).isEmpty());
+
+        String street = generator.getStreetName(0).toLowerCase();
+        assertFalse(model.getAddressMatches(street).isEmpty());
+
+        // The grid is connected, any two points are routed
+        Location from = new Location(bounds.getCenterX() - bounds.getWidth() / 8, bounds.getCenterY());
+        Location to = new Location(bounds.getCenterX() + bounds.getWidth() / 8, bounds.getCenterY());
+        for (Vehicle vehicle : Vehicle.values()) {
+            assertNotNull(model.getRoute(vehicle, from, to, true));
+        }
+    }
+
+    @Test
+    public void testInvalidSizes() {
+        assertThrows(IllegalArgumentException.class, () -> new MapGenerator(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new MapGenerator(0, 1).setGrid(1));
+        assertThrows(IllegalArgumentException.class, () -> new MapGenerator(0, 1).setBuildings(-1));
+    }
+}
@@ -2,8 +2,12 @@ package dankmap.osm;
 
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertFalse;
-import static org.junit.jupiter.api.Assertions.assertTrue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class OSMRelationTest {
 
@@ -173,4 +177,151 @@ public class OSMRelationTest {
         rel.addRelation(rel3);
         assertFalse(rel.isEmpty());
     }
+
+    // getPaths
+
+    private static OSMNode[] square(long id, float x, float y) {
+        return new OSMNode[]{
+                new OSMNode(id, x, y), new OSMNode(id + 1, x + 1, y),
+                new OSMNode(id + 2, x + 1, y + 1), new OSMNode(id + 3, x, y + 1)
+        };
+    }
+
+    private static OSMWay way(long id, OSMNode... nodes) {
+        return new OSMWay(Arrays.asList(nodes), id);
+    }
+
+    // The points of a path, as "x,y" from its lowest point, such that rings compare regardless of start and direction
+    private static List<String> ring(float[] path) {
+        List<String> points = new ArrayList<>();
+        for (int i = 0; i < path.length - 2; i += 2) points.add(path[i] + "," + path[i + 1]);
+        int start = points.indexOf(Collections.min(points));
+        Collections.rotate(points, -start);
+        List<String> reversed = new ArrayList<>(points);
+        Collections.reverse(reversed.subList(1, reversed.size()));
+        return points.get(1).compareTo(reversed.get(1)) <= 0 ? points : reversed;
+    }
+
+    @Test
+    public void testGetPathsStitchesUnorderedReversedWays() {
+        OSMNode[] n = square(1, 0, 0);
+        OSMRelation rel = new OSMRelation(1, new String[0]);
+        rel.addWay(way(1, n[2], n[3]), "outer");
+        rel.addWay(way(2, n[1], n[0]), "outer");
+        rel.addWay(way(3, n[3], n[0]), "outer");
+        rel.addWay(way(4, n[1], n[2]), "outer");
+
+        float[][] paths = rel.getPaths();
+        assertEquals(1, paths.length);
+        assertEquals(10, paths[0].length);
+        assertEquals(paths[0][0], paths[0][8]);
+        assertEquals(paths[0][1], paths[0][9]);
+        assertEquals(ring(way(5, n[0], n[1], n[2], n[3], n[0]).getPath()), ring(paths[0]));
+        assertTrue(rel.isConnected());
+    }
+
+    @Test
+    public void testGetPathsOuterRingsFirst() {
+        OSMNode[] hole = square(10, 0.25f, 0.25f);
+        OSMNode[] outer = square(1, 0, 0);
+        OSMRelation rel = new OSMRelation(1, new String[0]);
+        rel.addWay(way(1, hole[0], hole[1], hole[2], hole[3], hole[0]), "inner");
+        rel.addWay(way(2, outer[0], outer[1], outer[2]), "outer");
+        rel.addWay(way(3, outer[2], outer[3], outer[0]), "outer");
+
+        float[][] paths = rel.getPaths();
+        assertEquals(2, paths.length);
+        assertEquals(ring(way(4, outer[0], outer[1], outer[2], outer[3], outer[0]).getPath()), ring(paths[0]));
+        assertEquals(ring(way(5, hole[0], hole[1], hole[2], hole[3], hole[0]).getPath()), ring(paths[1]));
+        assertFalse(rel.isConnected());
+    }
+
+    @Test
+    public void testGetPathsOfMemberRelations() {
+        OSMNode[] n = square(1, 0, 0);
+        rel1.addWay(way(1, n[0], n[1], n[2]));
+        rel2.addWay(way(2, n[0], n[3], n[2]));
+        rel3.addRelation(rel1);
+        rel3.addRelation(rel2);
+        // A relation reached twice is added once
+        rel3.addRelation(rel1);
+
+        float[][] paths = rel3.getPaths();
+        assertEquals(1, paths.length);
+        assertEquals(ring(way(3, n[0], n[1], n[2], n[3], n[0]).getPath()), ring(paths[0]));
+        assertTrue(rel3.isConnected());
+    }
+
+    @Test
+    public void testGetPathsOfUnclosedWays() {
+        OSMNode[] n = square(1, 0, 0);
+        OSMNode far = new OSMNode(9, 5, 5);
+        OSMRelation rel = new OSMRelation(1, new String[0]);
+        rel.addWay(way(1, n[1], n[2]));
+        rel.addWay(way(2, far));
+        rel.addWay(way(3, n[0], n[1]));
+        rel.addWay(way(4, n[2], n[3]));
+
+        float[][] paths = rel.getPaths();
+        assertEquals(2, paths.length);
+        // The chain n0 .. n3 in either direction, and the lone node
+        assertEquals(8, paths[0].length);
+        float[] chain = paths[0][0] == n[0].getLon() && paths[0][1] == n[0].getLat() ? paths[0] : reverse(paths[0]);
+        assertArrayEquals(way(5, n[0], n[1], n[2], n[3]).getPath(), chain);
+        assertArrayEquals(new float[]{5, 5}, paths[1]);
+        assertFalse(rel.isConnected());
+    }
+
+    @Test
+    public void testRingsOfSingleWaysAreTheWays() {
+        OSMNode[] hole = square(10, 0.25f, 0.25f);
+        OSMNode[] outer = square(1, 0, 0);
+        OSMWay inner = way(1, hole[0], hole[1], hole[2], hole[3], hole[0]);
+        OSMRelation rel = new OSMRelation(1, new String[0]);
+        rel.addWay(inner, "inner");
+        rel.addWay(way(2, outer[0], outer[1], outer[2]), "outer");
+        rel.addWay(way(3, outer[2], outer[3], outer[0]), "outer");
+
+        RingAssembler rings = rel.assembleRings();
+        // The outer ring is stitched, the inner ring is the way as it is
+        assertNull(rings.getWay(0));
+        assertSame(inner, rings.getWay(1));
+        assertArrayEquals(inner.getPath(), rings.getPath(1));
+    }
+
+    @Test
+    public void testRingOfSingleOpenWayKeepsItsDirection() {
+        OSMNode[] n = square(1, 0, 0);
+        OSMWay open = way(1, n[0], n[1], n[2]);
+        OSMRelation rel = new OSMRelation(1, new String[0]);
+        rel.addWay(open, "outer");
+
+        assertArrayEquals(open.getPath(), rel.getPaths()[0]);
+        assertSame(open, rel.assembleRings().getWay(0));
+        assertFalse(rel.isConnected());
+    }
+
+    @Test
+    public void testRingsAssembledOnceUntilMembersAdded() {
+        OSMNode[] n = square(1, 0, 0);
+        OSMRelation rel = new OSMRelation(1, new String[0]);
+        rel.addWay(way(1, n[0], n[1], n[2]));
+        RingAssembler rings = rel.assembleRings();
+        assertFalse(rel.isConnected());
+        assertSame(rings, rel.assembleRings());
+
+        rel.addWay(way(2, n[2], n[3], n[0]));
+        assertNotSame(rings, rel.assembleRings());
+        assertTrue(rel.isConnected());
+        assertEquals(1, rel.getPaths().length);
+    }
+
+    private static float[] reverse(float[] path) {
+        float[] reversed = new float[path.length];
+        for (int i = 0; i < path.length; i += 2) {
+            reversed[path.length - 2 - i] = path[i];
+            reversed[path.length - 1 - i] = path[i + 1];
+        }
+        return reversed;
+    }
 }
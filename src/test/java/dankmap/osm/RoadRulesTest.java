@@ -0,0 +1,100 @@
+package dankmap.osm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static dankmap.osm.RoadRules.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RoadRulesTest {
+    private final RoadRules rules = RoadRules.getDefault();
+    private final TagTable table = new TagTable();
+
+    private RoadRules.Match classify(String... tags) {
+        RoadRules.Match match = new RoadRules.Match();
+        table.load(List.of(tags));
+        rules.classify(table, match);
+        return match;
+    }
+
+    @Test
+    public void testNotRoad() {
+        assertFalse(classify("building", "yes").isRoad());
+        assertFalse(classify("highway", "bus_stop").isRoad());
+        assertFalse(classify("highway", "foot").isRoad());
+    }
+
+    @Test
+    public void testResidential() {
+        RoadRules.Match match = classify("highway", "residential", "name", "Vej");
+        assertTrue(match.isRoad());
+        assertEquals(MOTOR | BICYCLE | FOOT, match.getForwardBits());
+        assertEquals(MOTOR | BICYCLE | FOOT, match.getBackwardBits());
+        assertEquals(50, match.getSpeedLimit());
+    }
+
+    @Test
+    public void testPrefix() {
+        RoadRules.Match match = classify("highway", "primary_link");
+        assertTrue(match.isRoad());
+        assertEquals(MOTOR, match.getForwardBits());
+        assertEquals(80, match.getSpeedLimit());
+        assertEquals(100, classify("highway", "motorway_link").getSpeedLimit());
+        assertEquals(130, classify("highway", "motorway").getSpeedLimit());
+    }
+
+    @Test
+    public void testOnewayAndContraflow() {
+        RoadRules.Match oneway = classify("highway", "residential", "oneway", "yes");
+        assertEquals(FOOT, oneway.getBackwardBits());
+
+        RoadRules.Match contraflow = classify("highway", "residential", "oneway", "yes", "oneway:bicycle", "no");
+        assertEquals(FOOT | BICYCLE, contraflow.getBackwardBits());
+    }
+
+    @Test
+    public void testRoundabout() {
+        RoadRules.Match match = classify("highway", "tertiary", "junction", "roundabout", "cycleway", "opposite");
+        assertTrue(match.isRoundabout());
+        assertEquals(ROUNDABOUT | MOTOR | BICYCLE | FOOT, match.getForwardBits());
+        assertEquals(ROUNDABOUT | FOOT, match.getBackwardBits());
+    }
+
+    @Test
+    public void testSetAndClear() {
+        assertEquals(MOTOR | BICYCLE | FOOT, classify("highway", "service", "bicycle", "yes").getForwardBits());
+        assertEquals(MOTOR | FOOT, classify("highway", "service", "bicycle", "no").getForwardBits());
+        assertEquals(BICYCLE, classify("highway", "cycleway", "foot", "no").getForwardBits());
+        assertEquals(MOTOR, classify("highway", "trunk", "motor_vehicle", "yes").getForwardBits());
+    }
+
+    @Test
+    public void testSpeedLimit() {
+        assertEquals(60, classify("highway", "primary", "maxspeed", "60").getSpeedLimit());
+        assertEquals(80, classify("highway", "residential", "maxspeed", "DK:rural").getSpeedLimit());
+        assertEquals(80, classify("highway", "secondary", "maxspeed", "none").getSpeedLimit());
+    }
+
+    @Test
+    public void testFerry() {
+        RoadRules.Match match = classify("route", "ferry", "maxspeed", "50");
+        assertTrue(match.isRoad());
+        assertEquals(30, match.getSpeedLimit());
+        assertEquals(BICYCLE, match.getForwardBits());
+    }
+
+    @Test
+    public void testTagTable() {
+        TagTable tags = new TagTable(2);
+        tags.load(List.of("highway", "primary", "unknown key", "x", "oneway", "yes", "highway", "secondary"));
+        assertEquals("primary", tags.get("highway"));
+        assertEquals("yes", tags.get("oneway"));
+        assertEquals("", tags.get("unknown key"));
+        assertEquals(2, tags.size());
+
+        tags.load(List.of("junction", "roundabout"));
+        assertEquals("", tags.get("highway"));
+        assertEquals("roundabout", tags.get("junction"));
+    }
+}
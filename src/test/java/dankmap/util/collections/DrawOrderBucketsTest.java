@@ -0,0 +1,63 @@
+package dankmap.util.collections;
+
+import dankmap.drawing.DrawType;
+import dankmap.model.elements.MapElement;
+import dankmap.model.elements.PointElement;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DrawOrderBucketsTest {
+    private static final DrawType WATER = new DrawType.Builder().id((byte) 3).build();
+    private static final DrawType FOREST = new DrawType.Builder().id((byte) 7).build();
+    private static final DrawType BUILDING = new DrawType.Builder().id((byte) 12).build();
+
+    @Test
+    public void testIteratesInDrawOrder() {
+        List<MapElement> elements = new ArrayList<>();
+        elements.add(new PointElement(0, 0, BUILDING));
+        elements.add(new PointElement(1, 0, WATER));
+        elements.add(new PointElement(2, 0, FOREST));
+        elements.add(new PointElement(3, 0, WATER));
+        elements.add(new PointElement(4, 0, BUILDING));
+
+        DrawOrderBuckets buckets = new DrawOrderBuckets(elements);
+        assertEquals(5, buckets.size());
+
+        List<MapElement> expected = new ArrayList<>(elements);
+        expected.sort(MapElement::compareByDrawOrder);
+        assertEquals(expected, new ArrayList<>(buckets));
+    }
+
+    @Test
+    public void testBucketsShareDrawOrder() {
+        DrawOrderBuckets buckets = new DrawOrderBuckets();
+        buckets.add(new PointElement(0, 0, FOREST));
+        buckets.add(new PointElement(1, 0, WATER));
+        buckets.add(new PointElement(2, 0, FOREST));
+
+        List<List<MapElement>> result = buckets.getBuckets();
+        assertEquals(2, result.size());
+        assertEquals(1, result.get(0).size());
+        assertEquals(2, result.get(1).size());
+        for (MapElement element : result.get(1)) {
+            assertEquals(FOREST.getId(), element.getDrawOrder());
+        }
+    }
+
+    @Test
+    public void testClear() {
+        DrawOrderBuckets buckets = new DrawOrderBuckets();
+        buckets.add(new PointElement(0, 0, FOREST));
+        buckets.clear();
+        assertTrue(buckets.isEmpty());
+        assertTrue(buckets.getBuckets().isEmpty());
+        assertFalse(buckets.iterator().hasNext());
+
+        buckets.add(new PointElement(0, 0, WATER));
+        assertEquals(1, buckets.getBuckets().size());
+    }
+}
@@ -0,0 +1,179 @@
+package dankmap.util.collections.tree;
+
+import dankmap.model.Location;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class KDTreeMapTest {
+
+    private static Location point(Random random) {
+        return new Location(random.nextInt(100000) / 100f, random.nextInt(100000) / 100f);
+    }
+
+    @Test
+    public void testEmpty() {
+        KDTreeMap<Location, String> map = new KDTreeMap<>();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(new Location(1, 1)));
+        assertThrows(NoSuchElementException.class, () -> map.nearestKeys(new Location(1, 1), 3));
+    }
+
+    @Test
+    public void testPutAndGetAgainstHashMap() {
+        Random random = new Random(42);
+        KDTreeMap<Location, Integer> map = new KDTreeMap<>();
+        Map<String, Integer> expected = new HashMap<>();
+        List<Location> keys = new ArrayList<>();
+
+        for (int i = 0; i < 3000; i++) {
+            Location key = point(random);
+            String id = key.getX() + "," + key.getY();
+            assertEquals(expected.put(id, i), map.put(key, i));
+            keys.add(key);
+            assertEquals(expected.size(), map.size());
+
+            // Interleaved lookups, every insertion is found without a rebuild
+            Location probe = keys.get(random.nextInt(keys.size()));
+            assertEquals(expected.get(probe.getX() + "," + probe.getY()), map.get(probe));
+        }
+        for (Location key : keys) {
+            assertEquals(expected.get(key.getX() + "," + key.getY()), map.get(key));
+        }
+        assertEquals(expected.size(), map.keySet().size());
+        assertEquals(expected.size(), map.values().size());
+    }
+
+    @Test
+    public void testRemove() {
+        Random random = new Random(7);
+        KDTreeMap<Location, Integer> map = new KDTreeMap<>();
+        List<Location> keys = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        while (keys.size() < 1000) {
+            Location key = point(random);
+            if (!seen.add(key.getX() + "," + key.getY())) continue;
+            map.put(key, keys.size());
+            keys.add(key);
+        }
+
+        // Removing most entries triggers rebuilds, the rest must stay reachable
+        for (int i = 0; i < 900; i++) {
+            assertEquals(i, map.remove(keys.get(i)));
+            assertNull(map.remove(keys.get(i)));
+        }
+        assertEquals(100, map.size());
+        for (int i = 0; i < keys.size(); i++) {
+            if (i < 900) assertNull(map.get(keys.get(i)));
+            else assertEquals(i, map.get(keys.get(i)));
+        }
+        assertEquals(100, map.values().size());
+
+        // A removed point can be added again
+        assertNull(map.put(keys.get(0), -1));
+        assertEquals(-1, map.get(keys.get(0)));
+        assertEquals(101, map.size());
+    }
+
+    @Test
+    public void testNearestKeysAgainstLinearScan() {
+        Random random = new Random(3);
+        Map<Location, Integer> entries = new HashMap<>();
+        for (int i = 0; i < 500; i++) entries.put(point(random), i);
+        KDTreeMap<Location, Integer> map = new KDTreeMap<>(entries);
+        List<Location> all = new ArrayList<>(entries.keySet());
+        for (int i = 0; i < 500; i++) {
+            Location key = point(random);
+            map.put(key, i);
+            all.add(key);
+        }
+
+        for (int q = 0; q < 50; q++) {
+            Location query = point(random);
+            all.sort(Comparator.comparingDouble(p -> KDTreeUtilities.sqDist(query, p)));
+            Collection<Location> nearest = map.nearestKeys(query, 5);
+            assertEquals(5, nearest.size());
+            double farthest = KDTreeUtilities.sqDist(query, all.get(4));
+            for (Location found : nearest) {
+                assertTrue(KDTreeUtilities.sqDist(query, found) <= farthest);
+            }
+        }
+    }
+
+    @Test
+    public void testNearestKeysInDistanceOrder() {
+        // A grid has many keys at equal distances from its points
+        KDTreeMap<Location, Integer> map = new KDTreeMap<>();
+        List<Location> all = new ArrayList<>();
+        for (int x = 0; x < 30; x++) {
+            for (int y = 0; y < 30; y++) {
+                Location key = new Location(x, y);
+                map.put(key, x * 30 + y);
+                all.add(key);
+            }
+        }
+        map.remove(new Location(10, 10));
+        all.remove(new Location(10, 10));
+
+        Location query = new Location(10, 10);
+        all.sort(Comparator.comparingDouble(p -> KDTreeUtilities.sqDist(query, p)));
+        List<Location> nearest = map.nearestKeys(query, 150);
+        assertEquals(150, nearest.size());
+        assertEquals(150, new HashSet<>(nearest).size());
+        assertFalse(nearest.contains(query));
+        for (int i = 0; i < nearest.size(); i++) {
+            assertEquals(KDTreeUtilities.sqDist(query, all.get(i)), KDTreeUtilities.sqDist(query, nearest.get(i)));
+        }
+
+        assertEquals(all.size(), map.nearestKeys(query, 10000).size());
+    }
+
+    @Test
+    public void testReadsWhileWriting() throws Exception {
+        KDTreeMap<Location, Integer> map = new KDTreeMap<>();
+        int n = 20000;
+        Location[] keys = new Location[n];
+        for (int i = 0; i < n; i++) keys[i] = new Location(i % 200, i / 200f);
+
+        // The writer publishes how many keys are in the map, readers must always find them
+        AtomicInteger published = new AtomicInteger();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < n; i++) {
+                map.put(keys[i], i);
+                if (i % 3 == 1) map.remove(keys[i]);
+                published.set(i + 1);
+            }
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            Random random = new Random(r);
+            readers.add(new Thread(() -> {
+                try {
+                    while (published.get() < n) {
+                        int count = published.get();
+                        if (count == 0) continue;
+                        int i = random.nextInt(count);
+                        Integer expected = i % 3 == 1 ? null : i;
+                        assertEquals(expected, map.get(keys[i]));
+                        map.nearestKeys(keys[i], 3);
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            }));
+        }
+
+        writer.start();
+        readers.forEach(Thread::start);
+        writer.join();
+        for (Thread reader : readers) reader.join();
+
+        if (failure.get() != null) throw new AssertionError(failure.get());
+        assertEquals(n - (n + 1) / 3, map.size());
+    }
+}
@@ -5,9 +5,10 @@ import dankmap.model.Bounds;
 import dankmap.model.Location;
 import dankmap.model.elements.MapElement;
 import dankmap.model.elements.PointElement;
+import dankmap.model.elements.PolygonElement;
 import org.junit.jupiter.api.Test;
 
-import java.util.ArrayList;
+import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
@@ -211,4 +212,127 @@ public class KDTreeTest {
     public void testAllResultsNearestTricky() {
         assertEquals(3, tricky.nearest(new Location(0, 0)).size());
     }
-}
\ No newline at end of file
+
+    ////////////////////////////////
+    // Delta search               //
+    ////////////////////////////////
+
+    @Test
+    public void testDeltaSearchMatchesDifference() {
+        Random random = new Random(42);
+        KDTree tree = new KDTree();
+        for (int i = 0; i < 2000; i++) {
+            float x = random.nextFloat() * 100;
+            float y = random.nextFloat() * 100;
+            float size = random.nextFloat() * 3;
+            tree.addElement(new PolygonElement(new float[]{x, y, x + size, y, x + size, y + size, x, y}, DrawType.NONE));
+        }
+        tree.buildTree();
+
+        for (int i = 0; i < 50; i++) {
+            float x = random.nextFloat() * 80;
+            float y = random.nextFloat() * 80;
+            Bounds from = new Bounds(x, y, x + 20, y + 20);
+            float dx = (random.nextFloat() - 0.5f) * 10;
+            float dy = (random.nextFloat() - 0.5f) * 10;
+            Bounds to = new Bounds(x + dx, y + dy, x + dx + 20, y + dy + 20);
+
+            Set<MapElement> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+            expected.addAll(tree.rangeSearch(new ArrayList<>(), to));
+            expected.removeAll(tree.rangeSearch(new ArrayList<>(), from));
+
+            List<MapElement> entering = tree.deltaSearch(new ArrayList<>(), to, from);
+            Set<MapElement> actual = Collections.newSetFromMap(new IdentityHashMap<>());
+            actual.addAll(entering);
+            assertEquals(entering.size(), actual.size());
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testDeltaSearchSameBounds() {
+        Bounds bounds = new Bounds(1, 1, 5, 5);
+        assertEquals(0, avg.deltaSearch(results, bounds, bounds).size());
+    }
+
+    @Test
+    public void testDeltaSearchDisjointBounds() {
+        assertEquals(11, avg.deltaSearch(results, new Bounds(0, 0, 6, 6), new Bounds(10, 10, 12, 12)).size());
+    }
+
+    ////////////////////////////////
+    // Levels                     //
+    ////////////////////////////////
+
+    @Test
+    public void testRangeSearchOfLevelsMatchesSearchOfAll() {
+        Random random = new Random(11);
+        KDTree tree = new KDTree();
+        Map<MapElement, Integer> levels = new IdentityHashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            float x = random.nextFloat() * 100;
+            float y = random.nextFloat() * 100;
+            float size = random.nextFloat() * 3;
+            MapElement element = new PolygonElement(new float[]{x, y, x + size, y, x + size, y + size, x, y}, DrawType.NONE);
+            // Mostly high levels, like the small elements of a map
+            int level = random.nextInt(4) == 0 ? random.nextInt(13) : 10 + random.nextInt(3);
+            levels.put(element, level);
+            tree.addElement(element, level);
+        }
+        tree.buildTree();
+
+        for (int i = 0; i < 50; i++) {
+            int searched = random.nextInt(14);
+            float x = random.nextFloat() * 80;
+            float y = random.nextFloat() * 80;
+            Bounds query = new Bounds(x, y, x + 20, y + 20);
+            Bounds excluded = new Bounds(x + 5, y + 5, x + 25, y + 25);
+
+            Set<MapElement> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (MapElement element : tree.rangeSearch(new ArrayList<>(), query)) {
+                if (levels.get(element) < searched) expected.add(element);
+            }
+            Set<MapElement> actual = Collections.newSetFromMap(new IdentityHashMap<>());
+            actual.addAll(tree.rangeSearch(new ArrayList<>(), query, searched));
+            assertEquals(expected, actual);
+
+            expected.removeAll(tree.rangeSearch(new ArrayList<>(), excluded, searched));
+            actual.clear();
+            actual.addAll(tree.deltaSearch(new ArrayList<>(), query, excluded, searched));
+            assertEquals(expected, actual);
+        }
+    }
+
+    ////////////////////////////////
+    // Parallel construction      //
+    ////////////////////////////////
+
+    @Test
+    public void testLargeTreeMatchesLinearScan() {
+        // Larger than the threshold of parallel construction, on a coarse grid such that coordinates repeat
+        Random random = new Random(7);
+        KDTree tree = new KDTree();
+        List<MapElement> elements = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            MapElement element = new PointElement(random.nextInt(200), random.nextInt(200), DrawType.NONE);
+            elements.add(element);
+            tree.addElement(element);
+        }
+        tree.buildTree();
+
+        assertEquals(elements.size(), tree.rangeSearch(new ArrayList<>(), new Bounds(0, 0, 200, 200)).size());
+        for (int i = 0; i < 50; i++) {
+            float x = random.nextInt(180);
+            float y = random.nextInt(180);
+            Bounds query = new Bounds(x, y, x + random.nextInt(20), y + random.nextInt(20));
+
+            Set<MapElement> expected = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (MapElement element : elements) {
+                if (query.intersects(element.getBounds())) expected.add(element);
+            }
+            Set<MapElement> actual = Collections.newSetFromMap(new IdentityHashMap<>());
+            actual.addAll(tree.rangeSearch(new ArrayList<>(), query));
+            assertEquals(expected, actual);
+        }
+    }
+}
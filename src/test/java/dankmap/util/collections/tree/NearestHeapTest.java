@@ -0,0 +1,48 @@
+package dankmap.util.collections.tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NearestHeapTest {
+
+    @Test
+    public void testKeepsNearestInOrder() {
+        Random random = new Random(7);
+        NearestHeap<Integer> heap = new NearestHeap<>(20);
+        List<Integer> all = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            int distance = random.nextInt(300);
+            heap.offer(distance, distance);
+            all.add(distance);
+        }
+        Collections.sort(all);
+
+        assertTrue(heap.isFull());
+        assertEquals((double) all.get(19), heap.bound());
+        assertEquals(all.subList(0, 20), heap.toSortedList());
+    }
+
+    @Test
+    public void testNotFull() {
+        NearestHeap<String> heap = new NearestHeap<>(5);
+        assertEquals(Double.POSITIVE_INFINITY, heap.bound());
+        heap.offer(4, "b");
+        heap.offer(1, "a");
+        heap.offer(9, "c");
+        assertFalse(heap.isFull());
+        assertEquals(3, heap.size());
+        assertEquals(List.of("a", "b", "c"), heap.toSortedList());
+        assertEquals(List.of("a", "b", "c"), heap.toSortedList());
+    }
+
+    @Test
+    public void testInvalidCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new NearestHeap<>(0));
+    }
+}
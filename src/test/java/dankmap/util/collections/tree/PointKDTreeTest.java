@@ -0,0 +1,144 @@
+package dankmap.util.collections.tree;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class PointKDTreeTest {
+
+    private static PointKDTree<String> grid() {
+        PointKDTree.Builder<String> builder = new PointKDTree.Builder<>();
+        for (int x = 0; x < 5; x++) {
+            for (int y = 0; y < 5; y++) {
+                builder.add(x, y, x + "," + y);
+            }
+        }
+        return builder.build();
+    }
+
+    @Test
+    public void testEmpty() {
+        PointKDTree<String> empty = new PointKDTree.Builder<String>().build();
+        assertEquals(0, empty.size());
+        assertEquals(-1, empty.nearest(0, 0));
+    }
+
+    @Test
+    public void testSingle() {
+        PointKDTree<String> single = new PointKDTree.Builder<String>().add(3, 4, "a").build();
+        assertEquals("a", single.get(single.nearest(-100, 100)));
+    }
+
+    @Test
+    public void testExactMatch() {
+        PointKDTree<String> grid = grid();
+        assertEquals("2,3", grid.get(grid.nearest(2, 3)));
+        assertEquals("0,0", grid.get(grid.nearest(0, 0)));
+        assertEquals("4,4", grid.get(grid.nearest(4, 4)));
+    }
+
+    @Test
+    public void testOutsideUniverse() {
+        PointKDTree<String> grid = grid();
+        assertEquals("4,0", grid.get(grid.nearest(10, -10)));
+        assertEquals("0,2", grid.get(grid.nearest(-5, 2.1f)));
+    }
+
+    @Test
+    public void testBetweenPoints() {
+        PointKDTree<String> grid = grid();
+        assertEquals("1,3", grid.get(grid.nearest(1.2f, 2.6f)));
+    }
+
+    @Test
+    public void testAgainstLinearScan() {
+        Random random = new Random(42);
+        int n = 2000;
+        float[] xs = new float[n], ys = new float[n];
+        PointKDTree.Builder<Integer> builder = new PointKDTree.Builder<>();
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextFloat();
+            ys[i] = random.nextFloat();
+            builder.add(xs[i], ys[i], i);
+        }
+        PointKDTree<Integer> tree = builder.build();
+
+        for (int q = 0; q < 500; q++) {
+            float x = random.nextFloat() * 1.2f - 0.1f;
+            float y = random.nextFloat() * 1.2f - 0.1f;
+            int expected = 0;
+            for (int i = 1; i < n; i++) {
+                if (sqDist(x, y, xs[i], ys[i]) < sqDist(x, y, xs[expected], ys[expected])) expected = i;
+            }
+            int found = tree.nearest(x, y);
+            assertEquals(sqDist(x, y, xs[expected], ys[expected]), sqDist(x, y, tree.getX(found), tree.getY(found)));
+        }
+    }
+
+    private static double sqDist(float x0, float y0, float x1, float y1) {
+        double dx = x1 - x0, dy = y1 - y0;
+        return dx * dx + dy * dy;
+    }
+
+    @Test
+    public void testRangeAgainstLinearScan() {
+        Random random = new Random(7);
+        int n = 2000;
+        float[] xs = new float[n], ys = new float[n];
+        PointKDTree.Builder<Integer> builder = new PointKDTree.Builder<>();
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextFloat();
+            ys[i] = random.nextFloat();
+            builder.add(xs[i], ys[i], i);
+        }
+        PointKDTree<Integer> tree = builder.build();
+
+        for (int q = 0; q < 200; q++) {
+            float minX = random.nextFloat(), minY = random.nextFloat();
+            float maxX = minX + random.nextFloat() * 0.3f, maxY = minY + random.nextFloat() * 0.3f;
+
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < n; i++) {
+                if (xs[i] >= minX && xs[i] <= maxX && ys[i] >= minY && ys[i] <= maxY) expected.add(i);
+            }
+            Set<Integer> actual = new HashSet<>();
+            tree.range(minX, minY, maxX, maxY, index -> actual.add(tree.get(index)));
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testIndicesOfPointsWithoutValues() {
+        Random random = new Random(3);
+        int n = 500;
+        float[] xs = new float[n], ys = new float[n];
+        PointKDTree.Builder<Void> builder = new PointKDTree.Builder<>();
+        for (int i = 0; i < n; i++) {
+            xs[i] = random.nextFloat();
+            ys[i] = random.nextFloat();
+            builder.add(xs[i], ys[i]);
+        }
+        PointKDTree<Void> tree = builder.build();
+
+        for (int index = 0; index < n; index++) {
+            int added = tree.getIndex(index);
+            assertEquals(xs[added], tree.getX(index));
+            assertEquals(ys[added], tree.getY(index));
+            assertNull(tree.get(index));
+        }
+        assertEquals(7, tree.getIndex(tree.nearest(xs[7], ys[7])));
+    }
+
+    @Test
+    public void testRangeInclusive() {
+        PointKDTree<String> grid = grid();
+        Set<String> found = new HashSet<>();
+        grid.range(1, 1, 2, 1, index -> found.add(grid.get(index)));
+        assertEquals(Set.of("1,1", "2,1"), found);
+    }
+}
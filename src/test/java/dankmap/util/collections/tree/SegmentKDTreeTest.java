@@ -0,0 +1,72 @@
+package dankmap.util.collections.tree;
+
+import dankmap.util.VectorMath;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class SegmentKDTreeTest {
+
+    @Test
+    public void testEmpty() {
+        SegmentKDTree<String> empty = new SegmentKDTree.Builder<String>().build();
+        assertEquals(-1, empty.nearest(0, 0));
+    }
+
+    @Test
+    public void testSinglePoint() {
+        SegmentKDTree<String> tree = new SegmentKDTree.Builder<String>()
+                .addPath(new float[]{1, 1}, "a")
+                .build();
+        assertEquals("a", tree.get(tree.nearest(5, 5)));
+        assertEquals(32, tree.sqDist(5, 5, tree.nearest(5, 5)));
+    }
+
+    /**
+     * The query point lies far from every vertex of the long road,
+     * but right next to one of its segments
+     */
+    @Test
+    public void testLongSegmentBeatsNearVertex() {
+        SegmentKDTree<String> tree = new SegmentKDTree.Builder<String>()
+                .addPath(new float[]{0, 0, 100, 0}, "long")
+                .addPath(new float[]{50, 3, 51, 4, 52, 5}, "short")
+                .build();
+        assertEquals("long", tree.get(tree.nearest(50, 1)));
+        assertEquals("short", tree.get(tree.nearest(50, 2.9f)));
+    }
+
+    @Test
+    public void testPerpendicularDistance() {
+        SegmentKDTree<String> tree = new SegmentKDTree.Builder<String>()
+                .addPath(new float[]{0, 0, 10, 10}, "diagonal")
+                .build();
+        assertEquals(2, tree.sqDist(4, 6, tree.nearest(4, 6)), 1e-9);
+        assertEquals(1, tree.sqDist(11, 10, tree.nearest(11, 10)), 1e-9);
+    }
+
+    @Test
+    public void testAgainstLinearScan() {
+        Random random = new Random(7);
+        SegmentKDTree.Builder<Integer> builder = new SegmentKDTree.Builder<>();
+        int n = 1500;
+        float[][] segments = new float[n][];
+        for (int i = 0; i < n; i++) {
+            float x = random.nextFloat(), y = random.nextFloat();
+            segments[i] = new float[]{x, y, x + random.nextFloat() * 0.1f, y + random.nextFloat() * 0.1f};
+            builder.addPath(segments[i], i);
+        }
+        SegmentKDTree<Integer> tree = builder.build();
+
+        for (int q = 0; q < 500; q++) {
+            float x = random.nextFloat(), y = random.nextFloat();
+            double expected = Double.POSITIVE_INFINITY;
+            for (float[] s : segments) {
+                expected = Math.min(expected, VectorMath.sqDistPointToSegment(x, y, s[0], s[1], s[2], s[3]));
+            }
+            assertEquals(expected, tree.sqDist(x, y, tree.nearest(x, y)));
+        }
+    }
+}
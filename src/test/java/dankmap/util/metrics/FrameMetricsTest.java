@@ -0,0 +1,33 @@
+package dankmap.util.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FrameMetricsTest {
+
+    @Test
+    public void testExport() throws IOException {
+        FrameMetrics metrics = new FrameMetrics();
+        metrics.record(FrameMetrics.Series.FRAME, 4);
+        metrics.record(FrameMetrics.Series.FRAME, 8);
+        metrics.endFrame();
+
+        StringWriter csv = new StringWriter();
+        metrics.writeCsv(csv);
+        String[] lines = csv.toString().split("\\R");
+        assertEquals("series,unit,samples,last,mean,p50,p95,p99,max", lines[0]);
+        assertEquals(FrameMetrics.Series.values().length + 1, lines.length);
+        assertTrue(csv.toString().contains("frame,ms,2,8.000,6.000,4.000,8.000,8.000,8.000"));
+
+        StringWriter json = new StringWriter();
+        metrics.writeJson(json);
+        assertTrue(json.toString().contains("\"frames\": 1"));
+        assertTrue(json.toString().contains("\"frame\": {\"unit\": \"ms\", \"samples\": 2, \"last\": 8.000"));
+        assertTrue(json.toString().contains("\"query\": {\"unit\": \"ms\", \"samples\": 0, \"last\": null"));
+    }
+}
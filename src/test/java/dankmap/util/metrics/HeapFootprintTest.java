@@ -0,0 +1,74 @@
+package dankmap.util.metrics;
+
+import dankmap.model.Location;
+import dankmap.util.metrics.HeapFootprint.Usage;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HeapFootprintTest {
+
+    private static class Pair {
+        Object first, second;
+        int count;
+
+        Pair(Object first, Object second) {
+            this.first = first;
+            this.second = second;
+        }
+    }
+
+    @Test
+    public void testArraysWithCompressedOops() {
+        HeapFootprint footprint = new HeapFootprint(true);
+        // A 16 byte header and the elements, padded to 8 bytes
+        assertEquals(56, footprint.measure(new int[10]).getBytes());
+        assertEquals(24, footprint.measure(new byte[5]).getBytes());
+        assertEquals(16, footprint.measure(new long[0]).getBytes());
+        assertEquals(1, footprint.measure(new double[3]).getObjects());
+    }
+
+    @Test
+    public void testArraysWithoutCompressedOops() {
+        HeapFootprint footprint = new HeapFootprint(false);
+        assertEquals(64, footprint.measure(new int[10]).getBytes());
+        assertEquals(24 + 3 * 8, footprint.measure(new Object[3]).getBytes());
+    }
+
+    @Test
+    public void testObjectsAreCountedOnce() {
+        HeapFootprint footprint = new HeapFootprint(true);
+        int[] shared = new int[10];
+        // A 12 byte header, two references and an int
+        Usage pair = footprint.measure(new Pair(shared, shared));
+        assertEquals(2, pair.getObjects());
+        assertEquals(24 + 56, pair.getBytes());
+
+        // Already counted by the first root
+        assertEquals(24, footprint.measure(new Pair(shared, null)).getBytes());
+
+        Pair cycle = new Pair(null, null);
+        cycle.first = cycle;
+        assertEquals(1, footprint.measure(cycle).getObjects());
+    }
+
+    @Test
+    public void testClassifiedParts() {
+        HeapFootprint footprint = new HeapFootprint(true);
+        Object[] root = {new Location(1, 2), new Location(3, 4), new Pair(new int[10], new Location(5, 6))};
+        Map<String, Usage> parts = footprint.measure(root, o -> o instanceof Location ? "locations" : null);
+
+        assertEquals(3, parts.get("locations").getElements());
+        assertEquals(3, parts.get("locations").getObjects());
+        assertEquals(0, parts.get("").getElements());
+        // The array, the pair and its int array
+        assertEquals(3, parts.get("").getObjects());
+        assertEquals(parts.get("locations").getBytes() / 3.0, parts.get("locations").getBytesPerElement());
+
+        Usage total = HeapFootprint.total(parts.values());
+        assertEquals(6, total.getObjects());
+        assertEquals(parts.get("").getBytes() + parts.get("locations").getBytes(), total.getBytes());
+    }
+}
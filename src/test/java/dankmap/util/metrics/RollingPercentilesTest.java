@@ -0,0 +1,57 @@
+package dankmap.util.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RollingPercentilesTest {
+
+    @Test
+    public void testEmpty() {
+        RollingPercentiles r = new RollingPercentiles(10);
+        assertTrue(Double.isNaN(r.percentile(50)));
+        assertTrue(Double.isNaN(r.last()));
+        assertEquals(0, r.size());
+    }
+
+    @Test
+    public void testPercentilesByNearestRank() {
+        RollingPercentiles r = new RollingPercentiles(100);
+        for (int i = 100; i >= 1; i--) r.add(i);
+        assertEquals(50, r.percentile(50));
+        assertEquals(95, r.percentile(95));
+        assertEquals(99, r.percentile(99));
+        assertEquals(100, r.percentile(100));
+        assertEquals(1, r.percentile(0));
+        assertEquals(50.5, r.mean(), 1e-9);
+        assertEquals(1, r.last());
+    }
+
+    @Test
+    public void testPercentilesOfOneSort() {
+        RollingPercentiles r = new RollingPercentiles(100);
+        for (int i = 1; i <= 100; i++) r.add(i);
+        assertArrayEquals(new double[]{50, 95, 99}, r.percentiles(50, 95, 99));
+        assertArrayEquals(new double[]{r.percentile(0), r.percentile(100)}, r.percentiles(0, 100));
+        assertEquals(0, r.percentiles().length);
+        assertTrue(Double.isNaN(new RollingPercentiles(4).percentiles(50, 99)[1]));
+    }
+
+    @Test
+    public void testWindowDropsOldSamples() {
+        RollingPercentiles r = new RollingPercentiles(4);
+        for (int i = 0; i < 10; i++) r.add(i);
+        assertEquals(4, r.size());
+        assertEquals(10, r.total());
+        assertEquals(6, r.percentile(0));
+        assertEquals(9, r.max());
+        assertEquals(9, r.last());
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new RollingPercentiles(0));
+        assertThrows(IllegalArgumentException.class, () -> new RollingPercentiles(1).percentile(101));
+        assertThrows(IllegalArgumentException.class, () -> new RollingPercentiles(1).percentiles(50, -1));
+    }
+}
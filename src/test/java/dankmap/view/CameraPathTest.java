@@ -0,0 +1,60 @@
+package dankmap.view;
+
+import dankmap.drawing.ZoomLevel;
+import dankmap.model.Bounds;
+import javafx.scene.transform.Affine;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CameraPathTest {
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        CameraPath path = new CameraPath();
+        path.add(new CameraPath.Frame(3, 1280, 800, 700.5, 700.5, -12.25, 3e-7));
+        path.add(new CameraPath.Frame(12, 640, 480, 360000, 360000, 1e9, -2.5));
+
+        StringWriter out = new StringWriter();
+        path.write(out);
+        CameraPath read = CameraPath.read(new StringReader(out.toString()));
+
+        assertEquals(2, read.size());
+        CameraPath.Frame frame = read.getFrames().get(1);
+        assertEquals(12, frame.getZoomLevel());
+        assertEquals(640, frame.getWidth());
+        assertEquals(480, frame.getHeight());
+        Affine transform = frame.getTransform();
+        assertEquals(360000, transform.getMxx());
+        assertEquals(360000, transform.getMyy());
+        assertEquals(1e9, transform.getTx());
+        assertEquals(-2.5, transform.getTy());
+        assertEquals(3e-7, read.getFrames().get(0).getTransform().getTy());
+    }
+
+    @Test
+    public void testReadInvalid() {
+        assertThrows(IOException.class, () -> CameraPath.read(new StringReader("1 2 3\n")));
+        assertThrows(IOException.class, () -> CameraPath.read(new StringReader("a 1 1 1 1 1 1\n")));
+    }
+
+    @Test
+    public void testFlyoverStaysOverBounds() {
+        Bounds bounds = new Bounds(10f, -50f, 10.5f, -49.7f);
+        CameraPath path = CameraPath.flyover(bounds, 1000, 600);
+
+        assertTrue(path.size() > 0);
+        assertTrue(path.getFrames().stream().anyMatch(frame -> frame.getZoomLevel() == ZoomLevel.ZOOM_LEVEL_MAX.getId()));
+        for (CameraPath.Frame frame : path.getFrames()) {
+            Affine transform = frame.getTransform();
+            double x = (frame.getWidth() / 2 - transform.getTx()) / transform.getMxx();
+            double y = (frame.getHeight() / 2 - transform.getTy()) / transform.getMyy();
+            assertTrue(bounds.getMinX() <= x && x <= bounds.getMaxX());
+            assertEquals(bounds.getCenterY(), y, 1e-6);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package dankmap.view;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CollisionGridTest {
+
+    @Test
+    public void testOverlapIsRejected() {
+        CollisionGrid grid = new CollisionGrid(200, 200, 32);
+        assertTrue(grid.insert(10, 10, 100, 30));
+        assertFalse(grid.insert(90, 20, 150, 40));
+        assertFalse(grid.insert(40, 15, 50, 25));
+        assertEquals(1, grid.size());
+    }
+
+    @Test
+    public void testTouchingIsAllowed() {
+        CollisionGrid grid = new CollisionGrid(200, 200, 32);
+        assertTrue(grid.insert(10, 10, 100, 30));
+        assertTrue(grid.insert(100, 10, 150, 30));
+        assertTrue(grid.insert(10, 30, 100, 50));
+        assertEquals(3, grid.size());
+    }
+
+    @Test
+    public void testSpanningManyCells() {
+        CollisionGrid grid = new CollisionGrid(200, 200, 16);
+        assertTrue(grid.insert(0, 0, 200, 5));
+        assertFalse(grid.insert(190, 0, 195, 10));
+        assertTrue(grid.insert(190, 5, 195, 10));
+    }
+
+    @Test
+    public void testOutsideScreenIsClamped() {
+        CollisionGrid grid = new CollisionGrid(100, 100, 32);
+        assertTrue(grid.insert(-50, -50, -10, -10));
+        assertFalse(grid.insert(-30, -30, 5, 5));
+        assertTrue(grid.insert(150, 150, 200, 200));
+        assertFalse(grid.insert(180, 180, 250, 250));
+    }
+}